@@ -0,0 +1,80 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.Gson;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Compares the adapters generated by the annotation processor with the reflective adapters of Gson,
+ * decoding a result of 1000 people and encoding them one by one.
+ * <code>firstUse</code> measures the setup cost a new codec pays for the first request of an entity type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"generated", "reflective"})
+    public String adapters;
+
+    private Codec codec;
+    private String result;
+    private List<Person> people;
+
+    @Setup
+    public void setup() {
+        codec = createCodec();
+        people = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            Person person = new Person("person number "+i, i % 100);
+            person.id = "person:"+i;
+            people.add(person);
+        }
+        result = StubServer.result(new Gson().toJson(people));
+    }
+
+    private Codec createCodec() {
+        return adapters.equals("generated") ? new Codec() : new Codec(new Gson(), false);
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> decode() {
+        return codec.parseResults(Person.class, result);
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for(Person person : people)
+            blackhole.consume(codec.toJson(person));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 200)
+    public Object firstUse() {
+        return createCodec().resultAdapter(Person.class);
+    }
+
+}
@@ -0,0 +1,87 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import dev.bitbite.surrealdb.query.ColumnarResult;
+import dev.bitbite.surrealdb.query.Columns;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Aggregates two numeric fields of a response, decoded into maps, into entities and into primitive columns.
+ * Run with <code>-PjmhProfilers=gc</code> to compare the allocations of boxing the values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarResultBenchmark {
+
+    private static final Type MAP = new TypeToken<Map<String, Object>>() {}.getType();
+    private static final Columns COLUMNS = Columns.builder().doubles("score").ints("age").build();
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private String result;
+
+    @Setup
+    public void setup() {
+        List<Person> people = new ArrayList<>();
+        for(int i = 0; i < rows; i++) {
+            Person person = new Person("person number "+i, i % 100);
+            person.id = "person:"+i;
+            people.add(person);
+        }
+        result = StubServer.result(new Gson().toJson(people));
+    }
+
+    @Benchmark
+    public double sumMaps() {
+        double sum = 0;
+        for(Map<String, Object> row : QueryResult.<Map<String, Object>>parseArray(MAP, result).get(0).getResult())
+            sum += ((Number) row.get("score")).doubleValue() * ((Number) row.get("age")).doubleValue();
+        return sum;
+    }
+
+    @Benchmark
+    public double sumEntities() {
+        double sum = 0;
+        for(Person row : QueryResult.parseArray(Person.class, result).get(0).getResult())
+            sum += row.score * row.age;
+        return sum;
+    }
+
+    @Benchmark
+    public double sumColumns() {
+        ColumnarResult columns = ColumnarResult.read(COLUMNS, new StringReader(result));
+        double[] score = columns.getDoubles("score").values();
+        int[] age = columns.getInts("age").values();
+        double sum = 0;
+        for(int row = 0; row < columns.size(); row++)
+            sum += score[row] * age[row];
+        return sum;
+    }
+
+}
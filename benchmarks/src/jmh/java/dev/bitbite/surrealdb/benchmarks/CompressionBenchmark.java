@@ -0,0 +1,75 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Compares requests with and without compression against a local stub server compressing with gzip.
+ * Over loopback compression only costs time, so the results show its overhead per payload size,
+ * which a slower network has to make up for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    private StubServer server;
+    private SurrealDBConnection connection;
+    private Person small, large;
+
+    @Setup
+    public void setup() throws Exception {
+        server = StubServer.surreal(rows, true);
+        connection = new SurrealDBConnection(server.getURI());
+        if(compression)
+            connection.enableCompression(1024);
+        small = new Person("new person", 42);
+        large = new Person("new person ".repeat(1000), 42);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public QueryResult<Person> selectAll() {
+        return connection.select(Person.class, "person");
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> createSmall() {
+        return connection.create("person", small);
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> createLarge() {
+        return connection.create("person", large);
+    }
+
+}
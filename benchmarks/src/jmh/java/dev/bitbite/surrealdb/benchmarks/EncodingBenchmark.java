@@ -0,0 +1,107 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.bitbite.surrealdb.codec.BufferPool;
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.codec.PooledOutputStream;
+
+/**
+ * Compares encoding a multi-megabyte document into a string published with <code>BodyPublishers.ofString</code>
+ * against encoding it into pooled buffers, up to the point where the HTTP client has read the body.
+ * The interesting number is the allocation rate, run with <code>-prof gc</code>:
+ * <pre>./gradlew :benchmarks:jmh -PjmhIncludes=EncodingBenchmark -PjmhProfilers=gc</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+    /**
+     * A document holding many people, about 100 bytes of JSON each.
+     */
+    public static class Document {
+        public List<Person> people = new ArrayList<>();
+    }
+
+    @Param({"10000", "50000"})
+    public int people;
+
+    private final Codec codec = new Codec();
+    private final BufferPool pool = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, 1024);
+    private Document document;
+
+    @Setup
+    public void setup() {
+        document = new Document();
+        for(int i = 0; i < people; i++)
+            document.people.add(new Person("person number "+i, i % 100));
+        // fill the pool, as a connection under load would have
+        pool.release(pool.acquire());
+        codec.encode(document, pool).release();
+    }
+
+    @Benchmark
+    public long string() {
+        return drain(HttpRequest.BodyPublishers.ofString(codec.toJson(document)));
+    }
+
+    @Benchmark
+    public long pooled() {
+        PooledOutputStream body = codec.encode(document, pool);
+        try {
+            return drain(body.toBodyPublisher());
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * Reads a body publisher like the HTTP client does, without sending anything.
+     */
+    private static long drain(HttpRequest.BodyPublisher publisher) {
+        long[] size = new long[1];
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                size[0] += item.remaining();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return size[0];
+    }
+
+}
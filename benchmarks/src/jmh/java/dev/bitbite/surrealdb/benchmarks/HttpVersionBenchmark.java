@@ -0,0 +1,74 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Compares the throughput of HTTP/1.1 and HTTP/2 against a local stub server.
+ * Every invocation sends a burst of concurrent selects and waits for all of them,
+ * so HTTP/1.1 needs a connection per request in flight while HTTP/2 multiplexes them over one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpVersionBenchmark {
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public String version;
+
+    @Param({"1", "64"})
+    public int concurrency;
+
+    private StubServer server;
+    private SurrealDBConnection connection;
+
+    @Setup
+    public void setup() throws Exception {
+        server = StubServer.surreal(1);
+        connection = SurrealDBConnection.builder()
+            .host(server.getURI())
+            .version(HttpClient.Version.valueOf(version))
+            .virtualThreads()
+            .build();
+        // the first request negotiates the protocol
+        connection.select(Person.class, "person", "0");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public void select(Blackhole blackhole) {
+        List<CompletableFuture<QueryResult<Person>>> requests = new ArrayList<>(concurrency);
+        for(int i = 0; i < concurrency; i++)
+            requests.add(connection.selectAsync(Person.class, "person", "0"));
+        for(CompletableFuture<QueryResult<Person>> request : requests)
+            blackhole.consume(request.join());
+    }
+
+}
@@ -0,0 +1,28 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import dev.bitbite.surrealdb.orm.Identifiable;
+
+public class Person implements Identifiable {
+    public String id;
+    public String name;
+    public String email;
+    public int age;
+    public double score;
+    public boolean active;
+
+    public Person() {
+    }
+
+    public Person(String name, int age) {
+        this.name = name;
+        this.email = name + "@example.com";
+        this.age = age;
+        this.score = age * 1.5;
+        this.active = age % 2 == 0;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,75 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.bitbite.surrealdb.query.OrderBy;
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.QueryTemplate;
+import dev.bitbite.surrealdb.query.SelectQuery;
+import dev.bitbite.surrealdb.query.WhereClause;
+
+/**
+ * Measures rendering queries to SurrealQL.
+ * <code>build</code> creates and renders a new query every time, like code building its queries inline;
+ * <code>render</code> renders a query that has already been built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryRenderingBenchmark {
+
+    private WhereClause whereClause;
+    private SelectQuery query;
+
+    @Setup
+    public void setup() {
+        whereClause = new WhereClause("name", "=", "person number 42");
+        query = create();
+    }
+
+    private static SelectQuery create() {
+        return Query.select("name", "email", "age")
+            .from("person")
+            .where("age", ">", 18)
+            .where("name", "=", "person number 42")
+            .where("active = true")
+            .orderBy("age", OrderBy.Order.DESC)
+            .limit(10)
+            .offset(20);
+    }
+
+    @Benchmark
+    public String whereClause() {
+        return whereClause.toString();
+    }
+
+    @Benchmark
+    public String render() {
+        return query.toString();
+    }
+
+    @Benchmark
+    public String build() {
+        return create().toString();
+    }
+
+    @Benchmark
+    public QueryTemplate compile() {
+        return create().compile();
+    }
+
+}
@@ -0,0 +1,62 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Measures both overloads of <code>QueryResult.parseArray</code> on a response with a single record
+ * and on one with many. The <code>Type</code> overload checks the status of the response before decoding it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryResultBenchmark {
+
+    @Param({"1", "1000"})
+    public int rows;
+
+    private String result;
+
+    @Setup
+    public void setup() {
+        List<Person> people = new ArrayList<>();
+        for(int i = 0; i < rows; i++) {
+            Person person = new Person("person number "+i, i % 100);
+            person.id = "person:"+i;
+            people.add(person);
+        }
+        result = StubServer.result(new Gson().toJson(people));
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> parseArrayClass() {
+        return QueryResult.parseArray(Person.class, result);
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> parseArrayType() {
+        return QueryResult.parseArray((Type) Person.class, result);
+    }
+
+}
@@ -0,0 +1,93 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.orm.Repository;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Measures the operations of a {@link Repository} end to end against a local stub server,
+ * including serializing the request, the HTTP round trip and decoding the response.
+ * <code>create</code> writes through the connection directly, without the repository.
+ * <code>getAllProjected</code> selects two fields into a record, the stub answers it with whole records though,
+ * so it shows the decoding cost of a projection but not the smaller payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    public record PersonName(String id, String name) {
+    }
+
+    @Param({"100"})
+    public int rows;
+
+    private StubServer server;
+    private SurrealDBConnection connection;
+    private Repository<Person> repository;
+    private Person person;
+
+    @Setup
+    public void setup() throws Exception {
+        server = StubServer.surreal(rows);
+        connection = new SurrealDBConnection(server.getURI());
+        repository = new Repository<>(Person.class, connection);
+        person = repository.get("person:0");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public Person add() {
+        return repository.add(new Person("new person", 42));
+    }
+
+    @Benchmark
+    public Person get() {
+        return repository.get("person:0");
+    }
+
+    @Benchmark
+    public List<Person> getAll() {
+        return repository.getAll();
+    }
+
+    @Benchmark
+    public List<PersonName> getAllProjected() {
+        return repository.getAll(PersonName.class);
+    }
+
+    @Benchmark
+    public Person update() {
+        person.age++;
+        return repository.update(person);
+    }
+
+    @Benchmark
+    public List<QueryResult<Person>> create() {
+        return connection.create("person", new Person("new person", 42));
+    }
+
+}
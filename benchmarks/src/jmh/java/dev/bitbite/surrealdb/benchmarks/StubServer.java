@@ -0,0 +1,135 @@
+package dev.bitbite.surrealdb.benchmarks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.Callback;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * An in-process HTTP server answering like SurrealDB, so the benchmarks measure the client and not the database.
+ * It speaks HTTP/1.1 and HTTP/2 over cleartext (h2c), the latter after the client asked to upgrade.
+ * Optionally it compresses responses the client accepts compressed and decompresses compressed requests.
+ */
+public class StubServer implements AutoCloseable {
+
+    /**
+     * A request received by the stub.
+     */
+    public record StubRequest(String method, String path, HttpFields headers, String body) {}
+
+    private final Server server;
+    private final ServerConnector connector;
+
+    /**
+     * Starts a stub answering every request with the handler's result.
+     */
+    public StubServer(Function<StubRequest, String> handler) throws Exception {
+        this(handler, false);
+    }
+
+    /**
+     * Starts a stub answering every request with the handler's result, compressing with gzip if enabled.
+     */
+    public StubServer(Function<StubRequest, String> handler, boolean gzip) throws Exception {
+        this.server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        this.connector = new ServerConnector(server, new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+        this.connector.setHost("localhost");
+        this.connector.setPort(0);
+        this.server.addConnector(connector);
+        Handler surreal = new Handler.Abstract() {
+            @Override
+            public boolean handle(Request request, Response response, Callback callback) throws Exception {
+                String body = Content.Source.asString(request, StandardCharsets.UTF_8);
+                String answer = handler.apply(new StubRequest(request.getMethod(), Request.getPathInContext(request), request.getHeaders(), body));
+                response.setStatus(200);
+                response.getHeaders().put(HttpHeader.CONTENT_TYPE, "application/json");
+                Content.Sink.write(response, true, answer, callback);
+                return true;
+            }
+        };
+        if(gzip) {
+            GzipHandler compressing = new GzipHandler();
+            compressing.setMinGzipSize(1024);
+            compressing.setInflateBufferSize(8192);
+            compressing.setHandler(surreal);
+            this.server.setHandler(compressing);
+        } else {
+            this.server.setHandler(surreal);
+        }
+        this.server.start();
+    }
+
+    /**
+     * Starts a stub serving a <code>person</code> table with the specified number of records.
+     * Selecting the table returns all records, selecting a record returns the first one,
+     * and writes return the written record with an id added.
+     */
+    public static StubServer surreal(int rows) throws Exception {
+        return surreal(rows, false);
+    }
+
+    /**
+     * Starts a stub serving a <code>person</code> table like {@link #surreal(int)}, compressing with gzip if enabled.
+     */
+    public static StubServer surreal(int rows, boolean gzip) throws Exception {
+        Gson gson = new Gson();
+        StringBuilder records = new StringBuilder("[");
+        for(int i = 0; i < rows; i++) {
+            Person person = new Person("person"+i, i % 100);
+            person.id = "person:"+i;
+            if(i > 0)
+                records.append(',');
+            records.append(gson.toJson(person));
+        }
+        records.append(']');
+        String table = result(records.toString());
+        String single = result(rows == 0 ? "[]" : "["+gson.toJson(gson.fromJson(records.toString(), Person[].class)[0])+"]");
+
+        return new StubServer(request -> {
+            if(request.path().equals("/sql"))
+                return table;
+            if(request.method().equals("GET"))
+                return request.path().split("/").length > 3 ? single : table;
+            if(request.body().isEmpty())
+                return single;
+            JsonObject record = JsonParser.parseString(request.body()).getAsJsonObject();
+            record.addProperty("id", "person:1");
+            return result("["+record+"]");
+        }, gzip);
+    }
+
+    /**
+     * Wraps records the way SurrealDB wraps the result of a statement.
+     */
+    public static String result(String records) {
+        return "[{\"time\":\"10.5µs\",\"status\":\"OK\",\"result\":"+records+"}]";
+    }
+
+    public URI getURI() {
+        return URI.create("http://localhost:"+connector.getLocalPort());
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+
+}
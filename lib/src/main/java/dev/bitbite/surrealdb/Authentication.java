@@ -0,0 +1,53 @@
+package dev.bitbite.surrealdb;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Namespace, database and token requests of a connection are sent with,
+ * shared with the views derived from the connection.
+ * Changed by {@link SurrealDBConnection#use(String, String) use} and the sign in methods.
+ */
+class Authentication {
+
+    private volatile String namespace, database;
+    private volatile String token;
+
+    String getNamespace() {
+        return this.namespace;
+    }
+
+    String getDatabase() {
+        return this.database;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the namespace, database and token cannot be changed
+     */
+    void checkChangeable() {
+    }
+
+    void use(String namespace, String database) {
+        checkChangeable();
+        this.namespace = namespace;
+        this.database = database;
+    }
+
+    void setToken(String token) {
+        checkChangeable();
+        this.token = token;
+    }
+
+    /**
+     * @return future completing with the token to send the next request with, or null if there is none
+     */
+    CompletableFuture<String> token() {
+        return CompletableFuture.completedFuture(this.token);
+    }
+
+    /**
+     * Called when the server rejected a request because of its authentication
+     */
+    void rejected() {
+    }
+
+}
@@ -0,0 +1,202 @@
+package dev.bitbite.surrealdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import dev.bitbite.surrealdb.codec.PooledOutputStream;
+
+/**
+ * Compresses request bodies and decompresses response bodies for connections with compression enabled.
+ * <p>
+ * Request bodies are compressed with gzip once they reach the threshold of the connection, smaller bodies are
+ * sent as they are, since compressing them costs more than it saves. Responses are decompressed according to
+ * their <code>Content-Encoding</code>, which may be <code>gzip</code> or <code>deflate</code>.
+ * </p>
+ */
+class Compression {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final int threshold;
+
+    /**
+     * @param threshold size in bytes from which request bodies are compressed
+     */
+    Compression(int threshold) {
+        if(threshold < 0)
+            throw new IllegalArgumentException("The compression threshold must not be negative");
+        this.threshold = threshold;
+    }
+
+    int getThreshold() {
+        return this.threshold;
+    }
+
+    /**
+     * @return publisher of the body, compressed if it reaches the threshold
+     */
+    HttpRequest.BodyPublisher body(String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length < this.threshold)
+            return HttpRequest.BodyPublishers.ofByteArray(bytes);
+        return gzip(out -> out.write(bytes), bytes.length);
+    }
+
+    /**
+     * @return publisher of the body, compressed if it reaches the threshold
+     */
+    HttpRequest.BodyPublisher body(PooledOutputStream data) {
+        if(data.size() < this.threshold)
+            return data.toBodyPublisher();
+        return gzip(data::writeTo, data.size());
+    }
+
+    private interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static HttpRequest.BodyPublisher gzip(Body data, long size) {
+        // compressed JSON is usually a fraction of its size, so the buffer rarely grows
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, Math.max(64, size / 4)));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+            data.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Compressed(HttpRequest.BodyPublishers.ofByteArray(compressed.toByteArray()), "gzip");
+    }
+
+    /**
+     * @return the encoding of a body, or null if it is not compressed
+     */
+    static String encoding(HttpRequest.BodyPublisher body) {
+        return body instanceof Compressed compressed ? compressed.encoding : null;
+    }
+
+    /**
+     * @return handler of string bodies, decompressing them according to their <code>Content-Encoding</code>
+     */
+    static HttpResponse.BodyHandler<String> ofString() {
+        return info -> {
+            String encoding = encoding(info);
+            if(encoding == null)
+                return HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+                try (InputStream in = decompress(new ByteArrayInputStream(bytes), encoding)) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+    }
+
+    /**
+     * @return handler of streamed bodies, decompressing them according to their <code>Content-Encoding</code>
+     */
+    static HttpResponse.BodyHandler<InputStream> ofInputStream() {
+        return info -> {
+            String encoding = encoding(info);
+            if(encoding == null)
+                return HttpResponse.BodySubscribers.ofInputStream();
+            // reading the gzip header blocks, so the stream is only wrapped once it is read
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                in -> new LazyDecompressingInputStream(in, encoding));
+        };
+    }
+
+    /**
+     * @return the encoding of a response, or null if it is not compressed
+     */
+    private static String encoding(HttpResponse.ResponseInfo info) {
+        String encoding = info.headers().firstValue("Content-Encoding").map(value -> value.trim().toLowerCase(Locale.ROOT)).orElse("identity");
+        if(encoding.equals("identity"))
+            return null;
+        if(!encoding.equals("gzip") && !encoding.equals("deflate"))
+            throw new UncheckedIOException(new IOException("Unsupported Content-Encoding "+encoding));
+        return encoding;
+    }
+
+    private static InputStream decompress(InputStream in, String encoding) throws IOException {
+        return encoding.equals("gzip") ? new GZIPInputStream(in, 8192) : new InflaterInputStream(in);
+    }
+
+    /**
+     * A publisher of a compressed body, which the request is marked with the encoding of
+     */
+    private static class Compressed implements HttpRequest.BodyPublisher {
+
+        private final HttpRequest.BodyPublisher body;
+        private final String encoding;
+
+        Compressed(HttpRequest.BodyPublisher body, String encoding) {
+            this.body = body;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            body.subscribe(subscriber);
+        }
+    }
+
+    private static class LazyDecompressingInputStream extends InputStream {
+
+        private final InputStream compressed;
+        private final String encoding;
+        private InputStream in;
+
+        LazyDecompressingInputStream(InputStream compressed, String encoding) {
+            this.compressed = compressed;
+            this.encoding = encoding;
+        }
+
+        private InputStream in() throws IOException {
+            if(in == null)
+                in = decompress(compressed, encoding);
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return in().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in == null ? 0 : in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(in != null)
+                in.close();
+            else
+                compressed.close();
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+package dev.bitbite.surrealdb;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import dev.bitbite.surrealdb.exception.LimitExceededException;
+
+/**
+ * Limits the number of requests a connection has in flight, adapting the limit to the observed latency.
+ * <p>
+ * The limit follows the additive increase, multiplicative decrease scheme of TCP congestion control:
+ * while responses arrive with a latency close to the lowest recently observed one and the limit is being used,
+ * it grows by about one per round trip. Once the latency exceeds the tolerated multiple of that baseline,
+ * or a request times out or fails to connect, it is multiplied by the backoff ratio, at most once per round trip.
+ * </p>
+ * <p>
+ * Requests exceeding the limit wait in a queue for a request in flight to complete. Requests that would exceed
+ * the queue, or wait in it longer than the queue timeout, are shed with a {@link LimitExceededException}.
+ * A limiter may be shared by several connections to limit them together.
+ * </p>
+ */
+public class ConcurrencyLimiter {
+
+    private static final int BASELINE_WINDOW = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final Duration queueTimeout;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private final Deque<CompletableFuture<Permit>> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecrease = System.nanoTime();
+    private long shedRequests;
+
+    private ConcurrencyLimiter(Builder builder) {
+        if(builder.minLimit < 1 || builder.maxLimit < builder.minLimit)
+            throw new IllegalArgumentException("The limits must be at least 1 and the maximum must not be below the minimum");
+        if(builder.initialLimit < builder.minLimit || builder.initialLimit > builder.maxLimit)
+            throw new IllegalArgumentException("The initial limit must be between the minimum and maximum limit");
+        if(builder.queueSize < 0)
+            throw new IllegalArgumentException("The queue size must not be negative");
+        if(!(builder.backoffRatio > 0 && builder.backoffRatio < 1))
+            throw new IllegalArgumentException("The backoff ratio must be between 0 and 1");
+        if(!(builder.latencyTolerance > 1))
+            throw new IllegalArgumentException("The latency tolerance must be greater than 1");
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.queueSize = builder.queueSize;
+        this.queueTimeout = builder.queueTimeout;
+        this.backoffRatio = builder.backoffRatio;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.limit = builder.initialLimit;
+    }
+
+    /**
+     * Create a builder to configure a new limiter
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the number of requests currently allowed in flight
+     * @return current limit
+     */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Get the number of requests currently in flight
+     * @return requests in flight
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * Get the number of requests waiting for a request in flight to complete
+     * @return queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Get the number of requests shed so far, because the queue was full or they waited too long
+     * @return shed requests
+     */
+    public synchronized long getShedRequests() {
+        return this.shedRequests;
+    }
+
+    /**
+     * Acquires a permit to send a request
+     * @return future completing with the permit once the request may be sent,
+     *  or failing with a {@link LimitExceededException} if it is shed
+     */
+    CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> waiter;
+        synchronized(this) {
+            if(this.inFlight < (int) this.limit) {
+                this.inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            if(this.queue.size() >= this.queueSize) {
+                this.shedRequests++;
+                return CompletableFuture.failedFuture(new LimitExceededException(
+                    "The concurrency limit of "+(int) this.limit+" requests is reached and "+this.queue.size()+" requests are queued"));
+            }
+            waiter = new CompletableFuture<>();
+            this.queue.addLast(waiter);
+        }
+        CompletableFuture.delayedExecutor(this.queueTimeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if(dequeue(waiter))
+                waiter.completeExceptionally(new LimitExceededException("The request waited longer than "+this.queueTimeout+" for the concurrency limit"));
+        });
+        // a waiter that is cancelled leaves the queue, a permit granted concurrently is handed back
+        waiter.whenComplete((permit, error) -> {
+            if(waiter.isCancelled())
+                dequeue(waiter);
+        });
+        return waiter;
+    }
+
+    private synchronized boolean dequeue(CompletableFuture<Permit> waiter) {
+        boolean removed = this.queue.remove(waiter);
+        if(removed && !waiter.isCancelled())
+            this.shedRequests++;
+        return removed;
+    }
+
+    private void release(Permit permit, long latencyNanos, boolean dropped) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        synchronized(this) {
+            this.inFlight--;
+            if(latencyNanos >= 0)
+                adapt(permit.start, latencyNanos, dropped);
+            while(this.inFlight < (int) this.limit && !this.queue.isEmpty()) {
+                this.inFlight++;
+                granted.add(this.queue.pollFirst());
+            }
+        }
+        // completing the waiters sends their requests, which must not happen while holding the lock
+        for(CompletableFuture<Permit> waiter : granted) {
+            Permit next = new Permit();
+            if(!waiter.complete(next))
+                next.release();
+        }
+    }
+
+    private void adapt(long start, long latencyNanos, boolean dropped) {
+        this.baselineNanos = Math.min(this.baselineNanos, latencyNanos);
+        this.windowMinNanos = Math.min(this.windowMinNanos, latencyNanos);
+        if(++this.windowSamples >= BASELINE_WINDOW) {
+            // the baseline may rise again when the server got slower for good
+            this.baselineNanos = this.windowMinNanos;
+            this.windowMinNanos = Long.MAX_VALUE;
+            this.windowSamples = 0;
+        }
+
+        if(dropped || latencyNanos > this.baselineNanos * this.latencyTolerance) {
+            // requests sent before the last decrease saw the old limit, reacting to them again would overshoot
+            if(start - this.lastDecrease > 0) {
+                this.limit = Math.max(this.minLimit, this.limit * this.backoffRatio);
+                this.lastDecrease = System.nanoTime();
+            }
+        } else if(this.inFlight + 1 >= this.limit / 2) {
+            this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+        }
+    }
+
+    /**
+     * Permission to send one request, which has to be released once the request completed
+     */
+    class Permit {
+
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        /**
+         * Releases the permit, adapting the limit to the latency of the request
+         * @param dropped whether the request timed out or failed to connect
+         */
+        void release(boolean dropped) {
+            release(System.nanoTime() - this.start, dropped);
+        }
+
+        /**
+         * Releases the permit without adapting the limit, e.g. when the request was cancelled
+         */
+        void release() {
+            release(-1, false);
+        }
+
+        void release(long latencyNanos, boolean dropped) {
+            synchronized(this) {
+                if(this.released)
+                    return;
+                this.released = true;
+            }
+            ConcurrencyLimiter.this.release(this, latencyNanos, dropped);
+        }
+    }
+
+    /**
+     * Builder for {@link ConcurrencyLimiter}s.
+     */
+    public static class Builder {
+
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private int queueSize = 100;
+        private Duration queueTimeout = Duration.ofMillis(100);
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the limit the limiter starts with
+         * @param initialLimit requests in flight at first, 20 by default
+         * @return this builder
+         */
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Set the lowest limit the limiter backs off to
+         * @param minLimit lowest limit, 1 by default
+         * @return this builder
+         */
+        public Builder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Set the highest limit the limiter grows to
+         * @param maxLimit highest limit, 200 by default
+         * @return this builder
+         */
+        public Builder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Set the number of requests that may wait for the limit, further requests are shed right away
+         * @param queueSize requests waiting at most, 100 by default, 0 sheds every request exceeding the limit
+         * @return this builder
+         */
+        public Builder queueSize(int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * Set the time a request waits for the limit before it is shed
+         * @param queueTimeout time a request waits at most, 100 milliseconds by default
+         * @return this builder
+         */
+        public Builder queueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+            return this;
+        }
+
+        /**
+         * Set the factor the limit is multiplied with when the server is overloaded
+         * @param backoffRatio factor between 0 and 1, 0.9 by default
+         * @return this builder
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Set the multiple of the lowest recent latency above which the server is considered overloaded
+         * @param latencyTolerance multiple greater than 1, 2 by default
+         * @return this builder
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * Create the limiter
+         * @return a new limiter
+         */
+        public ConcurrencyLimiter build() {
+            return new ConcurrencyLimiter(this);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package dev.bitbite.surrealdb;
+
+import java.util.Map;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Credentials a session signs in with, see {@link SurrealDBConnection#session(String, String, Credentials)}.
+ * <p>
+ * The namespace and database of the session are added to the sign in as the level of the user requires.
+ * Credentials are immutable and may be shared by several sessions.
+ * </p>
+ */
+public final class Credentials {
+
+    private final JsonObject signin;
+    private final boolean namespace, database;
+    private final String token;
+
+    private Credentials(JsonObject signin, boolean namespace, boolean database, String token) {
+        this.signin = signin;
+        this.namespace = namespace;
+        this.database = database;
+        this.token = token;
+    }
+
+    /**
+     * Credentials of a root user
+     * @param user username
+     * @param pass password
+     * @return the credentials
+     */
+    public static Credentials root(String user, String pass) {
+        return new Credentials(user(user, pass), false, false, null);
+    }
+
+    /**
+     * Credentials of a user defined on the namespace of the session
+     * @param user username
+     * @param pass password
+     * @return the credentials
+     */
+    public static Credentials namespace(String user, String pass) {
+        return new Credentials(user(user, pass), true, false, null);
+    }
+
+    /**
+     * Credentials of a user defined on the database of the session
+     * @param user username
+     * @param pass password
+     * @return the credentials
+     */
+    public static Credentials database(String user, String pass) {
+        return new Credentials(user(user, pass), true, true, null);
+    }
+
+    /**
+     * Credentials of a scope defined on the database of the session
+     * @param scope scope to sign in to
+     * @param args arguments for the scope
+     * @return the credentials
+     */
+    public static Credentials scope(String scope, Map<String, String> args) {
+        JsonObject signin = new JsonObject();
+        signin.addProperty("sc", scope);
+        args.forEach(signin::addProperty);
+        return new Credentials(signin, true, true, null);
+    }
+
+    /**
+     * A token that was issued beforehand. It is used as it is and cannot be refreshed.
+     * @param token the token
+     * @return the credentials
+     */
+    public static Credentials token(String token) {
+        return new Credentials(null, false, false, token);
+    }
+
+    private static JsonObject user(String user, String pass) {
+        JsonObject signin = new JsonObject();
+        signin.addProperty("user", user);
+        signin.addProperty("pass", pass);
+        return signin;
+    }
+
+    /**
+     * @return the token the credentials consist of, or null if they have to be signed in with
+     */
+    String getToken() {
+        return this.token;
+    }
+
+    /**
+     * @return body of the <code>/signin</code> request
+     */
+    String toSignin(String namespace, String database) {
+        JsonObject body = new JsonObject();
+        if(this.namespace)
+            body.addProperty("ns", namespace);
+        if(this.database)
+            body.addProperty("db", database);
+        this.signin.entrySet().forEach(entry -> body.add(entry.getKey(), entry.getValue()));
+        return body.toString();
+    }
+
+}
@@ -0,0 +1,122 @@
+package dev.bitbite.surrealdb;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a duplicate of a read that has not been answered after a percentile of the latencies of recent reads,
+ * and completes with whichever of the two is answered first. The other one is cancelled.
+ * <p>
+ * The delay is taken from the last 1024 successful reads and updated every 64 reads.
+ * Until 32 reads have been measured, no duplicates are sent.
+ * </p>
+ */
+class Hedging {
+
+    private static final int SAMPLES = 1024;
+    private static final int MINIMUM_SAMPLES = 32;
+    private static final int UPDATE_INTERVAL = 64;
+
+    private final double percentile;
+    private final long minimumDelayNanos;
+    private final long[] samples = new long[SAMPLES];
+    private int count, next, sinceUpdate;
+    private volatile long delayNanos = -1;
+    private final AtomicLong hedgedRequests = new AtomicLong();
+
+    /**
+     * @param percentile percentile of the latencies after which a duplicate is sent, e.g. 95
+     * @param minimumDelay time a read is always given before a duplicate is sent
+     */
+    Hedging(double percentile, Duration minimumDelay) {
+        if(!(percentile > 0 && percentile < 100))
+            throw new IllegalArgumentException("The hedging percentile must be between 0 and 100");
+        if(minimumDelay.isNegative())
+            throw new IllegalArgumentException("The minimum hedging delay must not be negative");
+        this.percentile = percentile;
+        this.minimumDelayNanos = minimumDelay.toNanos();
+    }
+
+    /**
+     * Sends a read, duplicating it once it takes longer than the current delay
+     * @param request sends the read, called once more for the duplicate
+     * @return future completing with the first successful response, or the error of the last attempt that failed
+     */
+    <T> CompletableFuture<T> send(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger(1);
+        attempt(request, result, attempts, running);
+
+        long delay = this.delayNanos;
+        if(delay >= 0 && !result.isDone()) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+                if(result.isDone())
+                    return;
+                running.incrementAndGet();
+                this.hedgedRequests.incrementAndGet();
+                attempt(request, result, attempts, running);
+            });
+        }
+        result.whenComplete((value, error) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<T>> request, CompletableFuture<T> result, List<CompletableFuture<T>> attempts, AtomicInteger running) {
+        long start = System.nanoTime();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = request.get();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempts.add(attempt);
+        if(result.isDone())
+            attempt.cancel(true);
+        attempt.whenComplete((value, error) -> {
+            if(error == null) {
+                record(System.nanoTime() - start);
+                result.complete(value);
+            } else if(running.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+        sinceUpdate++;
+        if(count < MINIMUM_SAMPLES || (delayNanos >= 0 && sinceUpdate < UPDATE_INTERVAL))
+            return;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = Math.max(0, (int) Math.ceil(percentile / 100 * count) - 1);
+        delayNanos = Math.max(minimumDelayNanos, sorted[index]);
+        sinceUpdate = 0;
+    }
+
+    /**
+     * @return current delay before a duplicate is sent, or null while too few reads have been measured
+     */
+    Duration getDelay() {
+        long delay = this.delayNanos;
+        return delay < 0 ? null : Duration.ofNanos(delay);
+    }
+
+    /**
+     * @return number of duplicates sent so far
+     */
+    long getHedgedRequests() {
+        return this.hedgedRequests.get();
+    }
+
+}
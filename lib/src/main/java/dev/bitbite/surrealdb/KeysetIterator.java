@@ -0,0 +1,92 @@
+package dev.bitbite.surrealdb;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.SelectQuery;
+
+/**
+ * Iterates over all records of a table page by page, ordered by id.
+ * <p>
+ * Each page is selected with <code>WHERE id &gt; last</code>, where <code>last</code> is the id of the last record
+ * of the previous page, so the server never has to skip over the records that have already been read.
+ * As soon as a page arrives, the next one is requested in the background while the current one is consumed.
+ * </p>
+ */
+class KeysetIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final String table;
+    private final int pageSize;
+    private final Function<T, String> idOf;
+    private final Function<String, CompletableFuture<List<T>>> pageLoader;
+    private Iterator<T> page = List.<T>of().iterator();
+    private CompletableFuture<List<T>> nextPage;
+
+    /**
+     * @param startAfter id of the record to start after, or null to start at the first record
+     * @param idOf returns the id of a record
+     * @param pageLoader executes a query and completes with the records of its first statement
+     */
+    KeysetIterator(String table, int pageSize, String startAfter, Function<T, String> idOf, Function<String, CompletableFuture<List<T>>> pageLoader) {
+        if(pageSize < 1)
+            throw new IllegalArgumentException("The page size must be at least 1");
+        this.table = table;
+        this.pageSize = pageSize;
+        this.idOf = idOf;
+        this.pageLoader = pageLoader;
+        this.nextPage = load(startAfter);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(page.hasNext())
+            return true;
+        if(nextPage == null)
+            return false;
+
+        List<T> records;
+        try {
+            records = nextPage.join();
+        } catch (CompletionException e) {
+            nextPage = null;
+            throw e.getCause() instanceof RuntimeException cause ? cause : new SurrealException(e.getCause());
+        }
+        // a short page is the last one
+        nextPage = records.size() < pageSize ? null : load(idOf.apply(records.get(records.size() - 1)));
+        page = records.iterator();
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        return page.next();
+    }
+
+    /**
+     * Cancels the request of the next page, if it is still running.
+     */
+    @Override
+    public void close() {
+        if(nextPage != null)
+            nextPage.cancel(false);
+        nextPage = null;
+        page = List.<T>of().iterator();
+    }
+
+    private CompletableFuture<List<T>> load(String lastId) {
+        SelectQuery query = Query.selectAll().from(table);
+        if(lastId != null)
+            query.where("id > "+lastId);
+        query.orderBy("id").limit(pageSize);
+        return pageLoader.apply(query.toString());
+    }
+
+}
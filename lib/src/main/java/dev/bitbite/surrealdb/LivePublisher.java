@@ -0,0 +1,216 @@
+package dev.bitbite.surrealdb;
+
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.LiveNotification;
+import dev.bitbite.surrealdb.rpc.LiveListener;
+import dev.bitbite.surrealdb.rpc.RpcClient;
+
+/**
+ * Publishes the notifications of a live query.
+ * <p>
+ * Every subscriber gets its own live query, started when it subscribes and killed when it cancels.
+ * The server pushes notifications regardless of demand, so each subscription buffers up to
+ * <code>bufferSize</code> of them; a subscriber falling further behind fails with a {@link SurrealException}
+ * and its live query is killed. Subscribers are never sent more notifications than they requested.
+ * </p>
+ */
+class LivePublisher<T> implements Flow.Publisher<LiveNotification<T>> {
+
+    private final Supplier<CompletableFuture<RpcClient>> clients;
+    private final String query;
+    private final Codec codec;
+    private final Type type;
+    private final int bufferSize;
+
+    /**
+     * @param clients supplies the RPC client, signed in and using the namespace and database of the connection
+     * @param query the <code>LIVE SELECT</code> statement
+     */
+    LivePublisher(Supplier<CompletableFuture<RpcClient>> clients, String query, Codec codec, Type type, int bufferSize) {
+        if(bufferSize < 1)
+            throw new IllegalArgumentException("The buffer size must be at least 1");
+        this.clients = clients;
+        this.query = query;
+        this.codec = codec;
+        this.type = type;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super LiveNotification<T>> subscriber) {
+        Objects.requireNonNull(subscriber);
+        LiveSubscription subscription = new LiveSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    private class LiveSubscription implements Flow.Subscription, LiveListener {
+
+        private final Flow.Subscriber<? super LiveNotification<T>> subscriber;
+        private final ArrayDeque<LiveNotification<T>> buffer = new ArrayDeque<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        // guarded by this
+        private RpcClient rpc;
+        private String liveId;
+
+        LiveSubscription(Flow.Subscriber<? super LiveNotification<T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            clients.get()
+                .thenCompose(client -> {
+                    synchronized(this) {
+                        this.rpc = client;
+                    }
+                    return client.live(query, this);
+                })
+                .whenComplete(this::started);
+        }
+
+        private void started(String id, Throwable failure) {
+            if(failure != null) {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                fail(cause instanceof RuntimeException ? cause : new SurrealException(cause));
+                return;
+            }
+            synchronized(this) {
+                this.liveId = id;
+            }
+            // the subscriber may have cancelled or failed while the live query was starting
+            if(cancelled || error != null)
+                kill();
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                fail(new IllegalArgumentException("Requested "+n+" notifications"));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            kill();
+            drain();
+        }
+
+        @Override
+        public void onNotification(JsonObject notification) {
+            LiveNotification<T> decoded;
+            try {
+                decoded = decode(notification);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            if(decoded == null)
+                return;
+            boolean overflow;
+            synchronized(buffer) {
+                overflow = buffer.size() >= bufferSize;
+                if(!overflow)
+                    buffer.add(decoded);
+            }
+            if(overflow)
+                fail(new SurrealException("The subscriber fell more than "+bufferSize+" notifications behind the live query"));
+            else
+                drain();
+        }
+
+        @Override
+        public void onClose(Throwable error) {
+            fail(error);
+        }
+
+        private LiveNotification<T> decode(JsonObject notification) {
+            LiveNotification.Action action;
+            try {
+                action = LiveNotification.Action.valueOf(notification.get("action").getAsString());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            JsonElement record = notification.get("result");
+            if(record == null || !record.isJsonObject())
+                return new LiveNotification<>(action, record == null || record.isJsonNull() ? null : record.getAsString(), null);
+            JsonElement id = record.getAsJsonObject().get("id");
+            T result = codec.<T>adapter(type).fromJsonTree(record);
+            return new LiveNotification<>(action, id == null ? null : id.getAsString(), result);
+        }
+
+        private void fail(Throwable failure) {
+            if(error == null)
+                error = failure;
+            kill();
+            drain();
+        }
+
+        private void kill() {
+            RpcClient client;
+            String id;
+            synchronized(this) {
+                client = this.rpc;
+                id = this.liveId;
+                this.liveId = null;
+            }
+            if(id == null)
+                return;
+            client.removeLiveListener(id);
+            client.call("kill", new JsonPrimitive(id)).exceptionally(e -> null);
+        }
+
+        /**
+         * Delivers buffered notifications as far as requested. Only one thread delivers at a time,
+         * signals arriving while delivering, e.g. requests from within onNext, are served by that thread.
+         */
+        private void drain() {
+            if(work.getAndIncrement() != 0)
+                return;
+            do {
+                if(!cancelled && error != null) {
+                    cancelled = true;
+                    subscriber.onError(error);
+                }
+                while(!cancelled && demand.get() > 0) {
+                    LiveNotification<T> notification;
+                    synchronized(buffer) {
+                        notification = buffer.poll();
+                    }
+                    if(notification == null)
+                        break;
+                    demand.decrementAndGet();
+                    subscriber.onNext(notification);
+                }
+                if(cancelled) {
+                    synchronized(buffer) {
+                        buffer.clear();
+                    }
+                }
+            } while(work.decrementAndGet() != 0);
+        }
+
+    }
+
+}
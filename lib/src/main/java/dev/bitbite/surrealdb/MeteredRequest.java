@@ -0,0 +1,139 @@
+package dev.bitbite.surrealdb;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import dev.bitbite.surrealdb.metrics.MetricsListener;
+import dev.bitbite.surrealdb.metrics.Operation;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Measures a single request and reports it to a {@link MetricsListener}.
+ * Only created while a listener is set, so requests without one do not pay for the measurement.
+ */
+class MeteredRequest {
+
+    private final MetricsListener listener;
+    private final Operation operation;
+    private final String table;
+    private final long start = System.nanoTime();
+    private long requestBytes;
+
+    MeteredRequest(MetricsListener listener, Operation operation, String table) {
+        this.listener = listener;
+        this.operation = operation;
+        this.table = table;
+    }
+
+    void setRequestBytes(long requestBytes) {
+        this.requestBytes = requestBytes;
+    }
+
+    /**
+     * Sends the request and decodes its response, reporting the latency, the sizes, the decode time
+     * and the server time, or the error the request failed with
+     */
+    <T> CompletableFuture<List<QueryResult<T>>> track(Supplier<CompletableFuture<String>> call, Function<String, List<QueryResult<T>>> decoder) {
+        return this.<String>started(call).handle((body, error) -> {
+            if(error != null)
+                throw failed(error);
+            report(() -> listener.onResponse(operation, table, System.nanoTime() - start, requestBytes, utf8Length(body)));
+            long decodeStart = System.nanoTime();
+            List<QueryResult<T>> results;
+            try {
+                results = decoder.apply(body);
+            } catch (RuntimeException e) {
+                throw failed(e);
+            }
+            long decodeNanos = System.nanoTime() - decodeStart;
+            report(() -> listener.onDecode(operation, table, decodeNanos, serverTime(results)));
+            return results;
+        });
+    }
+
+    /**
+     * Sends a request whose response is decoded elsewhere, reporting the latency and the sizes, or the error the request failed with
+     */
+    CompletableFuture<String> trackBody(Supplier<CompletableFuture<String>> call) {
+        return this.<String>started(call).handle((body, error) -> {
+            if(error != null)
+                throw failed(error);
+            report(() -> listener.onResponse(operation, table, System.nanoTime() - start, requestBytes, utf8Length(body)));
+            return body;
+        });
+    }
+
+    /**
+     * Sends a request whose response is streamed, reporting the latency until the response started to arrive
+     */
+    <R> CompletableFuture<R> trackStream(Supplier<CompletableFuture<R>> call) {
+        return this.<R>started(call).handle((response, error) -> {
+            if(error != null)
+                throw failed(error);
+            report(() -> listener.onResponse(operation, table, System.nanoTime() - start, requestBytes, -1));
+            return response;
+        });
+    }
+
+    private <R> CompletableFuture<R> started(Supplier<CompletableFuture<R>> call) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletionException failed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        report(() -> listener.onError(operation, table, cause));
+        return error instanceof CompletionException completion ? completion : new CompletionException(error);
+    }
+
+    /**
+     * A failing listener must not fail the request it measures
+     */
+    static void report(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            // ignored
+        }
+    }
+
+    private static Duration serverTime(List<? extends QueryResult<?>> results) {
+        Duration total = null;
+        if(results == null)
+            return null;
+        for(QueryResult<?> result : results) {
+            Duration time = result.getDuration();
+            if(time != null)
+                total = total == null ? time : total.plus(time);
+        }
+        return total;
+    }
+
+    static long utf8Length(CharSequence text) {
+        if(text == null)
+            return 0;
+        long length = 0;
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c < 0x80) {
+                length++;
+            } else if(c < 0x800) {
+                length += 2;
+            } else if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,181 @@
+package dev.bitbite.surrealdb;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SurrealDB nodes a connection sends its requests to.
+ * <p>
+ * Every request is routed to the healthy node with the fewest outstanding requests.
+ * A node is ejected as soon as a request to it fails to connect, or it fails a health check.
+ * If no node is healthy, requests are spread over all nodes.
+ * </p>
+ * <p>
+ * An ejected node is re-admitted as soon as a request sent to it is answered without a server error,
+ * or it passes a health check. While there is more than one node, all of them are probed in the background.
+ * SurrealDB has no RPC reporting its own health, so the probe is a plain GET of the <code>/health</code> endpoint,
+ * which answers 200 while the node and its datastore are up.
+ * </p>
+ */
+public class NodePool implements AutoCloseable {
+
+    /**
+     * A single SurrealDB node.
+     */
+    public static class Node {
+
+        private final URI uri;
+        private final AtomicInteger outstandingRequests = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        private Node(URI uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Get the URI of the node
+         * @return URI of the node
+         */
+        public URI getURI() {
+            return uri;
+        }
+
+        /**
+         * Check whether requests are routed to the node
+         * @return true if the node is healthy, false if it has been ejected
+         */
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * Get the number of requests sent to the node that have not been answered yet
+         * @return number of outstanding requests
+         */
+        public int getOutstandingRequests() {
+            return outstandingRequests.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Node [uri=" + uri + ", healthy=" + healthy + ", outstandingRequests=" + outstandingRequests + "]";
+        }
+    }
+
+    private final HttpClient client;
+    private final List<Node> nodes;
+    private final Duration healthCheckInterval;
+    private final AtomicInteger nextStart = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    NodePool(HttpClient client, List<URI> hosts, Duration healthCheckInterval) {
+        if(hosts.isEmpty())
+            throw new IllegalArgumentException("At least one host must be set");
+        this.client = client;
+        this.nodes = hosts.stream().map(Node::new).toList();
+        this.healthCheckInterval = healthCheckInterval;
+        if(this.nodes.size() > 1) {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "surrealdb-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = healthCheckInterval.toMillis();
+            this.healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthChecker = null;
+        }
+    }
+
+    /**
+     * Get all nodes of the pool
+     * @return nodes of the pool, healthy or not
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Probe all nodes on their <code>/health</code> endpoint and update their state with the outcome
+     * @return future completing once all nodes answered or failed
+     */
+    public CompletableFuture<Void> checkHealth() {
+        return CompletableFuture.allOf(nodes.stream().map(this::checkHealth).toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Stop the background health checks
+     */
+    @Override
+    public void close() {
+        if(healthChecker != null)
+            healthChecker.shutdownNow();
+    }
+
+    /**
+     * Picks the node for the next request and counts the request as outstanding on it.
+     * Ties are broken by starting the search at a different node every time.
+     */
+    Node acquire() {
+        Node best = null;
+        Node bestUnhealthy = null;
+        int start = Math.floorMod(nextStart.getAndIncrement(), nodes.size());
+        for(int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get((start + i) % nodes.size());
+            if(node.healthy) {
+                if(best == null || node.getOutstandingRequests() < best.getOutstandingRequests())
+                    best = node;
+            } else if(bestUnhealthy == null || node.getOutstandingRequests() < bestUnhealthy.getOutstandingRequests()) {
+                bestUnhealthy = node;
+            }
+        }
+        if(best == null)
+            best = bestUnhealthy;
+        best.outstandingRequests.incrementAndGet();
+        return best;
+    }
+
+    /**
+     * Counts a request as answered, re-admits the node if it answered and ejects it if it could not be reached.
+     * @param response The response of the node, or null if there is none.
+     * @param error The error the request failed with, or null if it did not fail.
+     */
+    void release(Node node, HttpResponse<?> response, Throwable error) {
+        node.outstandingRequests.decrementAndGet();
+        // a server error may mean the datastore is down, which is for the health check to decide
+        if(response != null && response.statusCode() < 500)
+            node.healthy = true;
+        if(error instanceof CompletionException)
+            error = error.getCause();
+        // a request timing out means the node is slow, not that it is gone
+        if(error instanceof IOException && (!(error instanceof HttpTimeoutException) || error instanceof HttpConnectTimeoutException))
+            node.healthy = false;
+    }
+
+    private CompletableFuture<Void> checkHealth(Node node) {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create(node.uri+"/health"))
+            .timeout(healthCheckInterval)
+            .GET()
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                node.healthy = error == null && response.statusCode() == 200;
+                return null;
+            });
+    }
+
+}
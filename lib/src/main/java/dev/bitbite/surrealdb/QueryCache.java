@@ -0,0 +1,420 @@
+package dev.bitbite.surrealdb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A cache of the responses to select queries of a connection, see {@link SurrealDBConnection#enableQueryCache(long, Duration)}.
+ * <p>
+ * Responses are cached by the query text with its whitespace normalized, and the namespace and database it ran on.
+ * The raw response is kept and decoded again on every hit, so callers never share the decoded objects.
+ * Entries expire after a fixed time to live. Once the estimated memory of all responses exceeds the maximum,
+ * the least recently used ones are evicted.
+ * </p>
+ * <p>
+ * Every write sent through the connection removes the responses of the tables it writes to, once when it is sent
+ * and once when it completed, and a response loaded while a write to its table was in flight is not cached.
+ * Statements whose tables cannot be determined, e.g. ones writing to a table given as a parameter,
+ * clear the whole cache. Concurrent misses for the same query share a single request.
+ * </p>
+ */
+public class QueryCache {
+
+    /**
+     * Estimated memory of an entry besides its key and response
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private record Entry(String body, String table, long weight, long expiresAt) {}
+
+    private record Load(String table, CompletableFuture<String> body) {}
+
+    private final long maximumWeight;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<String>> keysByTable = new HashMap<>();
+    private final Map<String, Load> loading = new HashMap<>();
+    private final Map<String, Long> tableVersions = new HashMap<>();
+    private long version;
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs a new QueryCache.
+     * @param maximumBytes The maximum estimated memory of the cached responses in bytes.
+     * @param timeToLive The time after which a cached response is requested again.
+     */
+    public QueryCache(long maximumBytes, Duration timeToLive) {
+        if(maximumBytes < 1)
+            throw new IllegalArgumentException("The maximum size must be at least 1 byte");
+        this.maximumWeight = maximumBytes;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Returns the cached response to a query.
+     * @return the response, or null on a miss
+     */
+    synchronized String getIfPresent(String key) {
+        Entry entry = entries.get(key);
+        if(entry != null) {
+            if(entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.body();
+            }
+            remove(key);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Requests the response to a query that was not cached, and caches it once it was decoded,
+     * unless its table was written to meanwhile.
+     * @param key The key of the query.
+     * @param table The table the query reads from.
+     * @param loader Sends the query.
+     * @param decoder Decodes the response, failing if the query failed.
+     * @return A future completing with the decoded response.
+     */
+    <R> CompletableFuture<R> load(String key, String table, Supplier<CompletableFuture<String>> loader, Function<String, R> decoder) {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        long version;
+        synchronized(this) {
+            Load existing = loading.putIfAbsent(key, new Load(table, load));
+            if(existing != null)
+                return existing.body().thenApply(decoder);
+            version = version(table);
+        }
+
+        CompletableFuture<String> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((body, error) -> {
+            if(error != null)
+                load.completeExceptionally(error);
+            else
+                load.complete(body);
+        });
+        CompletableFuture<R> decoded = loaded.thenApply(body -> {
+            R result = decoder.apply(body);
+            synchronized(this) {
+                if(body != null && version == version(table))
+                    put(key, table, body);
+            }
+            return result;
+        });
+        decoded.whenComplete((result, error) -> {
+            synchronized(this) {
+                // the load was invalidated by a write while it was running if it is no longer registered
+                Load current = loading.get(key);
+                if(current != null && current.body() == load)
+                    loading.remove(key);
+            }
+        });
+        return decoded;
+    }
+
+    /**
+     * Removes the cached responses of queries reading from a table.
+     * @param table The table.
+     */
+    public synchronized void invalidate(String table) {
+        tableVersions.merge(table, 1L, Long::sum);
+        invalidations.increment();
+        loading.values().removeIf(load -> load.table().equals(table));
+        Set<String> keys = keysByTable.get(table);
+        if(keys != null) {
+            for(String key : List.copyOf(keys))
+                remove(key);
+        }
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        invalidations.increment();
+        loading.clear();
+        entries.clear();
+        keysByTable.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns the number of cached responses.
+     * @return The number of cached responses.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated memory of the cached responses.
+     * @return The estimated memory in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of queries answered from the cache.
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of queries that had to be sent to the server.
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the share of queries answered from the cache.
+     * @return The hit rate between 0 and 1, or 0 if no query was cached yet.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the number of responses removed from the cache to make room for others.
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of times responses were removed because of writes.
+     * @return The number of invalidations.
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns a string representation of the cache statistics.
+     * @return A string representation of the QueryCache object.
+     */
+    @Override
+    public String toString() {
+        return "QueryCache [size=" + getSize() + ", weight=" + getWeight() + ", hits=" + getHits() + ", misses=" + getMisses()
+            + ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations() + "]";
+    }
+
+    private long version(String table) {
+        return version + tableVersions.getOrDefault(table, 0L);
+    }
+
+    private void put(String key, String table, String body) {
+        long entryWeight = ENTRY_OVERHEAD + 2L * (key.length() + body.length());
+        if(entryWeight > maximumWeight)
+            return;
+        remove(key);
+        removeExpired();
+        entries.put(key, new Entry(body, table, entryWeight, System.nanoTime() + timeToLiveNanos));
+        keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+        weight += entryWeight;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while(weight > maximumWeight) {
+            Map.Entry<String, Entry> victim = eldest.next();
+            eldest.remove();
+            unlink(victim.getKey(), victim.getValue());
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if(entry != null)
+            unlink(key, entry);
+    }
+
+    private void unlink(String key, Entry entry) {
+        weight -= entry.weight();
+        Set<String> keys = keysByTable.get(entry.table());
+        if(keys != null && keys.remove(key) && keys.isEmpty())
+            keysByTable.remove(entry.table());
+    }
+
+    /**
+     * Removes expired entries from the least recently used end until the first one that is still valid.
+     */
+    private void removeExpired() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while(eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            if(entry.getValue().expiresAt() - now > 0)
+                return;
+            eldest.remove();
+            unlink(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Normalizes the whitespace of a query outside of strings and drops a trailing semicolon,
+     * so that queries differing only in their formatting share an entry.
+     */
+    static String normalize(String query) {
+        StringBuilder normalized = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+        for(int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if(quote != 0) {
+                normalized.append(c);
+                if(c == '\\' && i + 1 < query.length())
+                    normalized.append(query.charAt(++i));
+                else if(c == quote)
+                    quote = 0;
+                continue;
+            }
+            if(Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if(space && normalized.length() > 0)
+                normalized.append(' ');
+            space = false;
+            if(c == '\'' || c == '"' || c == '`')
+                quote = c;
+            normalized.append(c);
+        }
+        int end = normalized.length();
+        while(end > 0 && normalized.charAt(end - 1) == ';')
+            end--;
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    /**
+     * Finds the tables the statements of a query write to.
+     * @return the tables, empty if the query does not write, or null if they cannot be determined
+     */
+    static Set<String> writtenTables(String query) {
+        if(query == null)
+            return Set.of();
+        List<String> tokens = tokenize(query);
+        Set<String> tables = new HashSet<>();
+        for(int i = 0; i < tokens.size(); i++) {
+            String keyword = tokens.get(i).toUpperCase(Locale.ROOT);
+            int target;
+            switch(keyword) {
+                case "CREATE", "UPDATE", "UPSERT" -> target = skip(tokens, i + 1, "ONLY");
+                case "DELETE" -> target = skip(tokens, skip(tokens, i + 1, "FROM"), "ONLY");
+                case "INSERT" -> {
+                    target = skip(tokens, skip(tokens, i + 1, "IGNORE"), "RELATION");
+                    if(target >= tokens.size() || !tokens.get(target).equalsIgnoreCase("INTO"))
+                        return null;
+                    target++;
+                }
+                case "RELATE", "DEFINE", "REMOVE", "ALTER" -> {
+                    return null;
+                }
+                default -> {
+                    continue;
+                }
+            }
+            // a list of targets, each a table or a record of it
+            while(true) {
+                if(target >= tokens.size() || !isIdentifier(tokens.get(target)))
+                    return null;
+                if(target + 2 < tokens.size() && tokens.get(target + 1).equals(":") && tokens.get(target + 2).equals(":"))
+                    return null;
+                tables.add(unquote(tokens.get(target)));
+                target++;
+                if(target + 1 < tokens.size() && tokens.get(target).equals(":"))
+                    target += 2;
+                if(target < tokens.size() && tokens.get(target).equals(","))
+                    target++;
+                else
+                    break;
+            }
+        }
+        return tables;
+    }
+
+    private static int skip(List<String> tokens, int index, String keyword) {
+        return index < tokens.size() && tokens.get(index).equalsIgnoreCase(keyword) ? index + 1 : index;
+    }
+
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        return first == '`' || first == '⟨' || Character.isLetter(first) || first == '_';
+    }
+
+    private static String unquote(String identifier) {
+        char first = identifier.charAt(0);
+        return first == '`' || first == '⟨' ? identifier.substring(1, identifier.length() - 1) : identifier;
+    }
+
+    /**
+     * Splits a query into words, quoted identifiers, parameters and single characters,
+     * leaving out whitespace, comments and strings
+     */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while(i < query.length()) {
+            char c = query.charAt(i);
+            if(Character.isWhitespace(c)) {
+                i++;
+            } else if(c == '-' && query.startsWith("--", i) || c == '/' && query.startsWith("//", i) || c == '#') {
+                while(i < query.length() && query.charAt(i) != '\n')
+                    i++;
+            } else if(c == '/' && query.startsWith("/*", i)) {
+                int end = query.indexOf("*/", i + 2);
+                i = end == -1 ? query.length() : end + 2;
+            } else if(c == '\'' || c == '"') {
+                i++;
+                while(i < query.length() && query.charAt(i) != c)
+                    i += query.charAt(i) == '\\' ? 2 : 1;
+                i++;
+                tokens.add("''");
+            } else if(c == '`' || c == '⟨') {
+                char close = c == '`' ? '`' : '⟩';
+                int end = query.indexOf(close, i + 1);
+                end = end == -1 ? query.length() - 1 : end;
+                tokens.add(query.substring(i, end + 1));
+                i = end + 1;
+            } else if(Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                int start = i++;
+                while(i < query.length() && (Character.isLetterOrDigit(query.charAt(i)) || query.charAt(i) == '_'))
+                    i++;
+                tokens.add(query.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+}
@@ -0,0 +1,157 @@
+package dev.bitbite.surrealdb;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import dev.bitbite.surrealdb.rpc.RpcClient;
+import dev.bitbite.surrealdb.rpc.RpcException;
+
+/**
+ * Translates the REST style requests issued by {@link SurrealDBConnection} into RPC calls
+ * and shapes the RPC results like the bodies returned by the HTTP endpoints,
+ * so that the connection can parse both the same way.
+ */
+class RpcTransport {
+
+    static final String AUTHENTICATION_PROBLEM = "There was a problem with authentication";
+
+    private final RpcClient rpc;
+
+    RpcTransport(RpcClient rpc) {
+        this.rpc = rpc;
+    }
+
+    RpcClient getClient() {
+        return rpc;
+    }
+
+    CompletableFuture<Void> use(String namespace, String database) {
+        JsonElement ns = namespace == null ? JsonNull.INSTANCE : new JsonPrimitive(namespace);
+        JsonElement db = database == null ? JsonNull.INSTANCE : new JsonPrimitive(database);
+        return rpc.call("use", ns, db).thenApply(result -> null);
+    }
+
+    /**
+     * Executes a request
+     * @param method HTTP method the request would have been sent with
+     * @param endpoint HTTP endpoint the request would have been sent to
+     * @param data body of the request, may be null
+     * @return future completing with a body shaped like the one of the HTTP endpoint
+     */
+    CompletableFuture<String> execute(String method, String endpoint, String data) {
+        if(endpoint.equals("/sql"))
+            return rpc.call("query", new JsonPrimitive(data)).handle(this::queryBody);
+
+        if(endpoint.startsWith("/sql?"))
+            return rpc.call("query", new JsonPrimitive(data), variables(endpoint.substring("/sql?".length()))).handle(this::queryBody);
+
+        if(endpoint.equals("/signin") || endpoint.equals("/signup"))
+            return rpc.call(endpoint.substring(1), JsonParser.parseString(data)).handle(this::authenticationBody);
+
+        if(!endpoint.startsWith("/key/"))
+            throw new UnsupportedOperationException(method+" "+endpoint+" is not supported over RPC");
+
+        JsonPrimitive thing = new JsonPrimitive(endpoint.substring("/key/".length()).replaceFirst("/", ":"));
+        CompletableFuture<JsonElement> result = switch(method) {
+            case "GET" -> rpc.call("select", thing);
+            case "POST" -> rpc.call("create", thing, JsonParser.parseString(data));
+            case "PUT" -> rpc.call("update", thing, JsonParser.parseString(data));
+            case "PATCH" -> rpc.call("merge", thing, JsonParser.parseString(data));
+            case "DELETE" -> rpc.call("delete", thing);
+            default -> throw new UnsupportedOperationException(method+" "+endpoint+" is not supported over RPC");
+        };
+        return result.handle(this::keyBody);
+    }
+
+    /**
+     * Decodes the query variables the connection encoded as URL parameters of the <code>/sql</code> endpoint.
+     */
+    private static JsonObject variables(String parameters) {
+        JsonObject variables = new JsonObject();
+        for(String parameter : parameters.split("&")) {
+            int separator = parameter.indexOf('=');
+            variables.add(
+                URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                JsonParser.parseString(URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8))
+            );
+        }
+        return variables;
+    }
+
+    private String queryBody(JsonElement result, Throwable error) {
+        if(error != null)
+            return errorBody(error);
+        return result.toString();
+    }
+
+    private String keyBody(JsonElement result, Throwable error) {
+        if(error != null)
+            return errorBody(error);
+
+        JsonArray records;
+        if(result.isJsonArray()) {
+            records = result.getAsJsonArray();
+        } else {
+            records = new JsonArray();
+            if(!result.isJsonNull())
+                records.add(result);
+        }
+
+        JsonObject queryResult = new JsonObject();
+        queryResult.addProperty("time", "");
+        queryResult.addProperty("status", "OK");
+        queryResult.add("result", records);
+        JsonArray body = new JsonArray();
+        body.add(queryResult);
+        return body.toString();
+    }
+
+    private String authenticationBody(JsonElement result, Throwable error) {
+        JsonObject body = new JsonObject();
+        if(error != null) {
+            serverError(error);
+            body.addProperty("code", 401);
+            body.addProperty("details", AUTHENTICATION_PROBLEM);
+            return body.toString();
+        }
+        body.addProperty("code", 200);
+        body.addProperty("details", "Authentication succeeded");
+        body.addProperty("token", result.isJsonNull() ? "" : result.getAsString());
+        return body.toString();
+    }
+
+    private String errorBody(Throwable error) {
+        String message = serverError(error).getMessage();
+        if(AUTHENTICATION_PROBLEM.equals(message))
+            return AUTHENTICATION_PROBLEM;
+
+        JsonObject queryResult = new JsonObject();
+        queryResult.addProperty("time", "");
+        queryResult.addProperty("status", "ERR");
+        queryResult.addProperty("result", message);
+        JsonArray body = new JsonArray();
+        body.add(queryResult);
+        return body.toString();
+    }
+
+    /**
+     * Unwraps the error an RPC call failed with.
+     * Errors that were not sent by the server, e.g. a closed socket, are rethrown.
+     */
+    private RpcException serverError(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if(cause instanceof RpcException rpcException)
+            return rpcException;
+        throw error instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+    }
+
+}
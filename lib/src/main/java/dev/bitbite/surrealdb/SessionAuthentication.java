@@ -0,0 +1,151 @@
+package dev.bitbite.surrealdb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.exception.AuthenticationException;
+
+/**
+ * The fixed namespace, database and credentials of a session.
+ * <p>
+ * The session signs in with its first request. The token is refreshed asynchronously by the first request
+ * after 80% of its lifetime, but at most a minute before its expiry, has passed; that request and the following ones
+ * keep using the current token meanwhile. Nothing is refreshed while no requests are sent, so an idle session
+ * signs in again with its next request once the token expired.
+ * Only a request finding no valid token waits for the sign in. Concurrent requests share a single sign in.
+ * </p>
+ */
+class SessionAuthentication extends Authentication {
+
+    private static final long REFRESH_MARGIN_MILLIS = 60_000;
+    private static final long RETRY_MILLIS = 1_000;
+
+    private record Token(String jwt, long refreshAt, long expiresAt) {
+    }
+
+    private final String namespace, database;
+    private final Credentials credentials;
+    private final Function<String, CompletableFuture<String>> signin;
+    private volatile Token current;
+    private CompletableFuture<Token> refreshing;
+
+    /**
+     * @param credentials credentials to sign in with, or null for anonymous requests
+     * @param signin sends a <code>/signin</code> request with the specified body, completing with the body of the response
+     */
+    SessionAuthentication(String namespace, String database, Credentials credentials, Function<String, CompletableFuture<String>> signin) {
+        this.namespace = namespace;
+        this.database = database;
+        this.credentials = credentials;
+        this.signin = signin;
+        if(credentials != null && credentials.getToken() != null)
+            this.current = token(credentials.getToken());
+    }
+
+    @Override
+    String getNamespace() {
+        return this.namespace;
+    }
+
+    @Override
+    String getDatabase() {
+        return this.database;
+    }
+
+    @Override
+    void checkChangeable() {
+        throw new UnsupportedOperationException("The namespace, database and credentials of a session cannot be changed");
+    }
+
+    @Override
+    CompletableFuture<String> token() {
+        if(this.credentials == null)
+            return CompletableFuture.completedFuture(null);
+        Token token = this.current;
+        long now = System.currentTimeMillis();
+        if(token != null && now < token.refreshAt())
+            return CompletableFuture.completedFuture(token.jwt());
+        if(this.credentials.getToken() != null)
+            return CompletableFuture.completedFuture(this.credentials.getToken());
+
+        CompletableFuture<Token> refreshed = refresh(token);
+        if(token != null && now < token.expiresAt())
+            return CompletableFuture.completedFuture(token.jwt());
+        return refreshed.thenApply(Token::jwt);
+    }
+
+    @Override
+    void rejected() {
+        if(this.credentials != null && this.credentials.getToken() == null)
+            this.current = null;
+    }
+
+    private synchronized CompletableFuture<Token> refresh(Token previous) {
+        if(this.refreshing != null)
+            return this.refreshing;
+        CompletableFuture<Token> refreshing;
+        try {
+            refreshing = this.signin.apply(this.credentials.toSignin(this.namespace, this.database)).thenApply(this::parse);
+        } catch (RuntimeException e) {
+            refreshing = CompletableFuture.failedFuture(e);
+        }
+        this.refreshing = refreshing;
+        refreshing.whenComplete((token, error) -> {
+            synchronized(this) {
+                this.refreshing = null;
+            }
+            if(token != null) {
+                this.current = token;
+            } else if(previous != null && previous == this.current) {
+                // keep the token that is still valid, but do not retry the sign in with every request
+                long retryAt = Math.min(System.currentTimeMillis() + RETRY_MILLIS, previous.expiresAt());
+                this.current = new Token(previous.jwt(), retryAt, previous.expiresAt());
+            }
+        });
+        return refreshing;
+    }
+
+    private Token parse(String body) {
+        JsonObject response;
+        try {
+            response = JsonParser.parseString(body).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new AuthenticationException(body);
+        }
+        if(!response.has("token") || (response.has("code") && response.get("code").getAsInt() != 200))
+            throw new AuthenticationException(response.has("details") ? response.get("details").getAsString() : body);
+        return token(response.get("token").getAsString());
+    }
+
+    private static Token token(String jwt) {
+        long expiresAt = expiry(jwt);
+        if(expiresAt < 0)
+            return new Token(jwt, Long.MAX_VALUE, Long.MAX_VALUE);
+        long margin = Math.min(REFRESH_MARGIN_MILLIS, Math.max(0, expiresAt - System.currentTimeMillis()) / 5);
+        return new Token(jwt, expiresAt - margin, expiresAt);
+    }
+
+    /**
+     * Reads the <code>exp</code> claim of a JWT
+     * @return the expiry in milliseconds since the epoch, or -1 if the token does not expire or is no JWT
+     */
+    static long expiry(String jwt) {
+        String[] parts = jwt.split("\\.");
+        if(parts.length < 2)
+            return -1;
+        try {
+            JsonObject claims = JsonParser.parseString(new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)).getAsJsonObject();
+            JsonElement exp = claims.get("exp");
+            return exp == null || exp.isJsonNull() ? -1 : exp.getAsLong() * 1000;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+}
@@ -1,24 +1,72 @@
 package dev.bitbite.surrealdb;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import dev.bitbite.surrealdb.exception.AuthenticationException;
+import dev.bitbite.surrealdb.exception.DeadlineExceededException;
+import dev.bitbite.surrealdb.exception.LimitExceededException;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.orm.Identifiable;
 
 import org.json.JSONObject;
 
-import com.google.gson.Gson;
-
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import dev.bitbite.surrealdb.codec.BufferPool;
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.codec.PooledOutputStream;
+import dev.bitbite.surrealdb.metrics.MetricsListener;
+import dev.bitbite.surrealdb.metrics.Operation;
+import dev.bitbite.surrealdb.query.LiveNotification;
+import dev.bitbite.surrealdb.query.ColumnarResult;
+import dev.bitbite.surrealdb.query.Columns;
 import dev.bitbite.surrealdb.query.Query;
 import dev.bitbite.surrealdb.query.QueryResult;
+import dev.bitbite.surrealdb.query.QueryResultReader;
+import dev.bitbite.surrealdb.query.QueryTemplate;
+import dev.bitbite.surrealdb.query.SelectQuery;
+import dev.bitbite.surrealdb.rpc.RpcClient;
 
 /**
  * Represents a connection to the SurrealDB server.
@@ -26,28 +74,448 @@ import dev.bitbite.surrealdb.query.QueryResult;
  */
 public class SurrealDBConnection {
 
-    private URL host;
-    private HttpClient client;
-    private String namespace, database;
-    private String token;
+    private final NodePool nodes;
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private RpcTransport rpc;
+    private final Codec codec;
+    private final BufferPool bufferPool;
+    private final SurrealDBConnection root;
+    /**
+     * The connection holding the query cache, which views and sessions resolve on every use
+     */
+    private final SurrealDBConnection cacheOwner;
+    private final boolean ownsTransport;
+    private final Authentication auth;
+    private final Duration deadline;
+    private int insertChunkSize = 1000;
+    private int insertConcurrency = 4;
+    private volatile WriteBatcher writeBatcher;
+    private volatile MetricsListener metricsListener;
+    private volatile Hedging hedging;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile Compression compression;
+    private volatile QueryCache queryCache;
+    private CompletableFuture<RpcClient> liveClient;
     
     /**
-     * Create a new connection to the SurrealDB server
+     * Create a new connection to the SurrealDB server<br />
+     * <p>
+     * When the URI uses the <code>ws</code> or <code>wss</code> protocol, e.g. <code>ws://localhost:8000/rpc</code>,
+     * all data operations are sent over a single WebSocket using the RPC protocol.
+     * Status, health and version are always requested over HTTP.
+     * </p>
      * @param host URI of the server
      */
     public SurrealDBConnection(URI host) {
-        URL url = null;
-        try {
-            url = host.toURL();
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            return;
+        this(host, Codec.getDefault());
+    }
+
+    /**
+     * Create a new connection to the SurrealDB server using the specified codec<br />
+     * <p>
+     * The codec is used to encode all data sent and decode all results received over this connection.
+     * </p>
+     * @param host URI of the server
+     * @param codec codec to use
+     * @see #SurrealDBConnection(URI)
+     */
+    public SurrealDBConnection(URI host, Codec codec) {
+        this(builder().host(host).codec(codec));
+    }
+
+    /**
+     * Create a new connection to a cluster of SurrealDB servers<br />
+     * <p>
+     * Each request is sent to the healthy server with the fewest outstanding requests.
+     * Servers are health checked in the background, see {@link NodePool}.
+     * </p>
+     * @param hosts URIs of the servers, using http or https
+     */
+    public SurrealDBConnection(List<URI> hosts) {
+        this(builder().hosts(hosts));
+    }
+
+    private SurrealDBConnection(Builder builder) {
+        if(builder.hosts.isEmpty())
+            throw new IllegalArgumentException("The host must be set");
+        this.codec = builder.codec;
+        this.bufferPool = builder.bufferPool != null ? builder.bufferPool : new BufferPool();
+        this.requestTimeout = builder.requestTimeout;
+        this.client = builder.createClient();
+        this.root = this;
+        this.cacheOwner = this;
+        this.ownsTransport = true;
+        this.auth = new Authentication();
+        this.deadline = null;
+
+        List<URI> hosts = new ArrayList<>();
+        for(URI host : builder.hosts) {
+            if("ws".equals(host.getScheme()) || "wss".equals(host.getScheme())) {
+                if(builder.hosts.size() > 1)
+                    throw new IllegalArgumentException("The RPC protocol can only be used with a single host");
+                this.rpc = new RpcTransport(await(RpcClient.connect(this.client, host)));
+                host = URI.create(host.getScheme().replaceFirst("ws", "http")+"://"+host.getRawAuthority());
+            }
+
+            URL url = null;
+            try {
+                url = host.toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("The host "+host+" is not a valid URL", e);
+            }
+            if(!url.getProtocol().equals("http") && !url.getProtocol().equals("https")) {
+                throw new IllegalArgumentException("The protocol of the host must be http or https");
+            }
+            hosts.add(host);
         }
-        if(!url.getProtocol().equals("http") && !url.getProtocol().equals("https")) {
-            throw new IllegalArgumentException("The protocol of the host must be http or https");
+        this.nodes = new NodePool(this.client, hosts, builder.healthCheckInterval);
+    }
+
+    /**
+     * Creates a view of a connection sharing its transport.
+     * A view with an authentication of its own is a session, which sends its requests over HTTP
+     * and has live queries of its own.
+     */
+    private SurrealDBConnection(SurrealDBConnection parent, Duration deadline, Authentication auth) {
+        this.nodes = parent.nodes;
+        this.client = parent.client;
+        this.requestTimeout = parent.requestTimeout;
+        this.codec = parent.codec;
+        this.bufferPool = parent.bufferPool;
+        this.ownsTransport = false;
+        this.auth = auth;
+        if(auth == parent.auth) {
+            this.root = parent.root;
+            this.rpc = parent.rpc;
+        } else {
+            this.root = this;
+            this.rpc = null;
         }
-        this.host = url;
-        this.client = HttpClient.newHttpClient();
+        this.deadline = deadline;
+        this.insertChunkSize = parent.insertChunkSize;
+        this.insertConcurrency = parent.insertConcurrency;
+        this.metricsListener = parent.metricsListener;
+        this.hedging = parent.hedging;
+        this.concurrencyLimiter = parent.concurrencyLimiter;
+        this.compression = parent.compression;
+        this.cacheOwner = parent.cacheOwner;
+    }
+
+    /**
+     * Create a builder to configure a new connection, including the HTTP client it uses
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the nodes requests of this connection are routed to
+     * @return the node pool of the connection
+     */
+    public NodePool getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the codec used to encode and decode data on this connection
+     * @return codec of the connection
+     */
+    public Codec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     * Resolve the codec adapters of all types used by repositories of this connection ahead of their first use
+     */
+    public void warmUp() {
+        this.codec.warmUp();
+    }
+
+    /**
+     * Set the number of records sent in a single <code>INSERT</code> statement by {@link #insert(String, List)} and {@link #upsert(String, List)}
+     * @param insertChunkSize number of records per statement, 1000 by default
+     */
+    public void setInsertChunkSize(int insertChunkSize) {
+        if(insertChunkSize < 1)
+            throw new IllegalArgumentException("The insert chunk size must be at least 1");
+        this.insertChunkSize = insertChunkSize;
+    }
+
+    /**
+     * Set the maximum number of <code>INSERT</code> statements sent in parallel by {@link #insert(String, List)} and {@link #upsert(String, List)}
+     * @param insertConcurrency number of chunks in flight at the same time, 4 by default
+     */
+    public void setInsertConcurrency(int insertConcurrency) {
+        if(insertConcurrency < 1)
+            throw new IllegalArgumentException("The insert concurrency must be at least 1");
+        this.insertConcurrency = insertConcurrency;
+    }
+
+    /**
+     * Set the listener receiving measurements of the requests of this connection<br />
+     * <p>
+     * Every select, create, update, merge, delete, insert, scan and query is reported with its latency,
+     * the sizes of its request and response, the time taken to decode the response, the execution time
+     * reported by the server, or the error it failed with. Without a listener, requests are not measured at all.
+     * Writes queued while batching is enabled are not measured individually.
+     * </p>
+     * @param metricsListener listener to report to, or null to stop measuring
+     * @see dev.bitbite.surrealdb.metrics.InMemoryMetrics
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Get the listener receiving measurements of the requests of this connection
+     * @return the listener, or null if requests are not measured
+     */
+    public MetricsListener getMetricsListener() {
+        return this.metricsListener;
+    }
+
+    /**
+     * Set the limiter bounding the number of requests this connection has in flight<br />
+     * <p>
+     * Every request sent over HTTP, including the duplicates of hedged reads, needs a permit of the limiter.
+     * Requests exceeding its limit wait briefly and are shed with a {@link LimitExceededException} if they cannot be sent in time.
+     * The limit adapts to the latency of the responses. Requests over an RPC connection are not limited.
+     * When a metrics listener is set, the limit, the requests in flight and the queue depth are reported to it.
+     * </p>
+     * @param concurrencyLimiter limiter to use, may be shared by several connections, or null to not limit requests
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Get the limiter bounding the number of requests this connection has in flight
+     * @return the limiter, or null if requests are not limited
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return this.concurrencyLimiter;
+    }
+
+    /**
+     * Enable compression of request and response bodies over HTTP<br />
+     * <p>
+     * Requests ask the server to compress its responses with gzip or deflate, which are decompressed as they are read,
+     * also while a response is streamed. Request bodies of at least <code>threshold</code> bytes are compressed with gzip,
+     * smaller ones are sent as they are, since compressing them costs more time than sending them saves.
+     * The server has to accept compressed requests, a threshold of {@link Integer#MAX_VALUE} only compresses responses.
+     * Requests over an RPC connection are not compressed.
+     * </p>
+     * @param threshold size of a request body in bytes from which it is compressed
+     */
+    public void enableCompression(int threshold) {
+        this.compression = new Compression(threshold);
+    }
+
+    /**
+     * Disable compression of request and response bodies
+     */
+    public void disableCompression() {
+        this.compression = null;
+    }
+
+    /**
+     * Check whether request and response bodies are compressed
+     * @return true if compression is enabled
+     * @see #enableCompression(int)
+     */
+    public boolean isCompressing() {
+        return this.compression != null;
+    }
+
+    /**
+     * Enable caching of the responses to select queries<br />
+     * <p>
+     * The responses to {@link SelectQuery SelectQueries} sent with {@link #query(Class, Query) query} are cached
+     * by their text and the namespace and database, and decoded again for every hit. Creates, updates, merges, deletes
+     * and statements sent through this connection remove the responses of the tables they write to,
+     * signing in clears the cache. Writes by other connections only become visible once the cached responses expired.
+     * </p>
+     * <p>
+     * The cache belongs to the connection views and sessions were created from, enabling or disabling it on any of them
+     * affects all of them. Views answer their queries from the cache as well. Sessions only remove the responses
+     * of the tables they write to, since their queries may see other records than the connection.
+     * </p>
+     * @param maximumBytes maximum estimated memory of the cached responses in bytes
+     * @param timeToLive time after which a cached response is requested again
+     * @return the cache, which also provides its hit rate
+     * @see QueryCache
+     */
+    public QueryCache enableQueryCache(long maximumBytes, Duration timeToLive) {
+        QueryCache cache = new QueryCache(maximumBytes, timeToLive);
+        this.cacheOwner.queryCache = cache;
+        return cache;
+    }
+
+    /**
+     * Disable caching of the responses to select queries
+     */
+    public void disableQueryCache() {
+        this.cacheOwner.queryCache = null;
+    }
+
+    /**
+     * Get the cache of the responses to select queries
+     * @return the cache, or null if caching is not enabled
+     * @see #enableQueryCache(long, Duration)
+     */
+    public QueryCache getQueryCache() {
+        return this.cacheOwner.queryCache;
+    }
+
+    /**
+     * Get a view of this connection on which every request has to be answered before a deadline<br />
+     * <p>
+     * The view shares the nodes, HTTP client, RPC connection and authentication of this connection,
+     * signing in or changing the namespace on either affects both. Each request sent through the view
+     * is sent with the deadline as its timeout, and cancelled and failed with a {@link DeadlineExceededException}
+     * once it has passed. Operations made up of several requests, like {@link #insert(String, List) insert}
+     * and {@link #scan(String, Class, int) scan}, apply the deadline to each of them.
+     * The view starts out with the settings of this connection, changing them on the view does not affect this connection,
+     * except for the {@link #enableQueryCache(long, Duration) query cache}, which is shared. Closing the view has no effect, this connection has to be closed instead.
+     * </p>
+     * @param deadline time each request has to be answered in
+     * @return a view of this connection
+     */
+    public SurrealDBConnection withDeadline(Duration deadline) {
+        if(deadline.isNegative() || deadline.isZero())
+            throw new IllegalArgumentException("The deadline must be positive");
+        return new SurrealDBConnection(this, deadline, this.auth);
+    }
+
+    /**
+     * Get a session using the specified namespace and database, signed in with the specified credentials<br />
+     * <p>
+     * A session shares the nodes, HTTP client and settings of this connection, but has a namespace, database and token
+     * of its own, which cannot be changed. Sessions are cheap, so a single connection can serve many tenants
+     * with a session each, concurrently.
+     * </p>
+     * <p>
+     * The session signs in with its first request, concurrent requests wait for the same sign in.
+     * The token is refreshed asynchronously by the first request after 80% of its lifetime, requests keep using
+     * the current token meanwhile. An idle session is not refreshed, it signs in again once its token expired.
+     * If the server rejects the token anyway, the session signs in again with its next request.
+     * Sessions always send their requests over HTTP, since the namespace and authentication of an RPC socket
+     * are shared by all its requests. Live queries of a session use a socket of their own, which is closed
+     * by {@link #close()}.
+     * </p>
+     * @param namespace namespace of the session
+     * @param database database of the session
+     * @param credentials credentials to sign in with, or null to send requests without authentication
+     * @return a new session
+     */
+    public SurrealDBConnection session(String namespace, String database, Credentials credentials) {
+        SurrealDBConnection[] session = new SurrealDBConnection[1];
+        Authentication auth = new SessionAuthentication(namespace, database, credentials, body -> session[0]
+            .send("POST", "/signin", session[0].bodyPublisher(body), Compression.ofString(), CompletableFuture.completedFuture(null))
+            .thenApply(HttpResponse::body));
+        session[0] = new SurrealDBConnection(this, this.deadline, auth);
+        return session[0];
+    }
+
+    /**
+     * Get the deadline of the requests of this connection
+     * @return the deadline, or null if requests are only limited by the request timeout
+     * @see #withDeadline(Duration)
+     */
+    public Duration getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Enable hedging of reads<br />
+     * <p>
+     * A {@link #select(Class, String) select}, and with it {@link dev.bitbite.surrealdb.orm.Repository#get(String) Repository.get}
+     * and {@link dev.bitbite.surrealdb.orm.Repository#getAll() getAll}, that has not been answered after the specified
+     * percentile of the latencies of recent reads is sent a second time. The read completes with whichever response
+     * arrives first, the other request is cancelled. A percentile of 95 duplicates about one in twenty reads.
+     * Until enough reads have been measured, no duplicates are sent.
+     * Reads over an RPC connection share a single socket and are never duplicated.
+     * </p>
+     * @param percentile percentile of the read latencies after which a duplicate is sent, between 0 and 100
+     * @param minimumDelay time a read is always given before a duplicate is sent
+     */
+    public void enableHedging(double percentile, Duration minimumDelay) {
+        this.hedging = new Hedging(percentile, minimumDelay);
+    }
+
+    /**
+     * Disable hedging of reads
+     */
+    public void disableHedging() {
+        this.hedging = null;
+    }
+
+    /**
+     * Check whether reads are hedged
+     * @return true if hedging is enabled
+     * @see #enableHedging(double, Duration)
+     */
+    public boolean isHedging() {
+        return this.hedging != null;
+    }
+
+    /**
+     * Enable batching of writes<br />
+     * <p>
+     * While batching is enabled, {@link #create(String, Object) create} and {@link #merge(String, Object) merge}
+     * are not sent right away but put into a queue. The queued writes are sent together as one multi-statement
+     * <code>/sql</code> request once <code>maxBatchSize</code> writes are queued or the oldest write has waited for <code>maxDelay</code>.
+     * Each write still completes with the result of its own statement.
+     * </p>
+     * <p>
+     * At most {@value WriteBatcher#DEFAULT_MAX_BATCHES_IN_FLIGHT} batches are sent at a time; while they are all waiting
+     * for their response, no further writes are taken off the queue.
+     * </p>
+     * @param maxBatchSize maximum number of writes sent in one request
+     * @param maxDelay maximum time a write waits for more writes to join its batch
+     * @param capacity maximum number of writes waiting in the queue
+     * @param overflowPolicy whether writes block or are rejected while the queue is full
+     * @see #enableBatching(int, Duration, int, WriteBatcher.OverflowPolicy, int)
+     */
+    public void enableBatching(int maxBatchSize, Duration maxDelay, int capacity, WriteBatcher.OverflowPolicy overflowPolicy) {
+        enableBatching(maxBatchSize, maxDelay, capacity, overflowPolicy, WriteBatcher.DEFAULT_MAX_BATCHES_IN_FLIGHT);
+    }
+
+    /**
+     * Enable batching of writes, limiting the number of batches sent at a time<br />
+     * <p>
+     * Works like {@link #enableBatching(int, Duration, int, WriteBatcher.OverflowPolicy)}. Once <code>maxBatchesInFlight</code>
+     * batches are waiting for their response, no further writes are taken off the queue until one of them completes,
+     * so the queue fills up and the overflow policy applies.
+     * </p>
+     * @param maxBatchSize maximum number of writes sent in one request
+     * @param maxDelay maximum time a write waits for more writes to join its batch
+     * @param capacity maximum number of writes waiting in the queue
+     * @param overflowPolicy whether writes block or are rejected while the queue is full
+     * @param maxBatchesInFlight maximum number of batches sent at a time
+     */
+    public synchronized void enableBatching(int maxBatchSize, Duration maxDelay, int capacity, WriteBatcher.OverflowPolicy overflowPolicy, int maxBatchesInFlight) {
+        disableBatching();
+        this.writeBatcher = new WriteBatcher(sql -> execute("POST", "/sql", sql), this.codec, maxBatchSize, maxDelay, capacity, overflowPolicy, maxBatchesInFlight);
+    }
+
+    /**
+     * Disable batching of writes. Writes that are already queued are still sent.
+     */
+    public synchronized void disableBatching() {
+        if(this.writeBatcher != null)
+            this.writeBatcher.shutdown();
+        this.writeBatcher = null;
+    }
+
+    /**
+     * Get the write batcher of the connection
+     * @return the write batcher, or null if batching is not enabled
+     */
+    public WriteBatcher getWriteBatcher() {
+        return this.writeBatcher;
     }
 
     /**
@@ -56,9 +524,12 @@ public class SurrealDBConnection {
      * <i>When using root authentication: This should be used <b>AFTER</b> signing in</i>
      * </p>
      * @param namespace to use
+     * @throws UnsupportedOperationException on a session, whose namespace, database and credentials are fixed
      */
     public void use(String namespace) {
-        this.namespace = namespace;
+        this.auth.use(namespace, this.auth.getDatabase());
+        if(this.rpc != null)
+            await(this.rpc.use(this.auth.getNamespace(), this.auth.getDatabase()));
     }
 
     /**
@@ -68,10 +539,12 @@ public class SurrealDBConnection {
      * </p>
      * @param namespace to use
      * @param database to use
+     * @throws UnsupportedOperationException on a session, whose namespace, database and credentials are fixed
      */
     public void use(String namespace, String database) {
-        this.namespace = namespace;
-        this.database = database;
+        this.auth.use(namespace, database);
+        if(this.rpc != null)
+            await(this.rpc.use(this.auth.getNamespace(), this.auth.getDatabase()));
     }
 
     /**
@@ -79,7 +552,7 @@ public class SurrealDBConnection {
      * @return true if the server is running, false otherwise
      */
     public boolean getStatus() {
-        HttpResponse<String> response = GET("/status");
+        HttpResponse<String> response = await(GET("/status"));
         return response.statusCode() == 200;
     }
 
@@ -88,7 +561,7 @@ public class SurrealDBConnection {
      * @return true if the server is healthy, false otherwise
      */
     public boolean getHealth() {
-        HttpResponse<String> response = GET("/health");
+        HttpResponse<String> response = await(GET("/health"));
         return response.statusCode() == 200;
     }
 
@@ -97,7 +570,7 @@ public class SurrealDBConnection {
      * @return version of the server
      */
     public String getVersion() {
-        HttpResponse<String> response = GET("/version");
+        HttpResponse<String> response = await(GET("/version"));
         return response.body();
     }
 
@@ -106,30 +579,32 @@ public class SurrealDBConnection {
      * @param user username
      * @param pass password
      * @return true if the sign in was successful, false otherwise
+     * @throws UnsupportedOperationException on a session, whose namespace, database and credentials are fixed
      */
     public boolean signin(String user, String pass) {
+        this.auth.checkChangeable();
         JSONObject data = new JSONObject();
 
-        if(this.namespace != null)
-            data.put("ns", this.namespace);
+        if(this.auth.getNamespace() != null)
+            data.put("ns", this.auth.getNamespace());
 
-        if(this.database != null)
-            data.put("db", this.database);
+        if(this.auth.getDatabase() != null)
+            data.put("db", this.auth.getDatabase());
 
         data.put("user", user);
         data.put("pass", pass);
 
-        HttpResponse<String> response = POST("/signin", data.toString());
-        if(response.body().equals("There was a problem with authentication"))
+        String response = await(execute("POST", "/signin", data.toString()));
+        if(response.equals("There was a problem with authentication"))
             return false;
 
-        JSONObject responseJson = new JSONObject(response.body());
+        JSONObject responseJson = new JSONObject(response);
         if(responseJson.getInt("code") != 200)
             return false;
         if(!responseJson.has("token"))
             return false;
 
-        this.token = responseJson.getString("token");
+        this.auth.setToken(responseJson.getString("token"));
         return true;
     }
 
@@ -138,26 +613,28 @@ public class SurrealDBConnection {
      * @param scope scope to use
      * @param args arguments for the scope
      * @return true if the sign in was successful, false otherwise
+     * @throws UnsupportedOperationException on a session, whose namespace, database and credentials are fixed
      */
     public boolean signin(String scope, Map<String, String> args) {
-        if(this.namespace == null || this.database == null){
+        this.auth.checkChangeable();
+        if(this.auth.getNamespace() == null || this.auth.getDatabase() == null){
             System.err.println("namespace or database not defined");
             return false;
         }
 
         JSONObject data = new JSONObject();
-        data.put("ns", this.namespace);
-        data.put("db", this.database);
+        data.put("ns", this.auth.getNamespace());
+        data.put("db", this.auth.getDatabase());
         data.put("sc", scope);
         args.entrySet().stream().forEach(arg -> data.put(arg.getKey(), arg.getValue()));
 
-        JSONObject response = new JSONObject(POST("/signin", data.toString()).body());
+        JSONObject response = new JSONObject(await(execute("POST", "/signin", data.toString())));
         if(response.getInt("code") != 200)
             return false;
         if(!response.has("token")) 
             return false;
 
-        this.token = response.getString("token");
+        this.auth.setToken(response.getString("token"));
         return true;
     }
 
@@ -166,26 +643,28 @@ public class SurrealDBConnection {
      * @param scope scope to use
      * @param args  arguments for the scope
      * @return  true if the sign up was successful, false otherwise
+     * @throws UnsupportedOperationException on a session, whose namespace, database and credentials are fixed
      */
     public boolean signup(String scope, Map<String, String> args) {
-        if(this.namespace == null || this.database == null){
+        this.auth.checkChangeable();
+        if(this.auth.getNamespace() == null || this.auth.getDatabase() == null){
             System.err.println("namespace or database not defined");
             return false;
         }
 
         JSONObject data = new JSONObject();
-        data.put("ns", this.namespace);
-        data.put("db", this.database);
+        data.put("ns", this.auth.getNamespace());
+        data.put("db", this.auth.getDatabase());
         data.put("sc", scope);
         args.entrySet().stream().forEach(arg -> data.put(arg.getKey(), arg.getValue()));
 
-        JSONObject response = new JSONObject(POST("/signup", data.toString()).body());
+        JSONObject response = new JSONObject(await(execute("POST", "/signup", data.toString())));
         if(response.getInt("code") != 200)
             return false;
         if(!response.has("token")) 
             return false;
 
-        this.token = response.getString("token");
+        this.auth.setToken(response.getString("token"));
         return true;
     }
     
@@ -197,12 +676,19 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> QueryResult<T> select(Class<T> type, String thing){
-        HttpResponse<String> response = GET("/key/"+thing);
-
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(selectAsync(type, thing));
+    }
 
-        return QueryResult.parseArray(type, response.body()).get(0);
+    /**
+     * Select data from the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param thing name of the table to select from
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<QueryResult<T>> selectAsync(Class<T> type, String thing){
+        return this.<T>execute("GET", "/key/"+thing, null, type)
+            .thenApply(result -> result.get(0));
     }
 
     /**
@@ -214,12 +700,67 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> QueryResult<T> select(Class<T> type, String table, String id){
-        HttpResponse<String> response = GET("/key/"+table+"/"+id);
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(selectAsync(type, table, id));
+    }
+
+    /**
+     * Select data from the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param table name of the table to select from
+     * @param id id of the data to select
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<QueryResult<T>> selectAsync(Class<T> type, String table, String id){
+        return this.<T>execute("GET", "/key/"+table+"/"+id, null, type)
+            .thenApply(result -> result.get(0));
+    }
+
+    /**
+     * Select data from the SurrealDB server as a lazy stream.
+     * The rows are decoded one at a time while the response is read, the result is never held in memory as a whole.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param thing name of the table to select from
+     * @return stream of the selected rows
+     */
+    public <T> Stream<T> selectStream(Class<T> type, String thing){
+        return QueryResultReader.stream(this.codec, type, await(executeStream("GET", "/key/"+thing, null)));
+    }
+
+    /**
+     * Scan all records of a table as a lazy stream.
+     * The records are selected page by page, ordered by id, each page starting after the last id of the previous one.
+     * The next page is requested in the background while the current one is consumed.
+     * The stream should be closed if it is not consumed completely, which cancels the request of the next page.
+     * @param <T> type of the data
+     * @param table name of the table to scan
+     * @param type class of the data
+     * @param pageSize number of records per page
+     * @return stream of all records of the table
+     */
+    public <T extends Identifiable> Stream<T> scan(String table, Class<T> type, int pageSize){
+        return scan(new KeysetIterator<>(table, pageSize, null, Identifiable::getId, query -> this.<T>execute(metered(Operation.SCAN, table), "POST", "/sql", query, type)
+            .thenApply(result -> result.get(0).getResult())));
+    }
+
+    /**
+     * Scan the records of a table as a lazy stream of JSON objects, like {@link #scan(String, Class, int)},
+     * starting after the specified record. This allows to continue a scan that was interrupted.
+     * @param table name of the table to scan
+     * @param pageSize number of records per page
+     * @param startAfter id of the record to start after, e.g. <code>person:tobie</code>, or null to start at the first record
+     * @return stream of the records of the table
+     */
+    public Stream<JsonObject> scan(String table, int pageSize, String startAfter){
+        return scan(new KeysetIterator<>(table, pageSize, startAfter, record -> record.get("id").getAsString(), query -> this.<JsonObject>execute(metered(Operation.SCAN, table), "POST", "/sql", query, JsonObject.class)
+            .thenApply(result -> result.get(0).getResult())));
+    }
 
-        return QueryResult.parseArray(type, response.body()).get(0);
+    private <T> Stream<T> scan(KeysetIterator<T> records) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(records, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(records::close);
     }
 
     /**
@@ -230,12 +771,21 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> create(String table, T data){
-        HttpResponse<String> response = POST("/key/"+table, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(createAsync(table, data));
+    }
 
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+    /**
+     * Create data in the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to create data in
+     * @param data data to create
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> createAsync(String table, T data){
+        WriteBatcher batcher = this.writeBatcher;
+        if(batcher != null)
+            return batcher.submit("CREATE type::table("+this.codec.toJson(table)+") CONTENT "+this.codec.toJson(data), data.getClass());
+        return executeEncoded("POST", "/key/"+table, data, (Type) data.getClass());
     }
 
     /**
@@ -247,12 +797,75 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> create(String table, String id, T data){
-        HttpResponse<String> response = POST("/key/"+table+"/"+id, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(createAsync(table, id, data));
+    }
+
+    /**
+     * Create data in the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to create data in
+     * @param id id of the data to create
+     * @param data data to create
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> createAsync(String table, String id, T data){
+        WriteBatcher batcher = this.writeBatcher;
+        if(batcher != null)
+            return batcher.submit("CREATE type::thing("+this.codec.toJson(table)+", "+this.codec.toJson(id)+") CONTENT "+this.codec.toJson(data), data.getClass());
+        return executeEncoded("POST", "/key/"+table+"/"+id, data, (Type) data.getClass());
+    }
+
+    /**
+     * Insert many records into the SurrealDB server.
+     * The records are split into chunks, each sent as a single <code>INSERT INTO table [...]</code> statement.
+     * Up to {@link #setInsertConcurrency(int) insertConcurrency} chunks are sent in parallel.
+     * @param <T> type of the data
+     * @param table name of the table to insert the data into
+     * @param data records to insert
+     * @return inserted records, in the same order as the input
+     * @throws SurrealException if a chunk could not be inserted
+     */
+    public <T> List<T> insert(String table, List<T> data){
+        return await(insertAsync(table, data));
+    }
+
+    /**
+     * Insert many records into the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to insert the data into
+     * @param data records to insert
+     * @return future completing with the inserted records, in the same order as the input
+     * @see #insert(String, List)
+     */
+    public <T> CompletableFuture<List<T>> insertAsync(String table, List<T> data){
+        return insertChunks(table, data, false);
+    }
 
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+    /**
+     * Insert many records into the SurrealDB server, replacing the fields of records that already exist.
+     * The records are sent in chunks like with {@link #insert(String, List)},
+     * using <code>INSERT INTO table [...] ON DUPLICATE KEY UPDATE</code>.
+     * @param <T> type of the data
+     * @param table name of the table to insert the data into
+     * @param data records to insert or update
+     * @return inserted or updated records, in the same order as the input
+     * @throws SurrealException if a chunk could not be inserted
+     */
+    public <T> List<T> upsert(String table, List<T> data){
+        return await(upsertAsync(table, data));
+    }
+
+    /**
+     * Insert many records into the SurrealDB server, replacing the fields of records that already exist,
+     * without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to insert the data into
+     * @param data records to insert or update
+     * @return future completing with the inserted or updated records, in the same order as the input
+     * @see #upsert(String, List)
+     */
+    public <T> CompletableFuture<List<T>> upsertAsync(String table, List<T> data){
+        return insertChunks(table, data, true);
     }
 
     /**
@@ -263,12 +876,18 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> update(String table, T data){
-        HttpResponse<String> response = PUT("/key/"+table, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
-        
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+        return await(updateAsync(table, data));
+    }
+
+    /**
+     * Update data in the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to update data in
+     * @param data data to update
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> updateAsync(String table, T data){
+        return executeEncoded("PUT", "/key/"+table, data, (Type) data.getClass());
     }
 
     /**
@@ -280,12 +899,19 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> update(String table, String id, T data){
-        HttpResponse<String> response = PUT("/key/"+table+"/"+id, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(updateAsync(table, id, data));
+    }
 
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+    /**
+     * Update data in the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param table name of the table to update data in
+     * @param id id of the data to update
+     * @param data data to update
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> updateAsync(String table, String id, T data){
+        return executeEncoded("PUT", "/key/"+table+"/"+id, data, (Type) data.getClass());
     }
 
     /**
@@ -296,12 +922,22 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> merge(String table, Object data){
-        HttpResponse<String> response = PATCH("/key/"+table, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(mergeAsync(table, data));
+    }
 
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+    /**
+     * Merge data in the SurrealDB server without blocking the calling thread.
+     * This updates all records of a table with the data provided.
+     * @param <T> type of the data
+     * @param table name of the table to merge data in
+     * @param data data to merge
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> mergeAsync(String table, Object data){
+        WriteBatcher batcher = this.writeBatcher;
+        if(batcher != null)
+            return batcher.submit("UPDATE type::table("+this.codec.toJson(table)+") MERGE "+this.codec.toJson(data), data.getClass());
+        return executeEncoded("PATCH", "/key/"+table, data, (Type) data.getClass());
     }
 
     /**
@@ -313,12 +949,23 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> merge(String table, String id, Object data){
-        HttpResponse<String> response = PATCH("/key/"+table+"/"+id, new Gson().toJson(data));
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(mergeAsync(table, id, data));
+    }
 
-        return QueryResult.parseArray((Type) data.getClass(), response.body());
+    /**
+     * Merge data in the SurrealDB server without blocking the calling thread.
+     * This updates a single record of a table with the data provided.
+     * @param <T> type of the data
+     * @param table name of the table to merge data in
+     * @param id id of the data to merge
+     * @param data data to merge
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> mergeAsync(String table, String id, Object data){
+        WriteBatcher batcher = this.writeBatcher;
+        if(batcher != null)
+            return batcher.submit("UPDATE type::thing("+this.codec.toJson(table)+", "+this.codec.toJson(id)+") MERGE "+this.codec.toJson(data), data.getClass());
+        return executeEncoded("PATCH", "/key/"+table+"/"+id, data, (Type) data.getClass());
     }
 
     /**
@@ -329,12 +976,18 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> delete(Class<T> type, String table){
-        HttpResponse<String> response = DELETE("/key/"+table);
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(deleteAsync(type, table));
+    }
 
-        return QueryResult.parseArray(type, response.body());
+    /**
+     * Delete all data in a table from the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param table name of the table to delete data from
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> deleteAsync(Class<T> type, String table){
+        return execute("DELETE", "/key/"+table, null, type);
     }
 
     /**
@@ -346,12 +999,19 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> delete(Class<T> type, String table, String id){
-        HttpResponse<String> response = DELETE("/key/"+table+"/"+id);
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(deleteAsync(type, table, id));
+    }
 
-        return QueryResult.parseArray(type, response.body());
+    /**
+     * Delete a record from the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param table name of the table to delete data from
+     * @param id id of the data to delete
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> deleteAsync(Class<T> type, String table, String id){
+        return execute("DELETE", "/key/"+table+"/"+id, null, type);
     }
 
     /**
@@ -362,12 +1022,18 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> query(Class<T> type, String query){
-        HttpResponse<String> response = POST("/sql", query);
-        
-        if(response.body().equals("There was a problem with authentication"))
-            throw new AuthenticationException(response.body());
+        return await(queryAsync(type, query));
+    }
 
-        return QueryResult.parseArray(type, response.body());
+    /**
+     * Query the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param query query to perform
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> queryAsync(Class<T> type, String query){
+        return execute("POST", "/sql", query, type);
     }
 
     /**
@@ -378,96 +1044,958 @@ public class SurrealDBConnection {
      * @return query result
      */
     public <T> List<QueryResult<T>> query(Class<T> type, Query query){
-        return query(type, query.toString());
+        return await(queryAsync(type, query));
+    }
+
+    /**
+     * Query the SurrealDB server without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param query query to perform
+     * @return future completing with the query result
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> queryAsync(Class<T> type, Query query){
+        // sessions are signed in on their own, so they may not be allowed to see the cached records
+        QueryCache cache = this.auth == this.cacheOwner.auth ? this.cacheOwner.queryCache : null;
+        if(cache != null && query instanceof SelectQuery select && select.getTable() != null)
+            return cached(cache, type, select);
+        return queryAsync(type, query.toString());
+    }
+
+    /**
+     * Query the SurrealDB server with a compiled query.
+     * The query text is sent unchanged, the bindings are sent as query variables.
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param template compiled query to perform
+     * @param bindings values of the parameters of the query, overriding the defaults of the template
+     * @return query result
+     * @throws IllegalArgumentException if a binding does not belong to a parameter of the query,
+     *  or a parameter is left unbound
+     */
+    public <T> List<QueryResult<T>> query(Class<T> type, QueryTemplate template, Map<String, ?> bindings){
+        return await(queryAsync(type, template, bindings));
+    }
+
+    /**
+     * Query the SurrealDB server with a compiled query without blocking the calling thread
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param template compiled query to perform
+     * @param bindings values of the parameters of the query, overriding the defaults of the template
+     * @return future completing with the query result
+     * @throws IllegalArgumentException if a binding does not belong to a parameter of the query,
+     *  or a parameter is left unbound
+     */
+    public <T> CompletableFuture<List<QueryResult<T>>> queryAsync(Class<T> type, QueryTemplate template, Map<String, ?> bindings){
+        return execute("POST", sqlEndpoint(template.bind(bindings)), template.getText(), type);
+    }
+
+    /**
+     * Query the SurrealDB server and stream the rows of the first statement.
+     * The rows are decoded one at a time while the response is read, the result is never held in memory as a whole.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param query query to perform
+     * @return stream of the rows returned by the first statement
+     */
+    public <T> Stream<T> queryStream(Class<T> type, String query){
+        return QueryResultReader.stream(this.codec, type, await(executeStream("POST", "/sql", query)));
+    }
+
+    /**
+     * Query the SurrealDB server and stream the rows of the first statement.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param query query to perform
+     * @return stream of the rows returned by the first statement
+     */
+    public <T> Stream<T> queryStream(Class<T> type, Query query){
+        return queryStream(type, query.toString());
+    }
+
+    /**
+     * Query the SurrealDB server with a compiled query and stream the rows of the first statement.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @param <T> type of the data
+     * @param type class of the data
+     * @param template compiled query to perform
+     * @param bindings values of the parameters of the query, overriding the defaults of the template
+     * @return stream of the rows returned by the first statement
+     */
+    public <T> Stream<T> queryStream(Class<T> type, QueryTemplate template, Map<String, ?> bindings){
+        return QueryResultReader.stream(this.codec, type, await(executeStream("POST", sqlEndpoint(template.bind(bindings)), template.getText())));
+    }
+
+    /**
+     * Query the SurrealDB server and read fields of the rows of the first statement into primitive columns.
+     * The fields are decoded while the response is read, without an object or boxed value per row,
+     * which makes aggregating large results on the client cheap.
+     * @param columns fields to read and the types of their columns
+     * @param query query to perform
+     * @return columns of the rows returned by the first statement
+     * @throws SurrealException if the query failed or a value does not fit the type of its column
+     */
+    public ColumnarResult queryColumns(Columns columns, String query){
+        return ColumnarResult.read(this.codec, columns, await(executeStream("POST", "/sql", query)));
+    }
+
+    /**
+     * Query the SurrealDB server and read fields of the rows of the first statement into primitive columns.
+     * @param columns fields to read and the types of their columns
+     * @param query query to perform
+     * @return columns of the rows returned by the first statement
+     * @throws SurrealException if the query failed or a value does not fit the type of its column
+     * @see #queryColumns(Columns, String)
+     */
+    public ColumnarResult queryColumns(Columns columns, Query query){
+        return queryColumns(columns, query.toString());
+    }
+
+    /**
+     * Query the SurrealDB server with a compiled query and read fields of the rows of the first statement into primitive columns.
+     * @param columns fields to read and the types of their columns
+     * @param template compiled query to perform
+     * @param bindings values of the parameters of the query, overriding the defaults of the template
+     * @return columns of the rows returned by the first statement
+     * @throws SurrealException if the query failed or a value does not fit the type of its column
+     * @see #queryColumns(Columns, String)
+     */
+    public ColumnarResult queryColumns(Columns columns, QueryTemplate template, Map<String, ?> bindings){
+        return ColumnarResult.read(this.codec, columns, await(executeStream("POST", sqlEndpoint(template.bind(bindings)), template.getText())));
+    }
+
+    /**
+     * Subscribe to the changes of the records matching a query.
+     * Every subscriber issues its own <code>LIVE SELECT</code> and is notified of every record created, updated or deleted
+     * afterwards; cancelling the subscription kills the live query.<br />
+     * <p>
+     * Live queries need the RPC protocol. If the connection was not opened with a WebSocket URI,
+     * an RPC connection to the same server is opened with the first subscription, taking over the token,
+     * namespace and database the connection uses at that time.
+     * </p>
+     * <p>
+     * The server pushes notifications regardless of the demand of the subscriber, so up to 1024 notifications are buffered
+     * per subscriber. A subscriber falling further behind fails with a {@link SurrealException}.
+     * Notifications are delivered on the thread reading the socket, so <code>onNext</code> must not block.
+     * </p>
+     * Live queries do not support ORDER BY, LIMIT or START.
+     * @param <T> type of the data
+     * @param query query selecting the records to watch
+     * @param type class of the data
+     * @return publisher of the notifications of the live query
+     */
+    public <T> Flow.Publisher<LiveNotification<T>> live(SelectQuery query, Class<T> type){
+        return live(query, type, 1024);
+    }
+
+    /**
+     * Subscribe to the changes of the records matching a query
+     * @param <T> type of the data
+     * @param query query selecting the records to watch
+     * @param type class of the data
+     * @param bufferSize number of notifications buffered per subscriber
+     * @return publisher of the notifications of the live query
+     * @see #live(SelectQuery, Class)
+     */
+    public <T> Flow.Publisher<LiveNotification<T>> live(SelectQuery query, Class<T> type, int bufferSize){
+        return new LivePublisher<>(this::liveClient, "LIVE "+query, this.codec, type, bufferSize);
+    }
+
+    /**
+     * Close the RPC connection to the SurrealDB server, if the connection was opened with a WebSocket URI,
+     * and stop the background health checks.
+     * Has no effect on a view created with {@link #withDeadline(Duration)}.
+     * Closing a {@link #session(String, String, Credentials) session} only closes the socket of its live queries.
+     */
+    public void close() {
+        if(this.root != this)
+            return;
+        synchronized(this) {
+            if(this.liveClient != null)
+                this.liveClient.thenAccept(RpcClient::close);
+        }
+        if(!this.ownsTransport)
+            return;
+        if(this.rpc != null)
+            this.rpc.getClient().close();
+        this.nodes.close();
+    }
+
+    /**
+     * Returns the RPC client live queries are issued on, opening one if the connection uses HTTP.
+     * A client that failed to connect is replaced with the next live query.
+     */
+    private synchronized CompletableFuture<RpcClient> liveClient() {
+        if(this.root != this)
+            return this.root.liveClient();
+        if(this.rpc != null)
+            return CompletableFuture.completedFuture(this.rpc.getClient());
+        if(this.liveClient == null || this.liveClient.isCompletedExceptionally()) {
+            NodePool.Node node = this.nodes.acquire();
+            this.nodes.release(node, null, null);
+            URI uri = URI.create(node.getURI().toString().replaceFirst("^http", "ws")+"/rpc");
+            String namespace = this.auth.getNamespace(), database = this.auth.getDatabase();
+            this.liveClient = this.auth.token().thenCompose(token -> RpcClient.connect(this.client, uri).thenCompose(client -> {
+                CompletableFuture<?> authenticated = token == null
+                    ? CompletableFuture.completedFuture(null)
+                    : client.call("authenticate", new JsonPrimitive(token));
+                return authenticated
+                    .thenCompose(result -> new RpcTransport(client).use(namespace, database))
+                    .whenComplete((result, error) -> {
+                        if(error != null)
+                            client.close();
+                    })
+                    .thenApply(result -> client);
+            }));
+        }
+        return this.liveClient;
+    }
+
+    /**
+     * Sends the chunks of a bulk insert, starting the next chunk whenever one completes
+     * so that no more than insertConcurrency statements are in flight at once.
+     */
+    private <T> CompletableFuture<List<T>> insertChunks(String table, List<T> data, boolean upsert) {
+        if(data.isEmpty())
+            return CompletableFuture.completedFuture(List.of());
+
+        int chunkSize = this.insertChunkSize;
+        int chunkCount = (data.size() + chunkSize - 1) / chunkSize;
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>(chunkCount);
+        for(int i = 0; i < chunkCount; i++)
+            chunks.add(new CompletableFuture<>());
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Runnable sendNext = new Runnable() {
+            @Override
+            public void run() {
+                int chunk = nextChunk.getAndIncrement();
+                while(chunk < chunkCount && failed.get()) {
+                    chunks.get(chunk).cancel(false);
+                    chunk = nextChunk.getAndIncrement();
+                }
+                if(chunk >= chunkCount)
+                    return;
+                List<T> records = data.subList(chunk * chunkSize, Math.min(data.size(), (chunk + 1) * chunkSize));
+                CompletableFuture<List<T>> result;
+                try {
+                    result = insertChunk(table, records, upsert);
+                } catch (RuntimeException e) {
+                    result = CompletableFuture.failedFuture(e);
+                }
+                CompletableFuture<List<T>> future = chunks.get(chunk);
+                result.whenComplete((inserted, error) -> {
+                    if(error != null) {
+                        failed.set(true);
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(inserted);
+                    }
+                    run();
+                });
+            }
+        };
+        for(int i = 0; i < Math.min(this.insertConcurrency, chunkCount); i++)
+            sendNext.run();
+
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+            .thenApply(done -> {
+                List<T> inserted = new ArrayList<>(data.size());
+                chunks.forEach(chunk -> inserted.addAll(chunk.join()));
+                return inserted;
+            });
+    }
+
+    private <T> CompletableFuture<List<T>> insertChunk(String table, List<T> records, boolean upsert) {
+        StringBuilder statement = new StringBuilder("INSERT INTO ").append(table).append(" [");
+        Set<String> fields = new LinkedHashSet<>();
+        for(int i = 0; i < records.size(); i++) {
+            if(i > 0)
+                statement.append(", ");
+            if(upsert) {
+                JsonObject record = this.codec.getGson().toJsonTree(records.get(i)).getAsJsonObject();
+                fields.addAll(record.keySet());
+                statement.append(record);
+            } else {
+                statement.append(this.codec.toJson(records.get(i)));
+            }
+        }
+        statement.append("]");
+
+        fields.remove("id");
+        if(upsert && !fields.isEmpty()) {
+            statement.append(" ON DUPLICATE KEY UPDATE ");
+            statement.append(fields.stream().map(field -> field+" = $input."+field).collect(Collectors.joining(", ")));
+        }
+
+        Type type = records.get(0).getClass();
+        return this.<T>execute(metered(Operation.INSERT, table), "POST", "/sql", statement.toString(), type)
+            .thenApply(result -> result.get(0).getResult());
+    }
+
+    /**
+     * Answers a select query from the query cache, or sends it and caches the response
+     * @return future completing with the decoded response
+     */
+    private <T> CompletableFuture<List<QueryResult<T>>> cached(QueryCache cache, Type type, SelectQuery query) {
+        String text = query.toString();
+        String key = this.auth.getNamespace()+"/"+this.auth.getDatabase()+"/"+QueryCache.normalize(text);
+        MetricsListener listener = this.metricsListener;
+        String body = cache.getIfPresent(key);
+        if(listener != null)
+            MeteredRequest.report(() -> listener.onQueryCache(body != null));
+        Function<String, List<QueryResult<T>>> decoder = response -> QueryResult.parseArray(this.codec, type, response);
+        if(body != null)
+            return CompletableFuture.completedFuture(body).thenApply(decoder);
+        if(listener == null)
+            return cache.load(key, query.getTable(), () -> execute("POST", "/sql", text), decoder);
+        MeteredRequest request = new MeteredRequest(listener, Operation.QUERY, null);
+        request.setRequestBytes(MeteredRequest.utf8Length(text));
+        return cache.load(key, query.getTable(), () -> request.trackBody(() -> execute("POST", "/sql", text)), decoder);
     }
 
-    private HttpResponse<String> GET(String endpoint) {
+    /**
+     * Removes the cached responses of the tables a request writes to, both when it is sent and once it completed
+     * @return the request
+     */
+    private <R> CompletableFuture<R> invalidating(String method, String endpoint, String data, Supplier<CompletableFuture<R>> request) {
+        QueryCache cache = this.cacheOwner.queryCache;
+        if(cache == null || method.equals("GET"))
+            return request.get();
+        Set<String> tables;
+        if(endpoint.startsWith("/key/"))
+            tables = Set.of(Operation.table(endpoint));
+        else if(endpoint.startsWith("/sql"))
+            tables = QueryCache.writtenTables(data);
+        else
+            tables = null;
+        if(tables != null && tables.isEmpty())
+            return request.get();
+        Runnable invalidate = () -> {
+            if(tables == null)
+                cache.invalidateAll();
+            else
+                tables.forEach(cache::invalidate);
+        };
+        invalidate.run();
+        CompletableFuture<R> sent;
         try {
-            return this.client.send(
-                createRequest(endpoint).GET().build(),
-                HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return null;
+            sent = request.get();
+        } catch (RuntimeException e) {
+            invalidate.run();
+            throw e;
         }
+        sent.whenComplete((result, error) -> invalidate.run());
+        return sent;
+    }
+
+    /**
+     * Executes a request over the RPC connection if there is one, over HTTP otherwise
+     * @return future completing with the body of the response
+     */
+    private CompletableFuture<String> execute(String method, String endpoint, String data) {
+        Hedging hedging = this.hedging;
+        if(hedging != null && this.rpc == null && method.equals("GET"))
+            return withinDeadline(endpoint, hedging.send(() -> request(method, endpoint, data)));
+        return withinDeadline(endpoint, request(method, endpoint, data));
+    }
+
+    private CompletableFuture<String> request(String method, String endpoint, String data) {
+        CompletableFuture<String> body = invalidating(method, endpoint, data, () -> {
+            if(this.rpc != null)
+                return this.rpc.execute(method, endpoint, data);
+            CompletableFuture<HttpResponse<String>> response = send(method, endpoint, data, Compression.ofString());
+            return cancelling(response.thenApply(HttpResponse::body), response);
+        });
+        if(endpoint.startsWith("/sign"))
+            return body;
+        return cancelling(body.thenApply(this::checkAuthentication), body);
+    }
+
+    /**
+     * Fails a request with a {@link DeadlineExceededException} and cancels it, once the deadline of this connection has passed
+     */
+    private <R> CompletableFuture<R> withinDeadline(String endpoint, CompletableFuture<R> request) {
+        Duration deadline = this.deadline;
+        if(deadline == null)
+            return request;
+        // the request itself was sent with the deadline as its timeout, unless the request timeout is shorter
+        boolean timedOutByDeadline = this.requestTimeout == null || deadline.compareTo(this.requestTimeout) <= 0;
+        request.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        return cancelling(request.handle((result, error) -> {
+            if(error == null)
+                return result;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if(cause instanceof TimeoutException || (timedOutByDeadline && cause instanceof HttpTimeoutException && !(cause instanceof HttpConnectTimeoutException)))
+                throw new DeadlineExceededException("The request to "+endpoint+" was not answered within "+deadline, cause);
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        }), request);
+    }
+
+    /**
+     * Cancels the source of a future once the future is cancelled or times out,
+     * so that dropping a request also aborts its exchange with the server
+     * @return the dependent future
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, Future<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if(error instanceof CancellationException || error instanceof TimeoutException)
+                source.cancel(true);
+        });
+        return dependent;
+    }
+
+    /**
+     * Executes a request and decodes the response, measuring it if a metrics listener is set
+     * @return future completing with the decoded response
+     */
+    private <T> CompletableFuture<List<QueryResult<T>>> execute(String method, String endpoint, String data, Type type) {
+        MetricsListener listener = this.metricsListener;
+        if(listener == null)
+            return execute(method, endpoint, data).thenApply(body -> QueryResult.parseArray(this.codec, type, body));
+        return execute(new MeteredRequest(listener, Operation.of(method, endpoint), Operation.table(endpoint)), method, endpoint, data, type);
+    }
+
+    /**
+     * Executes a request and decodes the response, measuring it as the specified operation
+     * @param request measurement of the request, or null if no metrics listener is set
+     * @return future completing with the decoded response
+     */
+    private <T> CompletableFuture<List<QueryResult<T>>> execute(MeteredRequest request, String method, String endpoint, String data, Type type) {
+        if(request == null)
+            return execute(method, endpoint, data).thenApply(body -> QueryResult.parseArray(this.codec, type, body));
+        request.setRequestBytes(MeteredRequest.utf8Length(data));
+        return request.track(() -> execute(method, endpoint, data), body -> QueryResult.parseArray(this.codec, type, body));
+    }
+
+    /**
+     * Executes a request with an entity as its body and decodes the response, measuring it if a metrics listener is set
+     * @return future completing with the decoded response
+     * @see #encodeAndExecute(String, String, Object, MeteredRequest)
+     */
+    private <T> CompletableFuture<List<QueryResult<T>>> executeEncoded(String method, String endpoint, Object data, Type type) {
+        MetricsListener listener = this.metricsListener;
+        if(listener == null)
+            return encodeAndExecute(method, endpoint, data, null).thenApply(body -> QueryResult.parseArray(this.codec, type, body));
+        MeteredRequest request = new MeteredRequest(listener, Operation.of(method, endpoint), Operation.table(endpoint));
+        return request.track(() -> encodeAndExecute(method, endpoint, data, request), body -> QueryResult.parseArray(this.codec, type, body));
+    }
+
+    /**
+     * Creates the measurement of a request if a metrics listener is set
+     * @return the measurement, or null if no metrics listener is set
+     */
+    private MeteredRequest metered(Operation operation, String table) {
+        MetricsListener listener = this.metricsListener;
+        return listener == null ? null : new MeteredRequest(listener, operation, table);
     }
 
-    private HttpResponse<String> POST(String endpoint, String data){
+    /**
+     * Executes a request with an entity as its body.
+     * Over HTTP the entity is encoded straight into pooled buffers, which are published as the request body
+     * without copying them into a string first, and returned to the pool once the response has arrived.
+     * @param request measurement of the request to report the size of the body to, or null
+     * @return future completing with the body of the response
+     */
+    private CompletableFuture<String> encodeAndExecute(String method, String endpoint, Object data, MeteredRequest request) {
+        if(this.rpc != null) {
+            String json = this.codec.toJson(data);
+            if(request != null)
+                request.setRequestBytes(MeteredRequest.utf8Length(json));
+            return withinDeadline(endpoint, request(method, endpoint, json));
+        }
+
+        PooledOutputStream body = this.codec.encode(data, this.bufferPool);
+        if(request != null)
+            request.setRequestBytes(body.size());
+        CompletableFuture<HttpResponse<String>> response;
         try {
-            HttpRequest.Builder request = createRequest(endpoint)
-                .POST(HttpRequest.BodyPublishers.ofString(data));
+            Compression compression = this.compression;
+            HttpRequest.BodyPublisher publisher = compression != null ? compression.body(body) : body.toBodyPublisher();
+            // a compressed body is a copy, so the buffers can be reused right away
+            if(Compression.encoding(publisher) != null)
+                body.release();
+            response = invalidating(method, endpoint, null, () -> send(method, endpoint, publisher, Compression.ofString()));
+        } catch (RuntimeException e) {
+            body.release();
+            throw e;
+        }
+        // a failed request may still be writing the buffers, so they are only reused after a response
+        CompletableFuture<String> result = response
+            .whenComplete((r, error) -> {
+                if(error == null)
+                    body.release();
+            })
+            .thenApply(HttpResponse::body)
+            .thenApply(this::checkAuthentication);
+        return withinDeadline(endpoint, cancelling(result, response));
+    }
 
-            return this.client.send(
-                request.build(),
-                HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return null;
+    /**
+     * Executes a request and hands out the body of the response as it arrives.
+     * Bodies of failed requests are small and read completely to check them for authentication problems.
+     * @return future completing with a reader of the body
+     */
+    private CompletableFuture<Reader> executeStream(String method, String endpoint, String data) {
+        MetricsListener listener = this.metricsListener;
+        if(listener != null) {
+            MeteredRequest request = new MeteredRequest(listener, Operation.of(method, endpoint), Operation.table(endpoint));
+            request.setRequestBytes(MeteredRequest.utf8Length(data));
+            return request.trackStream(() -> openStream(method, endpoint, data));
         }
+        return openStream(method, endpoint, data);
     }
 
-    private HttpResponse<String> PUT(String endpoint, String data){
-        try {
-            HttpRequest.Builder request = createRequest(endpoint)
-                .PUT(HttpRequest.BodyPublishers.ofString(data));
+    private CompletableFuture<Reader> openStream(String method, String endpoint, String data) {
+        if(this.rpc != null)
+            return execute(method, endpoint, data).thenApply(StringReader::new);
+
+        CompletableFuture<HttpResponse<InputStream>> sent = invalidating(method, endpoint, data, () -> send(method, endpoint, data, Compression.ofInputStream()));
+        return withinDeadline(endpoint, cancelling(sent.thenApply(response -> {
+                if(response.statusCode() == 200)
+                    return new InputStreamReader(response.body(), StandardCharsets.UTF_8);
+                try (InputStream in = response.body()) {
+                    return new StringReader(checkAuthentication(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }), sent));
+    }
 
-            return this.client.send(
-                request.build(),
-                HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return null;
+    /**
+     * The <code>/sql</code> endpoint with the variables of the query as URL parameters.
+     * SurrealDB parses the value of every parameter as JSON.
+     */
+    private String sqlEndpoint(Map<String, Object> variables) {
+        if(variables.isEmpty())
+            return "/sql";
+        StringBuilder endpoint = new StringBuilder("/sql");
+        char separator = '?';
+        for(Map.Entry<String, Object> variable : variables.entrySet()) {
+            endpoint.append(separator)
+                .append(URLEncoder.encode(variable.getKey(), StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(this.codec.toJson(variable.getValue()), StandardCharsets.UTF_8));
+            separator = '&';
         }
+        return endpoint.toString();
     }
 
-    private HttpResponse<String> PATCH(String endpoint, String data){
-        try {
-            HttpRequest.Builder request = createRequest(endpoint)
-                .method("PATCH", HttpRequest.BodyPublishers.ofString(data));
+    private HttpRequest.BodyPublisher bodyPublisher(String data) {
+        if(data == null)
+            return HttpRequest.BodyPublishers.noBody();
+        Compression compression = this.compression;
+        return compression != null
+            ? compression.body(data)
+            : HttpRequest.BodyPublishers.ofString(data);
+    }
+
+    private CompletableFuture<HttpResponse<String>> GET(String endpoint) {
+        return send("GET", endpoint, HttpRequest.BodyPublishers.noBody(), Compression.ofString());
+    }
+
+    /**
+     * Sends a request over HTTP to the node picked by the node pool
+     */
+    private <B> CompletableFuture<HttpResponse<B>> send(String method, String endpoint, String data, HttpResponse.BodyHandler<B> bodyHandler) {
+        return send(method, endpoint, bodyPublisher(data), bodyHandler);
+    }
+
+    private <B> CompletableFuture<HttpResponse<B>> send(String method, String endpoint, HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<B> bodyHandler) {
+        return send(method, endpoint, body, bodyHandler, this.auth.token());
+    }
+
+    /**
+     * Sends a request with the token it is authenticated with, once the token is available
+     */
+    private <B> CompletableFuture<HttpResponse<B>> send(String method, String endpoint, HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<B> bodyHandler, CompletableFuture<String> token) {
+        if(token.isDone() && !token.isCompletedExceptionally())
+            return sendLimited(method, endpoint, body, bodyHandler, token.join());
+        return token.thenCompose(jwt -> sendLimited(method, endpoint, body, bodyHandler, jwt));
+    }
+
+    private <B> CompletableFuture<HttpResponse<B>> sendLimited(String method, String endpoint, HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<B> bodyHandler, String token) {
+        ConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if(limiter == null)
+            return sendNow(method, endpoint, body, bodyHandler, token);
+
+        CompletableFuture<ConcurrencyLimiter.Permit> acquired = limiter.acquire();
+        reportConcurrency(limiter);
+        CompletableFuture<HttpResponse<B>> result = new CompletableFuture<>();
+        // a stage of its own, which hands the permit back even if the caller cancelled the request meanwhile
+        acquired.whenComplete((permit, error) -> {
+            if(error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            if(result.isDone()) {
+                permit.release();
+                return;
+            }
+            CompletableFuture<HttpResponse<B>> sent;
+            try {
+                sent = sendNow(method, endpoint, body, bodyHandler, token);
+            } catch (RuntimeException e) {
+                permit.release();
+                result.completeExceptionally(e);
+                return;
+            }
+            sent.whenComplete((response, failure) -> {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                if(cause instanceof CancellationException)
+                    permit.release();
+                else
+                    permit.release(cause instanceof IOException);
+                reportConcurrency(limiter);
+                if(failure != null)
+                    result.completeExceptionally(failure);
+                else
+                    result.complete(response);
+            });
+            cancelling(result, sent);
+        });
+        return cancelling(result, acquired);
+    }
 
-            return this.client.send(
-                request.build(),
-                HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return null;
+    private <B> CompletableFuture<HttpResponse<B>> sendNow(String method, String endpoint, HttpRequest.BodyPublisher body, HttpResponse.BodyHandler<B> bodyHandler, String token) {
+        NodePool.Node node = this.nodes.acquire();
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = createRequest(node, endpoint, token).method(method, body);
+            String encoding = Compression.encoding(body);
+            if(encoding != null)
+                builder.header("Content-Encoding", encoding);
+            request = builder.build();
+        } catch (RuntimeException e) {
+            this.nodes.release(node, null, null);
+            throw e;
         }
+        CompletableFuture<HttpResponse<B>> sent = this.client.sendAsync(request, bodyHandler);
+        // the node is released by a stage of its own, which still runs when the caller cancels the request
+        CompletableFuture<HttpResponse<B>> released = sent.whenComplete((response, error) -> this.nodes.release(node, response, error));
+        return cancelling(released.copy(), sent);
     }
 
-    private HttpResponse<String> DELETE(String endpoint){
+    private void reportConcurrency(ConcurrencyLimiter limiter) {
+        MetricsListener listener = this.metricsListener;
+        if(listener == null)
+            return;
         try {
-            HttpRequest.Builder request = createRequest(endpoint)
-                .DELETE();
+            listener.onConcurrency(limiter.getLimit(), limiter.getInFlight(), limiter.getQueueDepth());
+        } catch (RuntimeException e) {
+            // a failing listener must not fail the request
+        }
+    }
 
-            return this.client.send(
-                request.build(),
-                HttpResponse.BodyHandlers.ofString()
-            );
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return null;
+    private String checkAuthentication(String body) {
+        if(body.equals("There was a problem with authentication")) {
+            this.auth.rejected();
+            throw new AuthenticationException(body);
         }
+        return body;
     }
 
-    private HttpRequest.Builder createRequest(String endpoint) {
+    /**
+     * Waits for an asynchronous operation to complete, unwrapping the exception it failed with
+     * so that the synchronous API throws the same exceptions as before.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new SurrealException(e.getCause());
+        }
+    }
+
+    private HttpRequest.Builder createRequest(NodePool.Node node, String endpoint, String token) {
         HttpRequest.Builder request = HttpRequest.newBuilder()
-            .uri(URI.create(this.host+endpoint))
+            .uri(URI.create(node.getURI()+endpoint))
             .header("Accept", "application/json");
 
-        if(this.token != null)
-            request.header("Authorization", "Bearer "+this.token);
+        if(this.compression != null)
+            request.header("Accept-Encoding", Compression.ACCEPT_ENCODING);
+
+        Duration timeout = this.requestTimeout;
+        if(this.deadline != null && (timeout == null || this.deadline.compareTo(timeout) < 0))
+            timeout = this.deadline;
+        if(timeout != null)
+            request.timeout(timeout);
 
-        if(this.namespace != null)
-            request.header("ns", this.namespace);
+        if(token != null)
+            request.header("Authorization", "Bearer "+token);
 
-        if(this.database != null)
-            request.header("db", this.database);
+        String namespace = this.auth.getNamespace();
+        if(namespace != null)
+            request.header("ns", namespace);
+
+        String database = this.auth.getDatabase();
+        if(database != null)
+            request.header("db", database);
 
         return request;
     }
 
+    /**
+     * Builder for {@link SurrealDBConnection}s.
+     * <p>
+     * Unless configured otherwise, the connection uses an HTTP client preferring HTTP/2,
+     * which multiplexes concurrent requests over a single connection per server where the server supports it.
+     * Idle connections are kept open and reused by the client.
+     * </p>
+     */
+    public static class Builder {
+
+        private List<URI> hosts = List.of();
+        private Duration healthCheckInterval = Duration.ofSeconds(5);
+        private Codec codec = Codec.getDefault();
+        private BufferPool bufferPool;
+        private HttpClient httpClient;
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+        private Executor executor;
+        private Duration connectTimeout;
+        private Duration requestTimeout;
+        private Integer insertChunkSize;
+        private Integer insertConcurrency;
+        private MetricsListener metricsListener;
+        private ConcurrencyLimiter concurrencyLimiter;
+        private Integer compressionThreshold;
+        private Long queryCacheBytes;
+        private Duration queryCacheTimeToLive;
+        private Double hedgingPercentile;
+        private Duration hedgingMinimumDelay;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the URI of the server
+         * @param host URI of the server, using http, https, ws or wss
+         * @return this builder
+         * @see SurrealDBConnection#SurrealDBConnection(URI)
+         */
+        public Builder host(URI host) {
+            this.hosts = List.of(host);
+            return this;
+        }
+
+        /**
+         * Set the URIs of several servers of a cluster
+         * @param hosts URIs of the servers, using http or https
+         * @return this builder
+         * @see SurrealDBConnection#SurrealDBConnection(List)
+         */
+        public Builder hosts(List<URI> hosts) {
+            this.hosts = List.copyOf(hosts);
+            return this;
+        }
+
+        /**
+         * Set how often the servers are health checked when there is more than one
+         * @param healthCheckInterval time between two health checks, 5 seconds by default
+         * @return this builder
+         */
+        public Builder healthCheckInterval(Duration healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+            return this;
+        }
+
+        /**
+         * Set the codec used to encode and decode data
+         * @param codec codec to use
+         * @return this builder
+         */
+        public Builder codec(Codec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Set the pool of buffers the bodies of create, update and merge requests are encoded into.
+         * By default every connection has its own pool of 64 buffers of 64 KiB.
+         * @param bufferPool pool to use, may be shared by several connections
+         * @return this builder
+         */
+        public Builder bufferPool(BufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * Use an existing HTTP client. The version, executor and connect timeout of this builder are ignored then.
+         * @param httpClient HTTP client to use
+         * @return this builder
+         */
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Set the preferred HTTP version
+         * @param version HTTP version, HTTP/2 by default
+         * @return this builder
+         */
+        public Builder version(HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Set the executor the HTTP client runs its asynchronous tasks on
+         * @param executor executor to use
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Run the asynchronous tasks of the HTTP client on virtual threads
+         * @return this builder
+         */
+        public Builder virtualThreads() {
+            return executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+
+        /**
+         * Set the maximum time to wait for a connection to the server to be established
+         * @param connectTimeout connect timeout
+         * @return this builder
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Set the maximum time to wait for the response to a request
+         * @param requestTimeout timeout applied to every request
+         * @return this builder
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Set the number of records sent in a single <code>INSERT</code> statement
+         * @param insertChunkSize number of records per statement
+         * @return this builder
+         * @see SurrealDBConnection#setInsertChunkSize(int)
+         */
+        public Builder insertChunkSize(int insertChunkSize) {
+            this.insertChunkSize = insertChunkSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of <code>INSERT</code> statements sent in parallel
+         * @param insertConcurrency number of chunks in flight at the same time
+         * @return this builder
+         * @see SurrealDBConnection#setInsertConcurrency(int)
+         */
+        public Builder insertConcurrency(int insertConcurrency) {
+            this.insertConcurrency = insertConcurrency;
+            return this;
+        }
+
+        /**
+         * Set the listener receiving measurements of the requests of the connection
+         * @param metricsListener listener to report to
+         * @return this builder
+         * @see SurrealDBConnection#setMetricsListener(MetricsListener)
+         */
+        public Builder metricsListener(MetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Set the limiter bounding the number of requests the connection has in flight
+         * @param concurrencyLimiter limiter to use
+         * @return this builder
+         * @see SurrealDBConnection#setConcurrencyLimiter(ConcurrencyLimiter)
+         */
+        public Builder concurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * Enable compression of request and response bodies
+         * @param threshold size of a request body in bytes from which it is compressed
+         * @return this builder
+         * @see SurrealDBConnection#enableCompression(int)
+         */
+        public Builder compression(int threshold) {
+            this.compressionThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Enable caching of the responses to select queries
+         * @param maximumBytes maximum estimated memory of the cached responses in bytes
+         * @param timeToLive time after which a cached response is requested again
+         * @return this builder
+         * @see SurrealDBConnection#enableQueryCache(long, Duration)
+         */
+        public Builder queryCache(long maximumBytes, Duration timeToLive) {
+            this.queryCacheBytes = maximumBytes;
+            this.queryCacheTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Enable hedging of reads
+         * @param percentile percentile of the read latencies after which a duplicate is sent
+         * @param minimumDelay time a read is always given before a duplicate is sent
+         * @return this builder
+         * @see SurrealDBConnection#enableHedging(double, Duration)
+         */
+        public Builder hedging(double percentile, Duration minimumDelay) {
+            this.hedgingPercentile = percentile;
+            this.hedgingMinimumDelay = minimumDelay;
+            return this;
+        }
+
+        /**
+         * Create the connection
+         * @return a new connection
+         */
+        public SurrealDBConnection build() {
+            SurrealDBConnection connection = new SurrealDBConnection(this);
+            if(insertChunkSize != null)
+                connection.setInsertChunkSize(insertChunkSize);
+            if(insertConcurrency != null)
+                connection.setInsertConcurrency(insertConcurrency);
+            connection.setMetricsListener(metricsListener);
+            connection.setConcurrencyLimiter(concurrencyLimiter);
+            if(compressionThreshold != null)
+                connection.enableCompression(compressionThreshold);
+            if(queryCacheBytes != null)
+                connection.enableQueryCache(queryCacheBytes, queryCacheTimeToLive);
+            if(hedgingPercentile != null)
+                connection.enableHedging(hedgingPercentile, hedgingMinimumDelay);
+            return connection;
+        }
+
+        private HttpClient createClient() {
+            if(httpClient != null)
+                return httpClient;
+            HttpClient.Builder client = HttpClient.newBuilder().version(version);
+            if(executor != null)
+                client.executor(executor);
+            if(connectTimeout != null)
+                client.connectTimeout(connectTimeout);
+            return client.build();
+        }
+    }
+
 }
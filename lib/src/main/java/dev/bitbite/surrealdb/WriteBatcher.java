@@ -0,0 +1,209 @@
+package dev.bitbite.surrealdb;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.exception.WriteRejectedException;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Coalesces single writes into multi-statement <code>/sql</code> requests.
+ * <p>
+ * Writes are put into a bounded queue. A background thread takes them off the queue and sends them
+ * as one request as soon as either the maximum batch size is reached or the first write of the batch
+ * has waited for the maximum delay. Every write is completed with the result of its own statement.
+ * </p>
+ * <p>
+ * Only a limited number of batches is sent at a time. While that many are waiting for their response,
+ * the background thread stops taking writes off the queue, so a slow server fills the queue
+ * and the overflow policy applies instead of piling up requests.
+ * </p>
+ * @see SurrealDBConnection#enableBatching(int, Duration, int, OverflowPolicy, int)
+ */
+public class WriteBatcher {
+
+    /**
+     * What happens to a write when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** The calling thread blocks until there is room in the queue. */
+        BLOCK,
+        /** The write fails immediately with a {@link WriteRejectedException}. */
+        REJECT
+    }
+
+    /**
+     * The number of batches sent at a time unless configured otherwise
+     */
+    public static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 4;
+
+    private final Function<String, CompletableFuture<String>> sender;
+    private final Codec codec;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final Semaphore batchesInFlight;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private record PendingWrite<T>(String statement, Type type, CompletableFuture<List<QueryResult<T>>> result) {}
+
+    WriteBatcher(Function<String, CompletableFuture<String>> sender, Codec codec, int maxBatchSize, Duration maxDelay, int capacity, OverflowPolicy overflowPolicy, int maxBatchesInFlight) {
+        if(maxBatchSize < 1 || capacity < 1 || maxBatchesInFlight < 1)
+            throw new IllegalArgumentException("The batch size, capacity and batches in flight must be at least 1");
+        this.sender = sender;
+        this.codec = codec;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchesInFlight = new Semaphore(maxBatchesInFlight);
+        this.flusher = new Thread(this::run, "surrealdb-write-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Returns the number of writes waiting in the queue
+     * @return number of queued writes
+     */
+    public int getQueuedWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Queues a single statement
+     * @param <T> type of the data
+     * @param statement SurrealQL statement to execute
+     * @param type type of the records the statement returns
+     * @return future completing with the result of the statement
+     */
+    <T> CompletableFuture<List<QueryResult<T>>> submit(String statement, Type type) {
+        PendingWrite<T> write = new PendingWrite<>(statement, type, new CompletableFuture<>());
+        if(!running)
+            return CompletableFuture.failedFuture(new WriteRejectedException("The write batcher has been shut down"));
+
+        if(overflowPolicy == OverflowPolicy.REJECT) {
+            if(!queue.offer(write))
+                return CompletableFuture.failedFuture(new WriteRejectedException("The write queue is full"));
+        } else {
+            try {
+                queue.put(write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(new SurrealException(e));
+            }
+        }
+        // the flusher may have sent its last batch before the write was queued, then nobody would take it
+        if(!running && queue.remove(write))
+            return CompletableFuture.failedFuture(new WriteRejectedException("The write batcher has been shut down"));
+        return write.result();
+    }
+
+    /**
+     * Stops accepting writes. Writes that are already queued are still sent,
+     * writes queued while shutting down fail with a {@link WriteRejectedException}.
+     */
+    void shutdown() {
+        running = false;
+        flusher.interrupt();
+    }
+
+    private void run() {
+        try {
+            flushUntilShutdown();
+        } finally {
+            List<PendingWrite<?>> rejected = new ArrayList<>();
+            queue.drainTo(rejected);
+            rejected.forEach(write -> write.result().completeExceptionally(new WriteRejectedException("The write batcher has been shut down")));
+        }
+    }
+
+    private void flushUntilShutdown() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while(running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = running ? queue.take() : queue.poll();
+                if(first == null)
+                    break;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while(batch.size() < maxBatchSize) {
+                    PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown() interrupts waiting for writes, the remaining writes are flushed below
+            }
+            if(!running)
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            if(!batch.isEmpty()) {
+                batchesInFlight.acquireUninterruptibly();
+                flush(List.copyOf(batch));
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite<?>> batch) {
+        StringBuilder sql = new StringBuilder();
+        for(PendingWrite<?> write : batch)
+            sql.append(write.statement()).append(";\n");
+
+        CompletableFuture<String> response;
+        try {
+            response = sender.apply(sql.toString());
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((body, error) -> {
+            batchesInFlight.release();
+            if(error != null) {
+                batch.forEach(write -> write.result().completeExceptionally(error));
+                return;
+            }
+            try {
+                complete(batch, JsonParser.parseString(body).getAsJsonArray());
+            } catch (RuntimeException e) {
+                batch.forEach(write -> write.result().completeExceptionally(e));
+            }
+        });
+    }
+
+    private void complete(List<PendingWrite<?>> batch, JsonArray results) {
+        for(int i = 0; i < batch.size(); i++)
+            complete(batch.get(i), i < results.size() ? results.get(i) : null);
+    }
+
+    private <T> void complete(PendingWrite<T> write, JsonElement element) {
+        if(element == null) {
+            write.result().completeExceptionally(new SurrealException("The server sent no result for the statement"));
+            return;
+        }
+        JsonObject result = element.getAsJsonObject();
+        if(!result.get("status").getAsString().equals("OK")) {
+            write.result().completeExceptionally(new SurrealException(result.get("result").getAsString()));
+            return;
+        }
+        write.result().complete(List.of(codec.<T>parseResult(write.type(), result)));
+    }
+
+}
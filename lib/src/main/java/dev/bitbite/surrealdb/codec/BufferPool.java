@@ -0,0 +1,96 @@
+package dev.bitbite.surrealdb.codec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized byte buffers that request bodies are encoded into.
+ * <p>
+ * Buffers are handed out most recently released first, so a steady load keeps reusing the same few buffers.
+ * When the pool is empty a new buffer is allocated; buffers released while the pool is full are left to the garbage collector.
+ * The pool is thread safe.
+ * </p>
+ */
+public class BufferPool {
+
+    /**
+     * Default size of the buffers, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default number of buffers kept in the pool.
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final ConcurrentLinkedDeque<ByteBuffer> buffers = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    /**
+     * Constructs a pool of {@value #DEFAULT_MAX_POOLED_BUFFERS} buffers of {@value #DEFAULT_BUFFER_SIZE} bytes.
+     */
+    public BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    /**
+     * Constructs a pool of buffers.
+     * @param bufferSize The size of each buffer, in bytes.
+     * @param maxPooledBuffers The maximum number of released buffers kept for reuse.
+     */
+    public BufferPool(int bufferSize, int maxPooledBuffers) {
+        if(bufferSize < 1)
+            throw new IllegalArgumentException("The buffer size must be at least 1");
+        if(maxPooledBuffers < 0)
+            throw new IllegalArgumentException("The number of pooled buffers must not be negative");
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates a new one if the pool is empty.
+     * @return An empty buffer of {@link #getBufferSize()} bytes.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.pollFirst();
+        if(buffer == null)
+            return ByteBuffer.allocate(bufferSize);
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     * The buffer must not be used by the caller afterwards.
+     * @param buffer A buffer acquired from this pool.
+     */
+    public void release(ByteBuffer buffer) {
+        if(buffer.capacity() != bufferSize || buffer.isReadOnly())
+            return;
+        if(pooledBuffers.incrementAndGet() > maxPooledBuffers) {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffers.offerFirst(buffer.clear());
+    }
+
+    /**
+     * Returns the size of the buffers.
+     * @return The size of each buffer, in bytes.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of buffers currently waiting in the pool.
+     * @return The number of pooled buffers.
+     */
+    public int getPooledBuffers() {
+        return pooledBuffers.get();
+    }
+
+}
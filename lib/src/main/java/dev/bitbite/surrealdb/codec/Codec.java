@@ -0,0 +1,302 @@
+package dev.bitbite.surrealdb.codec;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+/**
+ * Encodes data sent to and decodes results received from the SurrealDB server.
+ * <p>
+ * A codec wraps a single {@link Gson} instance and caches the type adapters it resolves for every entity type,
+ * both for the entity itself and for the <code>List&lt;QueryResult&lt;T&gt;&gt;</code> a response is parsed into.
+ * Codecs are thread safe and meant to be shared by everything using the same connection.
+ * </p>
+ * <p>
+ * Codecs with the default configuration map entities implementing {@link dev.bitbite.surrealdb.orm.Identifiable Identifiable}
+ * by the adapters generated by the <code>surrealdb-java-processor</code> annotation processor, if it ran over them.
+ * Codecs with a Gson instance of the caller only use them if enabled by {@link #Codec(Gson, boolean)}.
+ * Other types, and entities the processor could not generate an adapter for, are mapped by reflection.
+ * </p>
+ */
+public class Codec {
+
+    private static final Codec DEFAULT = new Codec();
+
+    private final Gson gson;
+    private final Map<Type, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+    private final Map<Type, TypeAdapter<?>> queryResultAdapters = new ConcurrentHashMap<>();
+    private final Map<Type, TypeAdapter<?>> resultAdapters = new ConcurrentHashMap<>();
+    private final Map<Type, TypeAdapter<?>> rowsAdapters = new ConcurrentHashMap<>();
+    private final Set<Type> registeredTypes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a codec using a Gson instance with the default configuration and the generated adapters of entities.
+     */
+    public Codec() {
+        this(new Gson(), true);
+    }
+
+    /**
+     * Constructs a codec using the specified Gson instance.
+     * Entities are mapped by the Gson instance as configured, without the generated adapters.
+     * @param gson The Gson instance to use, e.g. one with custom type adapters registered.
+     */
+    public Codec(Gson gson) {
+        this(gson, false);
+    }
+
+    /**
+     * Constructs a codec using the specified Gson instance.
+     * @param gson The Gson instance to use.
+     * @param generatedAdapters Whether to use the generated adapters of entities. Must be false if the Gson instance
+     *  has type adapters registered for entity types or for the types of their fields, excludes fields,
+     *  or has a field naming policy, since generated adapters take precedence, map every non-transient field
+     *  by its name and write primitives and strings directly.
+     */
+    public Codec(Gson gson, boolean generatedAdapters) {
+        this.gson = generatedAdapters
+            ? gson.newBuilder().registerTypeAdapterFactory(new GeneratedAdapterFactory()).create()
+            : gson;
+    }
+
+    /**
+     * Returns the codec shared by everything that has not been configured with its own codec.
+     * @return The default codec.
+     */
+    public static Codec getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the Gson instance used by this codec.
+     * If generated adapters are used, this is a copy of the Gson instance passed to the constructor with them registered.
+     * @return The Gson instance.
+     */
+    public Gson getGson() {
+        return gson;
+    }
+
+    /**
+     * Registers an entity type so that its adapters are resolved by {@link #warmUp()}.
+     * @param type The entity type.
+     */
+    public void register(Type type) {
+        registeredTypes.add(type);
+    }
+
+    /**
+     * Resolves the adapters of all registered entity types ahead of their first use,
+     * so the reflective setup does not add to the latency of the first request.
+     */
+    public void warmUp() {
+        registeredTypes.forEach(type -> {
+            resultAdapter(type);
+            rowsAdapter(type);
+        });
+    }
+
+    /**
+     * Returns the adapter for the specified type.
+     * @param <T> The type.
+     * @param type The type.
+     * @return The cached adapter.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> adapter(Type type) {
+        return (TypeAdapter<T>) adapters.computeIfAbsent(type, t -> gson.getAdapter(TypeToken.get(t)));
+    }
+
+    /**
+     * Returns the adapter for a single query result with the specified result type.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @return The cached adapter.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<QueryResult<T>> queryResultAdapter(Type type) {
+        return (TypeAdapter<QueryResult<T>>) queryResultAdapters.computeIfAbsent(type,
+            t -> gson.getAdapter(TypeToken.getParameterized(QueryResult.class, t)));
+    }
+
+    /**
+     * Returns the adapter for a list of query results with the specified result type.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @return The cached adapter.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<List<QueryResult<T>>> resultAdapter(Type type) {
+        return (TypeAdapter<List<QueryResult<T>>>) resultAdapters.computeIfAbsent(type, t -> {
+            Type queryResultType = TypeToken.getParameterized(QueryResult.class, t).getType();
+            return gson.getAdapter(TypeToken.getParameterized(List.class, queryResultType));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> TypeAdapter<List<T>> rowsAdapter(Type type) {
+        return (TypeAdapter<List<T>>) rowsAdapters.computeIfAbsent(type,
+            t -> gson.getAdapter(TypeToken.getParameterized(List.class, t)));
+    }
+
+    /**
+     * Serializes an object to JSON, honoring the configuration of the Gson instance.
+     * @param data The object to serialize.
+     * @return The JSON representation of the object.
+     */
+    public String toJson(Object data) {
+        if(data == null)
+            return gson.toJson(null);
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter writer = gson.newJsonWriter(out);
+            adapter(data.getClass()).write(writer, data);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Encodes an object to UTF-8 JSON, writing straight into pooled buffers instead of building a string first.
+     * Null fields are omitted, like with {@link #toJson(Object)}.
+     * @param data The object to encode.
+     * @param pool The pool to take the buffers from.
+     * @return The encoded bytes, to be released once they have been sent.
+     */
+    public PooledOutputStream encode(Object data, BufferPool pool) {
+        PooledOutputStream out = new PooledOutputStream(pool);
+        try {
+            JsonWriter writer = gson.newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if(data == null)
+                writer.nullValue();
+            else
+                adapter(data.getClass()).write(writer, data);
+            writer.flush();
+        } catch (IOException e) {
+            out.release();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+        return out;
+    }
+
+    /**
+     * Decodes a single query result with the specified type.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @param json The JSON object of the query result.
+     * @return The decoded QueryResult.
+     */
+    public <T> QueryResult<T> parseResult(Type type, JsonElement json) {
+        return this.<T>queryResultAdapter(type).fromJsonTree(json);
+    }
+
+    /**
+     * Parses a JSON array into a list of QueryResult objects with the specified type.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @param json The JSON array to parse.
+     * @return A list of QueryResult objects with the specified type.
+     */
+    public <T> List<QueryResult<T>> parseResults(Type type, String json) {
+        return parseResults(type, new StringReader(json));
+    }
+
+    /**
+     * Parses a JSON array into a list of QueryResult objects with the specified type.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @param json The reader providing the JSON array to parse.
+     * @return A list of QueryResult objects with the specified type.
+     */
+    public <T> List<QueryResult<T>> parseResults(Type type, Reader json) {
+        try {
+            JsonReader reader = gson.newJsonReader(json);
+            return this.<T>resultAdapter(type).read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a response into a list of QueryResult objects, failing if a query failed.
+     * The status of every query result is checked while it is read, so the response is parsed only once.
+     * @param <T> The type of the query result.
+     * @param type The type of the query result.
+     * @param json The JSON array of query results.
+     * @return A list of QueryResult objects with the specified type.
+     * @throws SurrealException If a query result has a status other than "OK", or the response cannot be parsed.
+     */
+    public <T> List<QueryResult<T>> parseResponse(Type type, String json) {
+        try {
+            JsonReader reader = gson.newJsonReader(new StringReader(json));
+            List<QueryResult<T>> results = new ArrayList<>();
+            reader.beginArray();
+            while(reader.hasNext())
+                results.add(this.<T>readResult(type, reader));
+            reader.endArray();
+            return results;
+        } catch (SurrealException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SurrealException("Could not parse the query results", e);
+        }
+    }
+
+    /**
+     * Reads a single query result. A failed query has a string as result, so the failure is known
+     * as soon as the result starts, wherever the status is.
+     */
+    private <T> QueryResult<T> readResult(Type type, JsonReader reader) throws IOException {
+        String time = null;
+        String status = null;
+        List<T> result = null;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "time" -> time = reader.peek() == JsonToken.NULL ? nullValue(reader) : reader.nextString();
+                case "status" -> status = reader.nextString();
+                case "result" -> {
+                    if(reader.peek() == JsonToken.STRING)
+                        throw new SurrealException(reader.nextString());
+                    result = this.<T>rowsAdapter(type).read(reader);
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if(status != null && !status.equals("OK"))
+            throw new SurrealException("Query failed with status "+status);
+        return new QueryResult<>(time, status, result);
+    }
+
+    private static String nullValue(JsonReader reader) throws IOException {
+        reader.nextNull();
+        return null;
+    }
+
+}
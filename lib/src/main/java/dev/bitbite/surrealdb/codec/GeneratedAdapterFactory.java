@@ -0,0 +1,73 @@
+package dev.bitbite.surrealdb.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.orm.Identifiable;
+
+/**
+ * Supplies the adapters generated at compile time by the <code>surrealdb-java-processor</code> annotation processor.
+ * <p>
+ * For an entity <code>com.example.Person</code> the processor generates <code>com.example.Person_SurrealAdapter</code>,
+ * nested classes are joined with underscores, e.g. <code>Outer_Person_SurrealAdapter</code>.
+ * Types without a generated adapter are left to the reflective adapters of Gson.
+ * </p>
+ */
+class GeneratedAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * Suffix of the generated adapter classes, must match the one used by the processor.
+     */
+    static final String SUFFIX = "_SurrealAdapter";
+
+    private static final ClassValue<Optional<Constructor<?>>> CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        protected Optional<Constructor<?>> computeValue(Class<?> type) {
+            try {
+                Class<?> adapter = Class.forName(adapterName(type), false, type.getClassLoader());
+                if(!TypeAdapter.class.isAssignableFrom(adapter))
+                    return Optional.empty();
+                return Optional.of(adapter.getConstructor(Gson.class));
+            } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        if(!Identifiable.class.isAssignableFrom(raw) || type.getType() != raw)
+            return null;
+        Optional<Constructor<?>> constructor = CONSTRUCTORS.get(raw);
+        if(constructor.isEmpty())
+            return null;
+        try {
+            return (TypeAdapter<T>) constructor.get().newInstance(gson);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new SurrealException("Could not create the generated adapter for "+raw.getName(), e);
+        }
+    }
+
+    /**
+     * Returns the name of the adapter generated for a type.
+     * @param type the entity type
+     * @return the binary name of the generated adapter
+     */
+    static String adapterName(Class<?> type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for(Class<?> outer = type.getEnclosingClass(); outer != null; outer = outer.getEnclosingClass())
+            name.insert(0, outer.getSimpleName()+"_");
+        String packageName = type.getPackageName();
+        return (packageName.isEmpty() ? "" : packageName+".")+name+SUFFIX;
+    }
+
+}
@@ -0,0 +1,188 @@
+package dev.bitbite.surrealdb.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An output stream writing into buffers taken from a {@link BufferPool}.
+ * <p>
+ * The written bytes are never copied into a single array; they are published as they are,
+ * buffer by buffer, by the {@link HttpRequest.BodyPublisher} returned from {@link #toBodyPublisher()}.
+ * Once the bytes are not needed anymore, {@link #release()} hands the buffers back to the pool.
+ * </p>
+ */
+public class PooledOutputStream extends OutputStream {
+
+    private final BufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer current;
+    private long size;
+    private boolean released;
+
+    /**
+     * Constructs an empty stream.
+     * @param pool The pool to take buffers from.
+     */
+    public PooledOutputStream(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer().put((byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        while(length > 0) {
+            ByteBuffer buffer = buffer();
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+            size += chunk;
+        }
+    }
+
+    private ByteBuffer buffer() {
+        if(released)
+            throw new IllegalStateException("The buffers have already been released");
+        if(current == null || !current.hasRemaining()) {
+            current = pool.acquire();
+            buffers.add(current);
+        }
+        return current;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     * @return The number of bytes written.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns a publisher of the bytes written so far.
+     * The publisher can be subscribed to several times, e.g. when a request is retried,
+     * but only until the buffers are released.
+     * @return A body publisher of read only views of the buffers.
+     */
+    public HttpRequest.BodyPublisher toBodyPublisher() {
+        List<ByteBuffer> views = new ArrayList<>(buffers.size());
+        for(ByteBuffer buffer : buffers)
+            views.add(buffer.duplicate().flip().asReadOnlyBuffer());
+        long contentLength = size;
+        return new HttpRequest.BodyPublisher() {
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+                subscriber.onSubscribe(new BufferSubscription(subscriber, views));
+            }
+        };
+    }
+
+    /**
+     * Writes the bytes written so far to another stream, e.g. to compress them.
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written to.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] chunk = null;
+        for(ByteBuffer buffer : buffers) {
+            ByteBuffer view = buffer.duplicate().flip();
+            if(view.hasArray()) {
+                out.write(view.array(), view.arrayOffset(), view.remaining());
+            } else {
+                int length = view.remaining();
+                if(chunk == null || chunk.length < length)
+                    chunk = new byte[length];
+                view.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Returns the buffers to the pool.
+     * Must only be called once no publisher of this stream is read anymore. Calling it again has no effect.
+     */
+    public void release() {
+        if(released)
+            return;
+        released = true;
+        for(ByteBuffer buffer : buffers)
+            pool.release(buffer);
+        buffers.clear();
+        current = null;
+    }
+
+    /**
+     * Emits the buffers one by one, as the subscriber requests them.
+     */
+    private static class BufferSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final List<ByteBuffer> buffers;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean done;
+        private int next;
+
+        BufferSubscription(Flow.Subscriber<? super ByteBuffer> subscriber, List<ByteBuffer> buffers) {
+            this.subscriber = subscriber;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void request(long n) {
+            if(done)
+                return;
+            if(n <= 0) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("Requested "+n+" buffers"));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        /**
+         * Emits as many buffers as requested. Only one thread emits at a time,
+         * requests made while emitting, e.g. from within onNext, are served by that thread.
+         */
+        private void drain() {
+            if(work.getAndIncrement() != 0)
+                return;
+            do {
+                while(!done && demand.get() > 0 && next < buffers.size()) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(buffers.get(next++).duplicate());
+                }
+                if(!done && next == buffers.size()) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+            } while(work.decrementAndGet() != 0);
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package dev.bitbite.surrealdb.exception;
+
+/**
+ * The DeadlineExceededException class represents an exception that is thrown when a request
+ * was not answered before its deadline. The request is cancelled when it is thrown.
+ */
+public class DeadlineExceededException extends SurrealException {
+
+    /**
+     * Constructs a new DeadlineExceededException with the specified detail message and cause.
+     *
+     * @param message the detail message
+     * @param cause the timeout that ended the request
+     */
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
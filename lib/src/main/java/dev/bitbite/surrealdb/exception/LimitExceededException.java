@@ -0,0 +1,19 @@
+package dev.bitbite.surrealdb.exception;
+
+/**
+ * The LimitExceededException class represents an exception that is thrown when a request is shed
+ * because the concurrency limit of the connection is reached and the request could not wait for it.
+ * The request has not been sent to the server.
+ */
+public class LimitExceededException extends SurrealException {
+
+    /**
+     * Constructs a new LimitExceededException with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public LimitExceededException(String message) {
+        super(message);
+    }
+
+}
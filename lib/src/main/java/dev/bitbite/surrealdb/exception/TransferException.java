@@ -0,0 +1,34 @@
+package dev.bitbite.surrealdb.exception;
+
+import dev.bitbite.surrealdb.transfer.TransferProgress;
+
+/**
+ * The TransferException class represents an exception that is thrown when an import or export fails.
+ * It carries the progress made up to the failure, from which the transfer can be resumed.
+ */
+public class TransferException extends SurrealException {
+
+    private final transient TransferProgress progress;
+
+    /**
+     * Constructs a new TransferException with the specified detail message, progress and cause.
+     *
+     * @param message the detail message
+     * @param progress the progress made before the transfer failed
+     * @param cause the cause
+     */
+    public TransferException(String message, TransferProgress progress, Throwable cause) {
+        super(message, cause);
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the progress made before the transfer failed.
+     *
+     * @return the progress to resume the transfer from
+     */
+    public TransferProgress getProgress() {
+        return progress;
+    }
+
+}
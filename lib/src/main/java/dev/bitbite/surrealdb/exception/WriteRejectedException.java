@@ -0,0 +1,18 @@
+package dev.bitbite.surrealdb.exception;
+
+/**
+ * The WriteRejectedException class represents an exception that is thrown when a write is rejected
+ * because the queue of the write batcher is full.
+ */
+public class WriteRejectedException extends SurrealException {
+
+    /**
+     * Constructs a new WriteRejectedException with the specified detail message.
+     * 
+     * @param message the detail message
+     */
+    public WriteRejectedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,288 @@
+package dev.bitbite.surrealdb.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link MetricsListener} keeping counters and histograms per operation and table in memory.
+ * <p>
+ * The metrics can be read with {@link #get(Operation, String)}, or scraped all at once in the
+ * Prometheus text format with {@link #scrape()}. They are never reset.
+ * </p>
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String NO_TABLE = "";
+
+    /**
+     * The metrics of one operation on one table.
+     */
+    public static class OperationMetrics {
+
+        private final Histogram latency = new Histogram();
+        private final Histogram decodeTime = new Histogram();
+        private final Histogram serverTime = new Histogram();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+
+        /**
+         * Returns the histogram of the client latencies, from sending a request until its response arrived.
+         * @return The latencies in nanoseconds.
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Returns the histogram of the times taken to decode the responses.
+         * @return The decode times in nanoseconds.
+         */
+        public Histogram getDecodeTime() {
+            return decodeTime;
+        }
+
+        /**
+         * Returns the histogram of the execution times reported by the server.
+         * @return The server times in nanoseconds.
+         */
+        public Histogram getServerTime() {
+            return serverTime;
+        }
+
+        /**
+         * Returns the number of responses received, including responses reporting an error.
+         * @return The number of responses.
+         */
+        public long getResponses() {
+            return responses.sum();
+        }
+
+        /**
+         * Returns the number of failed requests.
+         * @return The number of errors.
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * Returns the total size of the request bodies.
+         * @return The number of bytes sent.
+         */
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        /**
+         * Returns the total size of the response bodies, not counting streamed responses.
+         * @return The number of bytes received.
+         */
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+    }
+
+    private final Map<Operation, Map<String, OperationMetrics>> metrics = new EnumMap<>(Operation.class);
+    private volatile int concurrencyLimit = -1;
+    private volatile int inFlight;
+    private volatile int queued;
+    private final LongAdder queryCacheHits = new LongAdder();
+    private final LongAdder queryCacheMisses = new LongAdder();
+
+    /**
+     * Constructs a new, empty InMemoryMetrics.
+     */
+    public InMemoryMetrics() {
+        for(Operation operation : Operation.values())
+            metrics.put(operation, new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void onResponse(Operation operation, String table, long latencyNanos, long requestBytes, long responseBytes) {
+        OperationMetrics m = metrics(operation, table);
+        m.responses.increment();
+        m.latency.record(latencyNanos);
+        m.requestBytes.add(requestBytes);
+        if(responseBytes > 0)
+            m.responseBytes.add(responseBytes);
+    }
+
+    @Override
+    public void onDecode(Operation operation, String table, long decodeNanos, Duration serverTime) {
+        OperationMetrics m = metrics(operation, table);
+        m.decodeTime.record(decodeNanos);
+        if(serverTime != null)
+            m.serverTime.record(serverTime.toNanos());
+    }
+
+    @Override
+    public void onError(Operation operation, String table, Throwable error) {
+        metrics(operation, table).errors.increment();
+    }
+
+    @Override
+    public void onConcurrency(int limit, int inFlight, int queued) {
+        this.concurrencyLimit = limit;
+        this.inFlight = inFlight;
+        this.queued = queued;
+    }
+
+    @Override
+    public void onQueryCache(boolean hit) {
+        if(hit)
+            queryCacheHits.increment();
+        else
+            queryCacheMisses.increment();
+    }
+
+    /**
+     * Returns the last reported limit of the concurrency limiter.
+     * @return The number of requests allowed in flight, or -1 if no limiter reported yet.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Returns the last reported number of requests in flight, as counted by the concurrency limiter.
+     * @return The number of requests in flight.
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the last reported number of requests waiting for the concurrency limit.
+     * @return The queue depth.
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Returns the number of select queries answered from the query cache.
+     * @return The number of hits.
+     */
+    public long getQueryCacheHits() {
+        return queryCacheHits.sum();
+    }
+
+    /**
+     * Returns the number of select queries the query cache could not answer.
+     * @return The number of misses.
+     */
+    public long getQueryCacheMisses() {
+        return queryCacheMisses.sum();
+    }
+
+    /**
+     * Returns the share of select queries answered from the query cache.
+     * @return The hit rate between 0 and 1, or 0 if no query was looked up yet.
+     */
+    public double getQueryCacheHitRate() {
+        long hits = getQueryCacheHits();
+        long total = hits + getQueryCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the metrics of an operation on a table.
+     * @param operation The operation.
+     * @param table The table, or null for queries.
+     * @return The metrics, or null if the operation has not been used on the table.
+     */
+    public OperationMetrics get(Operation operation, String table) {
+        return metrics.get(operation).get(table == null ? NO_TABLE : table);
+    }
+
+    private OperationMetrics metrics(Operation operation, String table) {
+        return metrics.get(operation).computeIfAbsent(table == null ? NO_TABLE : table, t -> new OperationMetrics());
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format.
+     * Counters are named <code>surrealdb_client_*_total</code>, the histograms are rendered as summaries in seconds.
+     * Every sample is labeled with the operation and the table, which is empty for queries.
+     * Once a concurrency limiter reported, its limit, requests in flight and queue depth are rendered as gauges.
+     * Once a query cache reported, its hits and misses are rendered as counters.
+     * @return The metrics.
+     */
+    public String scrape() {
+        Map<String, OperationMetrics> series = new TreeMap<>();
+        metrics.forEach((operation, tables) -> tables.forEach((table, m) ->
+            series.put("operation=\""+operation.name().toLowerCase()+"\",table=\""+escape(table)+"\"", m)));
+
+        StringBuilder out = new StringBuilder();
+        counter(out, "responses", "Responses received", series, OperationMetrics::getResponses);
+        counter(out, "errors", "Failed requests", series, OperationMetrics::getErrors);
+        counter(out, "request_bytes", "Bytes sent in request bodies", series, OperationMetrics::getRequestBytes);
+        counter(out, "response_bytes", "Bytes received in response bodies", series, OperationMetrics::getResponseBytes);
+        summary(out, "latency_seconds", "Client latency", series, OperationMetrics::getLatency);
+        summary(out, "decode_seconds", "Time decoding responses", series, OperationMetrics::getDecodeTime);
+        summary(out, "server_time_seconds", "Execution time reported by the server", series, OperationMetrics::getServerTime);
+        if(concurrencyLimit >= 0) {
+            gauge(out, "concurrency_limit", "Requests allowed in flight by the concurrency limiter", concurrencyLimit);
+            gauge(out, "in_flight_requests", "Requests in flight", inFlight);
+            gauge(out, "queued_requests", "Requests waiting for the concurrency limit", queued);
+        }
+        long hits = getQueryCacheHits(), misses = getQueryCacheMisses();
+        if(hits + misses > 0) {
+            counter(out, "query_cache_hits", "Select queries answered from the query cache", hits);
+            counter(out, "query_cache_misses", "Select queries sent because the query cache could not answer them", misses);
+        }
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, Map<String, OperationMetrics> series,
+            ToLongFunction<OperationMetrics> value) {
+        out.append("# HELP surrealdb_client_").append(name).append("_total ").append(help).append('\n');
+        out.append("# TYPE surrealdb_client_").append(name).append("_total counter\n");
+        series.forEach((labels, m) -> out.append("surrealdb_client_").append(name).append("_total{").append(labels).append("} ")
+            .append(value.applyAsLong(m)).append('\n'));
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP surrealdb_client_").append(name).append("_total ").append(help).append('\n');
+        out.append("# TYPE surrealdb_client_").append(name).append("_total counter\n");
+        out.append("surrealdb_client_").append(name).append("_total ").append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP surrealdb_client_").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE surrealdb_client_").append(name).append(" gauge\n");
+        out.append("surrealdb_client_").append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String help, Map<String, OperationMetrics> series,
+            Function<OperationMetrics, Histogram> histogram) {
+        out.append("# HELP surrealdb_client_").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE surrealdb_client_").append(name).append(" summary\n");
+        series.forEach((labels, m) -> {
+            Histogram h = histogram.apply(m);
+            for(double quantile : QUANTILES) {
+                out.append("surrealdb_client_").append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(h.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append("surrealdb_client_").append(name).append("_sum{").append(labels).append("} ").append(seconds(h.getSum())).append('\n');
+            out.append("surrealdb_client_").append(name).append("_count{").append(labels).append("} ").append(h.getCount()).append('\n');
+        });
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
@@ -0,0 +1,71 @@
+package dev.bitbite.surrealdb.metrics;
+
+import java.time.Duration;
+
+/**
+ * Receives measurements of the requests sent by a {@link dev.bitbite.surrealdb.SurrealDBConnection SurrealDBConnection}.
+ * <p>
+ * Every request is reported with its {@link Operation} and the table it addresses, which is null for queries.
+ * A successful request is reported once with {@link #onResponse onResponse} when its response arrived,
+ * and once with {@link #onDecode onDecode} when the response has been decoded.
+ * A failed request, including one the server answered with an error, is reported with {@link #onError onError}.
+ * Streamed selects and queries are only reported with onResponse, once the response started to arrive,
+ * with an unknown response size.
+ * </p>
+ * <p>
+ * Listeners are called on the threads completing the requests, concurrently, and must not block.
+ * </p>
+ * @see InMemoryMetrics
+ */
+public interface MetricsListener {
+
+    /**
+     * Called when the response to a request arrived.
+     * @param operation The operation.
+     * @param table The table, or null for queries.
+     * @param latencyNanos The time from sending the request until the response arrived, in nanoseconds.
+     * @param requestBytes The size of the request body in bytes.
+     * @param responseBytes The size of the response body in bytes, or -1 if it is streamed.
+     */
+    default void onResponse(Operation operation, String table, long latencyNanos, long requestBytes, long responseBytes) {
+    }
+
+    /**
+     * Called when the response to a request has been decoded.
+     * @param operation The operation.
+     * @param table The table, or null for queries.
+     * @param decodeNanos The time taken to decode the response, in nanoseconds.
+     * @param serverTime The execution time reported by the server, summed over all statements,
+     *  or null if the server did not report it.
+     */
+    default void onDecode(Operation operation, String table, long decodeNanos, Duration serverTime) {
+    }
+
+    /**
+     * Called when a request failed.
+     * @param operation The operation.
+     * @param table The table, or null for queries.
+     * @param error The error the request failed with.
+     */
+    default void onError(Operation operation, String table, Throwable error) {
+    }
+
+    /**
+     * Called when a request acquired or released a permit of the concurrency limiter of the connection.
+     * Requests shed by the limiter are reported with onError.
+     * @param limit The number of requests currently allowed in flight.
+     * @param inFlight The number of requests in flight.
+     * @param queued The number of requests waiting for the limit.
+     */
+    default void onConcurrency(int limit, int inFlight, int queued) {
+    }
+
+    /**
+     * Called when a select query was looked up in the query cache of the connection.
+     * A query that missed is reported with onResponse once its response arrived.
+     * @param hit Whether the query was answered from the cache.
+     */
+    default void onQueryCache(boolean hit) {
+    }
+
+}
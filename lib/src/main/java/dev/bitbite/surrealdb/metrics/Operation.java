@@ -0,0 +1,54 @@
+package dev.bitbite.surrealdb.metrics;
+
+/**
+ * The operations of a {@link dev.bitbite.surrealdb.SurrealDBConnection SurrealDBConnection} reported to a {@link MetricsListener}.
+ */
+public enum Operation {
+    /** Selecting a table or a record. */
+    SELECT,
+    /** Creating a record. */
+    CREATE,
+    /** Replacing a table or a record. */
+    UPDATE,
+    /** Merging data into a table or a record. */
+    MERGE,
+    /** Deleting a table or a record. */
+    DELETE,
+    /** Inserting or upserting a chunk of records. */
+    INSERT,
+    /** Selecting a page of a scan. */
+    SCAN,
+    /** Running a SurrealQL query. */
+    QUERY;
+
+    /**
+     * Returns the operation of a request to the REST API.
+     * @param method The HTTP method of the request.
+     * @param endpoint The endpoint of the request, e.g. <code>/key/person</code>.
+     * @return The operation.
+     */
+    public static Operation of(String method, String endpoint) {
+        if(!endpoint.startsWith("/key/"))
+            return QUERY;
+        return switch(method) {
+            case "GET" -> SELECT;
+            case "POST" -> CREATE;
+            case "PUT" -> UPDATE;
+            case "PATCH" -> MERGE;
+            case "DELETE" -> DELETE;
+            default -> QUERY;
+        };
+    }
+
+    /**
+     * Returns the table a request to the REST API addresses.
+     * @param endpoint The endpoint of the request, e.g. <code>/key/person/tobie</code>.
+     * @return The name of the table, or null for queries.
+     */
+    public static String table(String endpoint) {
+        if(!endpoint.startsWith("/key/"))
+            return null;
+        int end = endpoint.indexOf('/', 5);
+        return end == -1 ? endpoint.substring(5) : endpoint.substring(5, end);
+    }
+}
@@ -0,0 +1,128 @@
+package dev.bitbite.surrealdb.orm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import dev.bitbite.surrealdb.codec.Codec;
+
+/**
+ * Remembers the last known state of the entities of a {@link Repository} by their ID,
+ * to find the fields that changed since they were loaded or saved.
+ * <p>
+ * The state is kept as the JSON the entity was encoded to, so later changes to the entity itself
+ * do not affect it. Only top level fields are compared; a nested object that changed is sent as a whole.
+ * </p>
+ * <p>
+ * At most a fixed number of states is kept. Once that is reached, the state of the least recently
+ * tracked or updated entity is forgotten, and that entity is replaced as a whole on its next update.
+ * </p>
+ */
+class ChangeTracker {
+
+    private final int maximumSize;
+    private final LinkedHashMap<String, JsonObject> snapshots;
+
+    /**
+     * Constructs a new ChangeTracker.
+     * @param maximumSize The maximum number of entities whose state is remembered.
+     */
+    ChangeTracker(int maximumSize) {
+        if(maximumSize < 1)
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        this.maximumSize = maximumSize;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonObject> eldest) {
+                return size() > ChangeTracker.this.maximumSize;
+            }
+        };
+    }
+
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of entities whose state is remembered
+     */
+    synchronized int getSize() {
+        return snapshots.size();
+    }
+
+    /**
+     * Remembers the current state of an entity.
+     * @param key The ID of the entity, without the table name.
+     * @param object The entity.
+     * @param codec The codec encoding the entity.
+     */
+    void track(String key, Object object, Codec codec) {
+        JsonElement json = codec.adapter(object.getClass()).toJsonTree(object);
+        synchronized(this) {
+            if(json.isJsonObject())
+                snapshots.put(key, json.getAsJsonObject());
+            else
+                snapshots.remove(key);
+        }
+    }
+
+    /**
+     * Computes the fields of an entity that changed since its state was last remembered.
+     * @param key The ID of the entity, without the table name.
+     * @param object The entity.
+     * @param codec The codec encoding the entity.
+     * @return The changed fields with their new values, an empty object if nothing changed,
+     *  or null if the entity is not tracked or a field was removed at any depth, which a merge cannot express.
+     */
+    JsonObject diff(String key, Object object, Codec codec) {
+        JsonObject snapshot;
+        synchronized(this) {
+            snapshot = snapshots.get(key);
+        }
+        if(snapshot == null)
+            return null;
+        JsonElement json = codec.adapter(object.getClass()).toJsonTree(object);
+        if(!json.isJsonObject())
+            return null;
+        JsonObject current = json.getAsJsonObject();
+        if(removesField(snapshot, current))
+            return null;
+        JsonObject changes = new JsonObject();
+        for(Map.Entry<String, JsonElement> field : current.entrySet()) {
+            if("id".equals(field.getKey()) || field.getValue().isJsonNull())
+                continue;
+            if(!field.getValue().equals(snapshot.get(field.getKey())))
+                changes.add(field.getKey(), field.getValue());
+        }
+        return changes;
+    }
+
+    /**
+     * Checks if a field of the snapshot, or of an object nested in it, is missing or null in the current state.
+     * A merge combines nested objects with the record, so it cannot remove their fields either.
+     */
+    private static boolean removesField(JsonObject snapshot, JsonObject current) {
+        for(Map.Entry<String, JsonElement> field : snapshot.entrySet()) {
+            if(field.getValue().isJsonNull())
+                continue;
+            JsonElement value = current.get(field.getKey());
+            if(value == null || value.isJsonNull())
+                return true;
+            if(field.getValue().isJsonObject() && value.isJsonObject()
+                && removesField(field.getValue().getAsJsonObject(), value.getAsJsonObject()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the state of an entity, e.g. after a failed update left it unknown.
+     * @param key The ID of the entity, without the table name.
+     */
+    synchronized void forget(String key) {
+        snapshots.remove(key);
+    }
+
+}
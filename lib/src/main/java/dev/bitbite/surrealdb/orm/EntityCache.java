@@ -0,0 +1,296 @@
+package dev.bitbite.surrealdb.orm;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of entities by their ID, used by a {@link Repository}.
+ * <p>
+ * Entries expire after a fixed time to live. Once the cache is full, a newly loaded entity only replaces
+ * the least recently used entry if it has been requested more often, which keeps frequently used entities
+ * in the cache even when many entities are requested only once. The access frequencies are estimated with
+ * a small count-min sketch that is aged periodically, so entities that were popular a long time ago do not
+ * stay in the cache forever.
+ * </p>
+ * <p>
+ * Concurrent misses for the same ID share a single load.
+ * </p>
+ * <p>
+ * A cache with an encoder and decoder keeps every entity as the JSON it was encoded to and decodes it again
+ * on every hit, so each caller gets an entity of its own. Otherwise the cached entity itself is returned
+ * to every caller, and changes made to it by one caller are seen by all others.
+ * </p>
+ * @param <T> The type of the cached entities.
+ */
+public class EntityCache<T> {
+
+    private record Entry(Object value, long expiresAt) {}
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final Function<T, String> encoder;
+    private final Function<String, T> decoder;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<T>> loading = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new EntityCache returning the cached entities themselves.
+     * @param maximumSize The maximum number of entities held in the cache.
+     * @param timeToLive The time after which a cached entity is loaded again.
+     */
+    public EntityCache(int maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, null, null);
+    }
+
+    /**
+     * Constructs a new EntityCache returning a copy of the cached entity on every hit.
+     * @param maximumSize The maximum number of entities held in the cache.
+     * @param timeToLive The time after which a cached entity is loaded again.
+     * @param encoder Encodes an entity to the JSON that is kept in the cache.
+     * @param decoder Decodes a cached entity from its JSON.
+     */
+    public EntityCache(int maximumSize, Duration timeToLive, Function<T, String> encoder, Function<String, T> decoder) {
+        if(maximumSize < 1)
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        if((encoder == null) != (decoder == null))
+            throw new IllegalArgumentException("Either both or neither of encoder and decoder have to be given");
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached entity, or loads it if it is not cached.
+     * @param id The ID of the entity.
+     * @param loader Loads the entity from the database on a miss.
+     * @return A future completing with the entity, or a copy of it if the cache has an encoder and decoder.
+     */
+    public CompletableFuture<T> get(String id, Function<String, CompletableFuture<T>> loader) {
+        sketch.increment(id);
+        Object cached = null;
+        synchronized(this) {
+            Entry entry = entries.get(id);
+            if(entry != null) {
+                if(entry.expiresAt() - System.nanoTime() > 0)
+                    cached = entry.value();
+                else
+                    entries.remove(id);
+            }
+        }
+        if(cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(restore(cached));
+        }
+        misses.increment();
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> existing = loading.putIfAbsent(id, load);
+        // callers sharing a load get copies, the loaded entity itself goes to the caller that started it
+        if(existing != null)
+            return existing.thenApply(value -> value == null ? null : restore(store(value)));
+
+        CompletableFuture<T> loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            Object stored = error == null && value != null ? store(value) : null;
+            synchronized(this) {
+                // the load was invalidated by a write while it was running if it is no longer registered
+                if(loading.remove(id, load) && stored != null)
+                    admit(id, stored);
+            }
+            if(error != null)
+                load.completeExceptionally(error);
+            else
+                load.complete(value);
+        });
+        return load.thenApply(Function.identity());
+    }
+
+    /**
+     * Puts an entity into the cache, replacing the cached entity with the same ID.
+     * Used to keep the cache coherent with writes.
+     * @param id The ID of the entity.
+     * @param value The entity.
+     */
+    public void put(String id, T value) {
+        Object stored = store(value);
+        synchronized(this) {
+            loading.remove(id);
+            entries.put(id, new Entry(stored, System.nanoTime() + timeToLiveNanos));
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Removes an entity from the cache.
+     * @param id The ID of the entity.
+     */
+    public synchronized void invalidate(String id) {
+        loading.remove(id);
+        entries.remove(id);
+    }
+
+    /**
+     * Removes all entities from the cache.
+     */
+    public synchronized void invalidateAll() {
+        loading.clear();
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of entities in the cache.
+     * @return The number of cached entities.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests answered from the cache.
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests that had to be loaded from the database.
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entities removed from the cache to make room for others.
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns a string representation of the cache statistics.
+     * @return A string representation of the EntityCache object.
+     */
+    @Override
+    public String toString() {
+        return "EntityCache [size=" + getSize() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+    /**
+     * Adds a loaded entity if there is room, or if it is used more often than the least recently used entity.
+     */
+    private void admit(String id, Object value) {
+        removeExpired();
+        if(entries.size() >= maximumSize && !entries.containsKey(id)) {
+            String victim = entries.keySet().iterator().next();
+            if(sketch.frequency(id) <= sketch.frequency(victim))
+                return;
+            entries.remove(victim);
+            evictions.increment();
+        }
+        entries.put(id, new Entry(value, System.nanoTime() + timeToLiveNanos));
+    }
+
+    private Object store(T value) {
+        return encoder == null ? value : encoder.apply(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T restore(Object stored) {
+        return decoder == null ? (T) stored : decoder.apply((String) stored);
+    }
+
+    private void evictOverflow() {
+        removeExpired();
+        Iterator<String> eldest = entries.keySet().iterator();
+        while(entries.size() > maximumSize) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes expired entries from the least recently used end until the first one that is still valid.
+     */
+    private void removeExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while(eldest.hasNext() && eldest.next().expiresAt() - now <= 0)
+            eldest.remove();
+    }
+
+    /**
+     * A count-min sketch of 4 rows, with counters saturating at 15.
+     * All counters are halved once the number of increments reaches ten times the cache size.
+     */
+    private static class FrequencySketch {
+
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int increments;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize * 2 - 1)) << 1;
+            this.counters = new byte[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = Math.max(10 * maximumSize, 100);
+        }
+
+        synchronized void increment(String key) {
+            int hash = key.hashCode();
+            for(int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if(counters[row][index] < MAX_COUNT)
+                    counters[row][index]++;
+            }
+            if(++increments >= sampleSize)
+                age();
+        }
+
+        synchronized int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for(int row = 0; row < SEEDS.length; row++)
+                frequency = Math.min(frequency, counters[row][index(hash, row)]);
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void age() {
+            increments /= 2;
+            for(byte[] row : counters)
+                for(int i = 0; i < row.length; i++)
+                    row[i] >>= 1;
+        }
+    }
+
+}
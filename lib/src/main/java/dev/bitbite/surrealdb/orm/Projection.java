@@ -0,0 +1,175 @@
+package dev.bitbite.surrealdb.orm;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+
+import dev.bitbite.surrealdb.codec.Codec;
+
+/**
+ * The fields a projection type selects, and how rows are decoded into it.
+ * <p>
+ * The fields of a record are its components, decoded by the codec like any other type.
+ * The fields of an interface are its abstract methods without parameters, named after the property of a getter
+ * (<code>getName()</code> and <code>isActive()</code> select <code>name</code> and <code>active</code>)
+ * or after the method itself. Rows are decoded into a proxy returning the value of the field for each method.
+ * A field may be renamed with {@link SerializedName} on the component or method.
+ * </p>
+ * @param <P> The projection type.
+ */
+class Projection<P> {
+
+    private static final ClassValue<Projection<?>> PROJECTIONS = new ClassValue<>() {
+        @Override
+        protected Projection<?> computeValue(Class<?> type) {
+            return new Projection<>(type);
+        }
+    };
+
+    private final Class<P> type;
+    private final String[] fields;
+    private final Map<Method, String> methods;
+
+    private Projection(Class<P> type) {
+        this.type = type;
+        if(type.isRecord()) {
+            this.methods = null;
+            this.fields = Arrays.stream(type.getRecordComponents())
+                .map(component -> name(component.getAccessor(), component.getName()))
+                .toArray(String[]::new);
+        } else if(type.isInterface()) {
+            this.methods = new LinkedHashMap<>();
+            for(Method method : type.getMethods()) {
+                if(!Modifier.isAbstract(method.getModifiers()) || isObjectMethod(method))
+                    continue;
+                if(method.getParameterCount() != 0 || method.getReturnType() == void.class)
+                    throw new IllegalArgumentException("The method "+method.getName()+" of the projection "+type.getName()+" is no getter");
+                this.methods.put(method, name(method, property(method)));
+            }
+            // the order of the methods is unspecified, so the fields are sorted to render the same query every time
+            this.fields = this.methods.values().stream().distinct().sorted().toArray(String[]::new);
+        } else {
+            throw new IllegalArgumentException("The projection "+type.getName()+" has to be a record or an interface");
+        }
+        if(this.fields.length == 0)
+            throw new IllegalArgumentException("The projection "+type.getName()+" has no fields");
+    }
+
+    /**
+     * Returns the projection of a type, which is resolved once per type.
+     * @throws IllegalArgumentException if the type is neither a record nor an interface of getters
+     */
+    @SuppressWarnings("unchecked")
+    static <P> Projection<P> of(Class<P> type) {
+        return (Projection<P>) PROJECTIONS.get(type);
+    }
+
+    /**
+     * @return the names of the fields to select
+     */
+    String[] getFields() {
+        return fields.clone();
+    }
+
+    /**
+     * @return whether rows are decoded by the codec, otherwise they are read as JSON objects and passed to {@link #decode(JsonObject, Codec)}
+     */
+    boolean isRecord() {
+        return methods == null;
+    }
+
+    Class<P> getType() {
+        return type;
+    }
+
+    /**
+     * Decodes a row into a proxy of the interface
+     */
+    P decode(JsonObject row, Codec codec) {
+        if(row == null)
+            return null;
+        Map<Method, Object> values = new LinkedHashMap<>();
+        methods.forEach((method, field) -> {
+            JsonElement value = row.get(field);
+            Object decoded = value == null || value.isJsonNull() ? null : codec.adapter(method.getGenericReturnType()).fromJsonTree(value);
+            if(decoded == null && method.getReturnType().isPrimitive())
+                decoded = Array.get(Array.newInstance(method.getReturnType(), 1), 0);
+            values.put(method, decoded);
+        });
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new Row(type, values)));
+    }
+
+    /**
+     * Decodes rows into proxies of the interface
+     */
+    List<P> decode(List<JsonObject> rows, Codec codec) {
+        List<P> decoded = new ArrayList<>(rows.size());
+        for(JsonObject row : rows)
+            decoded.add(decode(row, codec));
+        return decoded;
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static String property(Method method) {
+        String name = method.getName();
+        if(name.length() > 3 && name.startsWith("get"))
+            return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+        if(name.length() > 2 && name.startsWith("is") && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class))
+            return Character.toLowerCase(name.charAt(2)) + name.substring(3);
+        return name;
+    }
+
+    /**
+     * Annotations of record components are propagated to their accessors
+     */
+    private static String name(Method method, String name) {
+        SerializedName serialized = method.getAnnotation(SerializedName.class);
+        return serialized != null ? serialized.value() : name;
+    }
+
+    /**
+     * The values of a row decoded into a proxy
+     */
+    private record Row(Class<?> type, Map<Method, Object> values) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if(values.containsKey(method))
+                return values.get(method);
+            if(method.isDefault())
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            return switch(method.getName()) {
+                case "equals" -> args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                    && Proxy.getInvocationHandler(args[0]) instanceof Row other
+                    && type == other.type && Objects.equals(values, other.values);
+                case "hashCode" -> values.hashCode();
+                case "toString" -> type.getSimpleName() + values.entrySet().stream()
+                    .map(entry -> entry.getKey().getName() + "=" + entry.getValue())
+                    .collect(Collectors.joining(", ", "[", "]"));
+                default -> throw new UnsupportedOperationException(method.toString());
+            };
+        }
+    }
+
+}
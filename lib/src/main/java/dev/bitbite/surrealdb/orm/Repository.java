@@ -1,8 +1,21 @@
 package dev.bitbite.surrealdb.orm;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonObject;
 
 import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.LiveNotification;
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.QueryResult;
 import dev.bitbite.surrealdb.query.SelectQuery;
 
 /**
@@ -10,10 +23,17 @@ import dev.bitbite.surrealdb.query.SelectQuery;
  * @param <T> The type of objects managed by this repository.
  */
 public class Repository<T extends Identifiable> {
+
+    /**
+     * The maximum number of objects tracked by {@link #enableChangeTracking()}.
+     */
+    public static final int DEFAULT_TRACKED_OBJECTS = 10_000;
     
     private final Class<T> type;
     private final String tableName;
     private SurrealDBConnection connection;
+    private volatile EntityCache<T> cache;
+    private volatile ChangeTracker tracker;
 
     /**
      * Constructs a new Repository object.
@@ -24,6 +44,7 @@ public class Repository<T extends Identifiable> {
         this.type = type;
         this.tableName = type.getSimpleName().toLowerCase();
         this.connection = connection;
+        connection.getCodec().register(type);
     }
 
     /**
@@ -32,16 +53,121 @@ public class Repository<T extends Identifiable> {
      * @return The added object.
      */
     public T add(T object) {
-        return connection.create(this.tableName, object).get(0).getResult().get(0);
+        return cached(connection.create(this.tableName, object).get(0).getResult().get(0));
+    }
+
+    /**
+     * Adds a new object to the repository without blocking the calling thread.
+     * @param object The object to be added.
+     * @return A future completing with the added object.
+     */
+    public CompletableFuture<T> addAsync(T object) {
+        return connection.createAsync(this.tableName, object).thenApply(result -> cached(result.get(0).getResult().get(0)));
+    }
+
+    /**
+     * Adds many new objects to the repository.
+     * The objects are sent in chunks of <code>INSERT</code> statements instead of one request per object.
+     * @param objects The objects to be added.
+     * @return The added objects, in the same order as the input.
+     * @see SurrealDBConnection#insert(String, List)
+     */
+    public List<T> addAll(Collection<T> objects) {
+        return cached(connection.insert(this.tableName, List.copyOf(objects)));
+    }
+
+    /**
+     * Adds many new objects to the repository without blocking the calling thread.
+     * @param objects The objects to be added.
+     * @return A future completing with the added objects, in the same order as the input.
+     */
+    public CompletableFuture<List<T>> addAllAsync(Collection<T> objects) {
+        return connection.insertAsync(this.tableName, List.copyOf(objects)).thenApply(this::cached);
+    }
+
+    /**
+     * Adds many objects to the repository, updating the ones that already exist.
+     * @param objects The objects to be added or updated.
+     * @return The added or updated objects, in the same order as the input.
+     * @see SurrealDBConnection#upsert(String, List)
+     */
+    public List<T> upsertAll(Collection<T> objects) {
+        try {
+            return cached(connection.upsert(this.tableName, List.copyOf(objects)));
+        } catch (RuntimeException e) {
+            objects.forEach(this::invalidate);
+            throw e;
+        }
+    }
+
+    /**
+     * Adds many objects to the repository, updating the ones that already exist, without blocking the calling thread.
+     * @param objects The objects to be added or updated.
+     * @return A future completing with the added or updated objects, in the same order as the input.
+     */
+    public CompletableFuture<List<T>> upsertAllAsync(Collection<T> objects) {
+        return connection.upsertAsync(this.tableName, List.copyOf(objects))
+            .whenComplete((result, error) -> {
+                if(error != null)
+                    objects.forEach(this::invalidate);
+            })
+            .thenApply(this::cached);
     }
 
     /**
      * Updates an existing object in the repository.
+     * If change tracking is enabled and the object is tracked, only the changed fields are merged into the record,
+     * and no request is sent at all if nothing changed.
      * @param object The object to be updated.
      * @return The updated object.
+     * @see #enableChangeTracking()
      */
     public T update(T object) {
-        return connection.update(this.tableName, object.getId().split(":")[1], object).get(0).getResult().get(0);
+        JsonObject changes = changes(object);
+        if(changes != null && changes.size() == 0)
+            return object;
+        try {
+            if(changes != null)
+                return cached(merged(connection.merge(this.tableName, key(object), changes)));
+            return cached(connection.update(this.tableName, object.getId().split(":")[1], object).get(0).getResult().get(0));
+        } catch (RuntimeException e) {
+            invalidate(object);
+            throw e;
+        }
+    }
+
+    /**
+     * Updates an existing object in the repository without blocking the calling thread.
+     * If change tracking is enabled and the object is tracked, only the changed fields are merged into the record,
+     * and no request is sent at all if nothing changed.
+     * @param object The object to be updated.
+     * @return A future completing with the updated object.
+     * @see #enableChangeTracking()
+     */
+    public CompletableFuture<T> updateAsync(T object) {
+        JsonObject changes = changes(object);
+        if(changes != null && changes.size() == 0)
+            return CompletableFuture.completedFuture(object);
+        CompletableFuture<T> updated = changes != null
+            ? connection.<JsonObject>mergeAsync(this.tableName, key(object), changes).thenApply(this::merged)
+            : connection.updateAsync(this.tableName, object.getId().split(":")[1], object).thenApply(result -> result.get(0).getResult().get(0));
+        return updated
+            .whenComplete((result, error) -> {
+                if(error != null)
+                    invalidate(object);
+            })
+            .thenApply(this::cached);
+    }
+
+    private JsonObject changes(T object) {
+        ChangeTracker tracker = this.tracker;
+        if(tracker == null || object.getId() == null)
+            return null;
+        return tracker.diff(key(object), object, connection.getCodec());
+    }
+
+    private T merged(List<QueryResult<JsonObject>> result) {
+        return connection.getCodec().<T>adapter(this.type).fromJsonTree(result.get(0).getResult().get(0));
     }
 
     /**
@@ -50,7 +176,24 @@ public class Repository<T extends Identifiable> {
      * @return The deleted object.
      */
     public T delete(T object) {
-        return connection.delete(this.type, this.tableName, object.getId()).get(0).getResult().get(0);
+        invalidate(object);
+        try {
+            return connection.delete(this.type, this.tableName, object.getId()).get(0).getResult().get(0);
+        } finally {
+            invalidate(object);
+        }
+    }
+
+    /**
+     * Deletes an object from the repository without blocking the calling thread.
+     * @param object The object to be deleted.
+     * @return A future completing with the deleted object.
+     */
+    public CompletableFuture<T> deleteAsync(T object) {
+        invalidate(object);
+        return connection.deleteAsync(this.type, this.tableName, object.getId())
+            .whenComplete((result, error) -> invalidate(object))
+            .thenApply(result -> result.get(0).getResult().get(0));
     }
 
     /**
@@ -59,7 +202,31 @@ public class Repository<T extends Identifiable> {
      * @return The retrieved object.
      */
     public T get(String id) {
-        return connection.select(this.type, this.tableName, id.contains(":") ? id.split(":")[1] : id).getResult().get(0);
+        if(this.cache != null) {
+            try {
+                return getAsync(id).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new SurrealException(e.getCause());
+            }
+        }
+        return tracked(connection.select(this.type, this.tableName, id.contains(":") ? id.split(":")[1] : id).getResult().get(0));
+    }
+
+    /**
+     * Retrieves an object from the repository by its ID without blocking the calling thread.
+     * @param id The ID of the object to retrieve.
+     * @return A future completing with the retrieved object.
+     */
+    public CompletableFuture<T> getAsync(String id) {
+        String key = id.contains(":") ? id.split(":")[1] : id;
+        EntityCache<T> cache = this.cache;
+        if(cache != null)
+            return cache.get(key, this::load);
+        return load(key);
+    }
+
+    private CompletableFuture<T> load(String id) {
+        return connection.selectAsync(this.type, this.tableName, id).thenApply(result -> tracked(result.getResult().get(0)));
     }
 
     /**
@@ -69,7 +236,17 @@ public class Repository<T extends Identifiable> {
      */
     public List<T> getSpecific(SelectQuery query) {
         query.from(this.tableName);
-        return connection.query(this.type, query).get(0).getResult();
+        return tracked(connection.query(this.type, query).get(0).getResult());
+    }
+
+    /**
+     * Retrieves a list of objects from the repository based on a specific query without blocking the calling thread.
+     * @param query The SelectQuery object representing the query.
+     * @return A future completing with the list of retrieved objects.
+     */
+    public CompletableFuture<List<T>> getSpecificAsync(SelectQuery query) {
+        query.from(this.tableName);
+        return connection.queryAsync(this.type, query).thenApply(result -> tracked(result.get(0).getResult()));
     }
 
     /**
@@ -77,7 +254,223 @@ public class Repository<T extends Identifiable> {
      * @return The list of all objects in the repository.
      */
     public List<T> getAll() {
-        return connection.select(type, tableName).getResult();
+        return tracked(connection.select(type, tableName).getResult());
+    }
+
+    /**
+     * Retrieves all objects from the repository without blocking the calling thread.
+     * @return A future completing with the list of all objects in the repository.
+     */
+    public CompletableFuture<List<T>> getAllAsync() {
+        return connection.selectAsync(type, tableName).thenApply(result -> tracked(result.getResult()));
+    }
+
+    /**
+     * Retrieves all objects of the repository as projections, selecting only the fields of the projection type.
+     * The query renders e.g. <code>SELECT id, name FROM person</code> and its rows are decoded into the projection,
+     * which is cheaper than retrieving whole objects when just a few fields are needed.
+     * <p>
+     * A projection is a record, which selects its components, or an interface, which selects a field for every getter
+     * (<code>getName()</code>, <code>isActive()</code>, or a method named like the field).
+     * A field may be renamed with {@link com.google.gson.annotations.SerializedName SerializedName}.
+     * Projections are neither cached nor tracked.
+     * </p>
+     * @param <P> The projection type.
+     * @param projection The projection type.
+     * @return The projections of all objects in the repository.
+     * @throws IllegalArgumentException If the projection is neither a record nor an interface of getters.
+     */
+    public <P> List<P> getAll(Class<P> projection) {
+        return getSpecific(projection, new SelectQuery());
+    }
+
+    /**
+     * Retrieves all objects of the repository as projections without blocking the calling thread.
+     * @param <P> The projection type.
+     * @param projection The projection type.
+     * @return A future completing with the projections of all objects in the repository.
+     * @throws IllegalArgumentException If the projection is neither a record nor an interface of getters.
+     * @see #getAll(Class)
+     */
+    public <P> CompletableFuture<List<P>> getAllAsync(Class<P> projection) {
+        return getSpecificAsync(projection, new SelectQuery());
+    }
+
+    /**
+     * Retrieves the objects matching a specific query as projections.
+     * The fields of the query are replaced by the fields of the projection.
+     * @param <P> The projection type.
+     * @param projection The projection type.
+     * @param query The SelectQuery object representing the query.
+     * @return The projections of the retrieved objects.
+     * @throws IllegalArgumentException If the projection is neither a record nor an interface of getters.
+     * @see #getAll(Class)
+     */
+    public <P> List<P> getSpecific(Class<P> projection, SelectQuery query) {
+        Projection<P> fields = project(projection, query);
+        if(fields.isRecord())
+            return connection.query(projection, query).get(0).getResult();
+        return fields.decode(connection.query(JsonObject.class, query).get(0).getResult(), connection.getCodec());
+    }
+
+    /**
+     * Retrieves the objects matching a specific query as projections without blocking the calling thread.
+     * The fields of the query are replaced by the fields of the projection.
+     * @param <P> The projection type.
+     * @param projection The projection type.
+     * @param query The SelectQuery object representing the query.
+     * @return A future completing with the projections of the retrieved objects.
+     * @throws IllegalArgumentException If the projection is neither a record nor an interface of getters.
+     * @see #getAll(Class)
+     */
+    public <P> CompletableFuture<List<P>> getSpecificAsync(Class<P> projection, SelectQuery query) {
+        Projection<P> fields = project(projection, query);
+        if(fields.isRecord())
+            return connection.queryAsync(projection, query).thenApply(result -> result.get(0).getResult());
+        Codec codec = connection.getCodec();
+        return connection.queryAsync(JsonObject.class, query).thenApply(result -> fields.decode(result.get(0).getResult(), codec));
+    }
+
+    private <P> Projection<P> project(Class<P> projection, SelectQuery query) {
+        Projection<P> fields = Projection.of(projection);
+        query.fields(fields.getFields()).from(this.tableName);
+        return fields;
+    }
+
+    /**
+     * Streams all objects of the repository.
+     * The objects are decoded one at a time while the response is read, the table is never held in memory as a whole.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @return A stream of all objects in the repository.
+     */
+    public Stream<T> streamAll() {
+        return connection.selectStream(type, tableName);
+    }
+
+    /**
+     * Streams the objects of the repository matching a specific query.
+     * The stream has to be closed after use, e.g. with try-with-resources.
+     * @param query The SelectQuery object representing the query.
+     * @return A stream of the retrieved objects.
+     */
+    public Stream<T> streamSpecific(SelectQuery query) {
+        query.from(this.tableName);
+        return connection.queryStream(this.type, query);
+    }
+
+    /**
+     * Streams all objects of the repository, ordered by ID, in pages of 1000 objects.
+     * Unlike {@link #streamAll()}, which reads the whole table with a single request,
+     * every page is a separate query, so the server never has to produce the whole table at once.
+     * The stream should be closed if it is not consumed completely.
+     * @return A lazy stream of all objects in the repository.
+     * @see SurrealDBConnection#scan(String, Class, int)
+     */
+    public Stream<T> stream() {
+        return stream(1000);
+    }
+
+    /**
+     * Streams all objects of the repository, ordered by ID, in pages of the specified size.
+     * The stream should be closed if it is not consumed completely.
+     * @param pageSize The number of objects per page.
+     * @return A lazy stream of all objects in the repository.
+     * @see SurrealDBConnection#scan(String, Class, int)
+     */
+    public Stream<T> stream(int pageSize) {
+        return connection.scan(this.tableName, this.type, pageSize);
+    }
+
+    /**
+     * Watches the table of the repository for changes.
+     * Every subscriber is notified of each object created, updated or deleted after it subscribed,
+     * with the object decoded into the type of the repository.
+     * @return A publisher of the changes to the repository.
+     * @see SurrealDBConnection#live(SelectQuery, Class)
+     */
+    public Flow.Publisher<LiveNotification<T>> watch() {
+        return connection.live(Query.selectAll().from(this.tableName), this.type);
+    }
+
+    /**
+     * Enables caching of the objects retrieved by {@link #get(String)}.
+     * Objects added, updated or deleted through this repository keep the cache up to date,
+     * changes made by other means become visible once the cached object expired.
+     * The cache keeps the JSON of every object and every hit decodes a new object from it,
+     * so changes made to a retrieved object are neither seen by other callers nor cached until it is updated.
+     * @param maximumSize The maximum number of objects held in the cache.
+     * @param timeToLive The time after which a cached object is retrieved again.
+     * @return The cache, which also provides its hit, miss and eviction counts.
+     * @see EntityCache
+     */
+    public EntityCache<T> enableCache(int maximumSize, Duration timeToLive) {
+        this.cache = new EntityCache<>(maximumSize, timeToLive,
+            object -> connection.getCodec().toJson(object),
+            json -> connection.getCodec().getGson().fromJson(json, this.type));
+        return this.cache;
+    }
+
+    /**
+     * Disables caching of objects.
+     */
+    public void disableCache() {
+        this.cache = null;
+    }
+
+    /**
+     * Returns the cache of the repository.
+     * @return The cache, or null if caching is not enabled.
+     */
+    public EntityCache<T> getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Enables change tracking of up to {@value #DEFAULT_TRACKED_OBJECTS} objects.
+     * @see #enableChangeTracking(int)
+     */
+    public void enableChangeTracking() {
+        if(this.tracker == null)
+            this.tracker = new ChangeTracker(DEFAULT_TRACKED_OBJECTS);
+    }
+
+    /**
+     * Enables change tracking of the objects loaded or saved through this repository.
+     * <p>
+     * The state of every object retrieved by <code>get</code>, <code>getSpecific</code> or <code>getAll</code>,
+     * or returned by <code>add</code>, <code>update</code> and their variants, is remembered by its ID.
+     * {@link #update(Identifiable) update} then merges only the fields that changed since into the record,
+     * and skips the request entirely if none did. Objects that are not tracked, or that had a field set to null
+     * or removed, including fields of nested objects, are still replaced as a whole. Objects retrieved through streams are not tracked.
+     * </p>
+     * <p>
+     * The state is kept as a JSON copy of each object until the object is deleted, change tracking is disabled,
+     * or the maximum number of tracked objects is reached and the object is the one least recently
+     * loaded or saved. Memory therefore grows with the number of tracked objects, not with the number of reads.
+     * </p>
+     * <p>
+     * Unlike a full update, a merge keeps fields of the record that are not part of the object.
+     * </p>
+     * @param maximumObjects The maximum number of objects whose state is remembered.
+     */
+    public void enableChangeTracking(int maximumObjects) {
+        this.tracker = new ChangeTracker(maximumObjects);
+    }
+
+    /**
+     * Disables change tracking and forgets the state of all tracked objects.
+     */
+    public void disableChangeTracking() {
+        this.tracker = null;
+    }
+
+    /**
+     * Returns whether change tracking is enabled.
+     * @return true if change tracking is enabled.
+     * @see #enableChangeTracking()
+     */
+    public boolean isChangeTracking() {
+        return this.tracker != null;
     }
 
     /**
@@ -86,5 +479,50 @@ public class Repository<T extends Identifiable> {
      */
     public void setConnection(SurrealDBConnection connection) {
         this.connection = connection;
+        EntityCache<T> cache = this.cache;
+        if(cache != null)
+            cache.invalidateAll();
+        ChangeTracker tracker = this.tracker;
+        if(tracker != null)
+            this.tracker = new ChangeTracker(tracker.getMaximumSize());
+        connection.getCodec().register(this.type);
+    }
+
+    private T cached(T object) {
+        EntityCache<T> cache = this.cache;
+        if(cache != null && object != null && object.getId() != null)
+            cache.put(key(object), object);
+        return tracked(object);
+    }
+
+    private T tracked(T object) {
+        ChangeTracker tracker = this.tracker;
+        if(tracker != null && object != null && object.getId() != null)
+            tracker.track(key(object), object, connection.getCodec());
+        return object;
+    }
+
+    private List<T> tracked(List<T> objects) {
+        objects.forEach(this::tracked);
+        return objects;
+    }
+
+    private List<T> cached(List<T> objects) {
+        objects.forEach(this::cached);
+        return objects;
+    }
+
+    private void invalidate(T object) {
+        EntityCache<T> cache = this.cache;
+        if(cache != null && object.getId() != null)
+            cache.invalidate(key(object));
+        ChangeTracker tracker = this.tracker;
+        if(tracker != null && object.getId() != null)
+            tracker.forget(key(object));
+    }
+
+    private static String key(Identifiable object) {
+        String id = object.getId();
+        return id.contains(":") ? id.split(":")[1] : id;
     }
 }
@@ -0,0 +1,388 @@
+package dev.bitbite.surrealdb.query;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+/**
+ * The rows of the first query result in a response, decoded field by field into primitive arrays.
+ * <p>
+ * Every selected field becomes a column holding its values in a <code>double[]</code>, <code>long[]</code>
+ * or <code>int[]</code>, so aggregating a column neither boxes its values nor keeps a map per row.
+ * Rows without the field or with <code>NONE</code> or <code>NULL</code> as value are marked in a bitmap of the column
+ * and hold 0. Other fields of the rows are skipped while reading.
+ * </p>
+ */
+public class ColumnarResult {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int size;
+    private final Map<String, Column> columns;
+
+    private ColumnarResult(int size, Map<String, Column> columns) {
+        this.size = size;
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    /**
+     * Reads the rows of the first query result in the specified response body into columns.
+     * The body is closed afterwards.
+     * @param columns The fields to read and the types of their columns.
+     * @param body The response body, a JSON array of query results.
+     * @return The columns of the rows.
+     * @throws SurrealException If the status of the first query result is not "OK", or a value does not fit the type of its column.
+     */
+    public static ColumnarResult read(Columns columns, Reader body) {
+        return read(Codec.getDefault(), columns, body);
+    }
+
+    /**
+     * Reads the rows of the first query result in the specified response body into columns.
+     * The body is closed afterwards.
+     * @param codec The codec providing the settings of the JSON reader.
+     * @param columns The fields to read and the types of their columns.
+     * @param body The response body, a JSON array of query results.
+     * @return The columns of the rows.
+     * @throws SurrealException If the status of the first query result is not "OK", or a value does not fit the type of its column.
+     */
+    public static ColumnarResult read(Codec codec, Columns columns, Reader body) {
+        Map<String, Column> read = new LinkedHashMap<>();
+        columns.getTypes().forEach((field, type) -> read.put(field, switch(type) {
+            case DOUBLE -> new DoubleColumn();
+            case LONG -> new LongColumn();
+            case INT -> new IntColumn();
+        }));
+        RowReader rows = new RowReader(read);
+        try (QueryResultReader<Void> reader = new QueryResultReader<>(codec, rows, body)) {
+            while(reader.hasNext())
+                reader.next();
+        }
+        read.values().forEach(column -> column.trim(rows.size));
+        return new ColumnarResult(rows.size, read);
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the column of a field decoded into doubles.
+     * @param field The name of the field.
+     * @return The column of the field.
+     * @throws IllegalArgumentException If the field was not read as doubles.
+     */
+    public DoubleColumn getDoubles(String field) {
+        return column(field, DoubleColumn.class);
+    }
+
+    /**
+     * Gets the column of a field decoded into longs.
+     * @param field The name of the field.
+     * @return The column of the field.
+     * @throws IllegalArgumentException If the field was not read as longs.
+     */
+    public LongColumn getLongs(String field) {
+        return column(field, LongColumn.class);
+    }
+
+    /**
+     * Gets the column of a field decoded into ints.
+     * @param field The name of the field.
+     * @return The column of the field.
+     * @throws IllegalArgumentException If the field was not read as ints.
+     */
+    public IntColumn getInts(String field) {
+        return column(field, IntColumn.class);
+    }
+
+    private <C extends Column> C column(String field, Class<C> type) {
+        Column column = columns.get(field);
+        if(!type.isInstance(column))
+            throw new IllegalArgumentException("The field "+field+" was not read as "+type.getSimpleName());
+        return type.cast(column);
+    }
+
+    /**
+     * Returns a string representation of the ColumnarResult object.
+     * @return A string representation of the ColumnarResult object.
+     */
+    @Override
+    public String toString() {
+        return "ColumnarResult [size=" + size + ", columns=" + columns.keySet() + "]";
+    }
+
+    /**
+     * A column of a primitive type with a bitmap of the rows without a value.
+     */
+    public abstract static class Column {
+
+        private long[] nulls = new long[INITIAL_CAPACITY / 64];
+        private int nullCount;
+
+        private Column() {
+        }
+
+        /**
+         * Checks if a row has no value in this column.
+         * @param row The index of the row.
+         * @return true if the value of the row is missing, <code>NONE</code> or <code>NULL</code>.
+         */
+        public boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        /**
+         * Gets the number of rows without a value.
+         * @return The number of rows without a value.
+         */
+        public int getNullCount() {
+            return nullCount;
+        }
+
+        /**
+         * Gets the bitmap of the rows without a value, bit <code>row % 64</code> of word <code>row / 64</code>
+         * being set for every such row. The bitmap is shared, not copied.
+         * @return The bitmap of the rows without a value.
+         */
+        public long[] getNulls() {
+            return nulls;
+        }
+
+        /**
+         * Marks a row as having no value until one is read
+         */
+        void markNull(int row) {
+            if(row >>> 6 >= nulls.length)
+                nulls = Arrays.copyOf(nulls, nulls.length * 2);
+            nulls[row >>> 6] |= 1L << row;
+            nullCount++;
+        }
+
+        void read(JsonReader reader, int row) throws IOException {
+            if(reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return;
+            }
+            set(reader, row);
+            nulls[row >>> 6] &= ~(1L << row);
+            nullCount--;
+        }
+
+        abstract void set(JsonReader reader, int row) throws IOException;
+
+        abstract String typeName();
+
+        void trim(int size) {
+            nulls = Arrays.copyOf(nulls, (size + 63) >>> 6);
+        }
+
+        /**
+         * Returns the length of the values to hold a row, growing by half but at least to the row,
+         * as a column may be missing from any number of rows before its first value
+         */
+        static int capacity(int length, int row) {
+            return row < length ? length : Math.max(row + 1, Math.max(length + (length >> 1), INITIAL_CAPACITY));
+        }
+    }
+
+    /**
+     * A column of doubles.
+     */
+    public static final class DoubleColumn extends Column {
+
+        private double[] values = new double[0];
+
+        private DoubleColumn() {
+        }
+
+        /**
+         * Gets the value of a row.
+         * @param row The index of the row.
+         * @return The value, or 0 if the row has no value.
+         */
+        public double get(int row) {
+            return values[row];
+        }
+
+        /**
+         * Gets the values of all rows, 0 for rows without a value. The array is shared, not copied.
+         * @return The values of all rows.
+         */
+        public double[] values() {
+            return values;
+        }
+
+        @Override
+        void set(JsonReader reader, int row) throws IOException {
+            if(row >= values.length)
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            values[row] = reader.nextDouble();
+        }
+
+        @Override
+        String typeName() {
+            return "double";
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * A column of longs.
+     */
+    public static final class LongColumn extends Column {
+
+        private long[] values = new long[0];
+
+        private LongColumn() {
+        }
+
+        /**
+         * Gets the value of a row.
+         * @param row The index of the row.
+         * @return The value, or 0 if the row has no value.
+         */
+        public long get(int row) {
+            return values[row];
+        }
+
+        /**
+         * Gets the values of all rows, 0 for rows without a value. The array is shared, not copied.
+         * @return The values of all rows.
+         */
+        public long[] values() {
+            return values;
+        }
+
+        @Override
+        void set(JsonReader reader, int row) throws IOException {
+            if(row >= values.length)
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            values[row] = reader.nextLong();
+        }
+
+        @Override
+        String typeName() {
+            return "long";
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * A column of ints.
+     */
+    public static final class IntColumn extends Column {
+
+        private int[] values = new int[0];
+
+        private IntColumn() {
+        }
+
+        /**
+         * Gets the value of a row.
+         * @param row The index of the row.
+         * @return The value, or 0 if the row has no value.
+         */
+        public int get(int row) {
+            return values[row];
+        }
+
+        /**
+         * Gets the values of all rows, 0 for rows without a value. The array is shared, not copied.
+         * @return The values of all rows.
+         */
+        public int[] values() {
+            return values;
+        }
+
+        @Override
+        void set(JsonReader reader, int row) throws IOException {
+            if(row >= values.length)
+                values = Arrays.copyOf(values, capacity(values.length, row));
+            values[row] = reader.nextInt();
+        }
+
+        @Override
+        String typeName() {
+            return "int";
+        }
+
+        @Override
+        void trim(int size) {
+            super.trim(size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Reads a row into the columns instead of into an object.
+     */
+    private static class RowReader extends TypeAdapter<Void> {
+
+        private final Map<String, Column> columns;
+        private int size;
+
+        RowReader(Map<String, Column> columns) {
+            this.columns = new HashMap<>(columns);
+        }
+
+        @Override
+        public Void read(JsonReader reader) throws IOException {
+            int row = size++;
+            for(Column column : columns.values())
+                column.markNull(row);
+            if(reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String field = reader.nextName();
+                Column column = columns.get(field);
+                if(column == null) {
+                    reader.skipValue();
+                    continue;
+                }
+                try {
+                    column.read(reader, row);
+                } catch (IllegalStateException | NumberFormatException e) {
+                    throw new SurrealException("The field "+field+" of row "+row+" is not a "+column.typeName(), e);
+                }
+            }
+            reader.endObject();
+            return null;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Void value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package dev.bitbite.surrealdb.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fields a {@link ColumnarResult} is decoded into, each with the primitive type of its column.
+ * <p>
+ * Fields are the top level fields of the rows, nested values have to be selected with an alias,
+ * e.g. <code>SELECT price.amount AS amount FROM order</code>.
+ * Columns are immutable and may be reused for any number of queries.
+ * </p>
+ */
+public class Columns {
+
+    /**
+     * The primitive type of a column
+     */
+    public enum Type {
+        DOUBLE, LONG, INT
+    }
+
+    private final Map<String, Type> types;
+
+    private Columns(Map<String, Type> types) {
+        this.types = Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Create a builder for columns
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the fields and the types of their columns
+     * @return fields in the order they were added
+     */
+    public Map<String, Type> getTypes() {
+        return types;
+    }
+
+    /**
+     * Builder for {@link Columns}
+     */
+    public static class Builder {
+
+        private final Map<String, Type> types = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Decode fields into <code>double[]</code> columns
+         * @param fields names of the fields
+         * @return this builder
+         */
+        public Builder doubles(String... fields) {
+            return add(Type.DOUBLE, fields);
+        }
+
+        /**
+         * Decode fields into <code>long[]</code> columns
+         * @param fields names of the fields
+         * @return this builder
+         */
+        public Builder longs(String... fields) {
+            return add(Type.LONG, fields);
+        }
+
+        /**
+         * Decode fields into <code>int[]</code> columns
+         * @param fields names of the fields
+         * @return this builder
+         */
+        public Builder ints(String... fields) {
+            return add(Type.INT, fields);
+        }
+
+        private Builder add(Type type, String... fields) {
+            for(String field : fields) {
+                if(types.putIfAbsent(field, type) != null)
+                    throw new IllegalArgumentException("The field "+field+" was already added");
+            }
+            return this;
+        }
+
+        /**
+         * Build the columns
+         * @return the columns
+         * @throws IllegalArgumentException if no field was added
+         */
+        public Columns build() {
+            if(types.isEmpty())
+                throw new IllegalArgumentException("At least one field has to be added");
+            return new Columns(new LinkedHashMap<>(types));
+        }
+    }
+
+}
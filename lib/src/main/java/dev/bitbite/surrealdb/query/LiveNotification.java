@@ -0,0 +1,66 @@
+package dev.bitbite.surrealdb.query;
+
+/**
+ * Represents a change reported by a live query.
+ * @param <T> The type of the changed record.
+ */
+public class LiveNotification<T> {
+
+    /**
+     * The kind of change.
+     */
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+
+    private final Action action;
+    private final String recordId;
+    private final T result;
+
+    /**
+     * Constructs a LiveNotification object.
+     * @param action The kind of change.
+     * @param recordId The ID of the changed record.
+     * @param result The record after the change, or before it was deleted. May be null for deletions.
+     */
+    public LiveNotification(Action action, String recordId, T result) {
+        this.action = action;
+        this.recordId = recordId;
+        this.result = result;
+    }
+
+    /**
+     * Gets the kind of change.
+     * @return The kind of change.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Gets the ID of the changed record, e.g. <code>person:1</code>.
+     * @return The ID of the changed record.
+     */
+    public String getRecordId() {
+        return recordId;
+    }
+
+    /**
+     * Gets the record after the change. For deletions this is the deleted record,
+     * or null if the server only reports the ID of deleted records.
+     * @return The changed record.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * Returns a string representation of the LiveNotification object.
+     * @return A string representation of the LiveNotification object.
+     */
+    @Override
+    public String toString() {
+        return "LiveNotification [action=" + action + ", recordId=" + recordId + ", result=" + result + "]";
+    }
+
+}
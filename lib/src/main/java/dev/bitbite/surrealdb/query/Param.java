@@ -0,0 +1,58 @@
+package dev.bitbite.surrealdb.query;
+
+import java.util.Objects;
+
+/**
+ * Represents a named query parameter, rendered as <code>$name</code>.
+ * <p>
+ * A parameter can be used as the value of a {@link WhereClause},
+ * its value is supplied when a {@link QueryTemplate} is executed.
+ * </p>
+ */
+public final class Param {
+
+    private final String name;
+
+    /**
+     * Constructs a Param object with the specified name.
+     * 
+     * @param name the name of the parameter, without the leading <code>$</code>
+     * @throws IllegalArgumentException if the name is not a valid parameter name
+     */
+    public Param(String name) {
+        if(name == null || !name.matches("[A-Za-z_][A-Za-z0-9_]*")){
+            throw new IllegalArgumentException("Invalid parameter name: "+name);
+        }
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the parameter.
+     * 
+     * @return the name of the parameter, without the leading <code>$</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Param param && param.name.equals(this.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name);
+    }
+
+    /**
+     * Returns the string representation of the parameter.
+     * 
+     * @return <code>$name</code>
+     */
+    @Override
+    public String toString() {
+        return "$"+name;
+    }
+
+}
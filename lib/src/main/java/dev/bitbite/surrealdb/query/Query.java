@@ -32,4 +32,16 @@ public abstract class Query {
         return new SelectQuery("*");
     }
 
+    /**
+     * Creates a new named parameter, to be used as the value of a WHERE clause
+     * and bound when the compiled query is executed.
+     *
+     * @param name the name of the parameter, without the leading <code>$</code>
+     * @return a new Param object
+     * @see SelectQuery#compile()
+     */
+    public static Param param(String name){
+        return new Param(name);
+    }
+
 }
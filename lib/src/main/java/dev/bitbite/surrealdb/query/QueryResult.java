@@ -1,12 +1,13 @@
 package dev.bitbite.surrealdb.query;
 
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import org.json.JSONArray;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
+import dev.bitbite.surrealdb.codec.Codec;
 import dev.bitbite.surrealdb.exception.SurrealException;
 
 /**
@@ -14,6 +15,8 @@ import dev.bitbite.surrealdb.exception.SurrealException;
  * @param <T> The type of the query result.
  */
 public class QueryResult<T> {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ns|µs|us|ms|s|m|h|d|w|y)");
     
     private String time;
     private String status;
@@ -45,6 +48,48 @@ public class QueryResult<T> {
         return time;
     }
 
+    /**
+     * Gets the time of the query execution as reported by the server, parsed into a Duration.
+     * @return The time of the query execution, or null if the server did not report it in a known format.
+     */
+    public Duration getDuration() {
+        return parseDuration(time);
+    }
+
+    /**
+     * Parses a duration as formatted by SurrealDB, e.g. <code>10.5µs</code>, <code>1.2ms</code> or <code>1m30s</code>.
+     * @param time The formatted duration.
+     * @return The parsed Duration, or null if the format is not known.
+     */
+    public static Duration parseDuration(String time) {
+        if(time == null || time.isEmpty())
+            return null;
+        Matcher part = DURATION_PART.matcher(time);
+        BigDecimal nanos = BigDecimal.ZERO;
+        int end = 0;
+        while(part.find()) {
+            if(part.start() != end)
+                return null;
+            nanos = nanos.add(new BigDecimal(part.group(1)).multiply(BigDecimal.valueOf(nanosPer(part.group(2)))));
+            end = part.end();
+        }
+        return end == time.length() ? Duration.ofNanos(nanos.longValue()) : null;
+    }
+
+    private static long nanosPer(String unit) {
+        return switch(unit) {
+            case "ns" -> 1L;
+            case "µs", "us" -> 1_000L;
+            case "ms" -> 1_000_000L;
+            case "s" -> 1_000_000_000L;
+            case "m" -> 60_000_000_000L;
+            case "h" -> 3_600_000_000_000L;
+            case "d" -> 86_400_000_000_000L;
+            case "w" -> 604_800_000_000_000L;
+            default -> 31_536_000_000_000_000L;
+        };
+    }
+
     /**
      * Gets the status of the query execution.
      * @return The status of the query execution.
@@ -67,17 +112,23 @@ public class QueryResult<T> {
      * @param type The class object representing the type of the query result.
      * @param json The JSON array to parse.
      * @return A list of QueryResult objects with the specified type.
+     * @throws SurrealException If a query failed or the JSON array cannot be parsed.
      */
     public static <T> List<QueryResult<T>> parseArray(Class<T> type, String json) {
-        Type queryResultType = TypeToken.getParameterized(QueryResult.class, type).getType();
-        Type resultType = TypeToken.getParameterized(List.class, queryResultType).getType();
-        try {
-            return new Gson().fromJson(json, resultType);
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.out.println(json);
-            return null;
-        }
+        return parseArray(Codec.getDefault(), type, json);
+    }
+
+    /**
+     * Parses a JSON array into a list of QueryResult objects with the specified type.
+     * @param <T> The type of the query result.
+     * @param codec The codec used to decode the results.
+     * @param type The class object representing the type of the query result.
+     * @param json The JSON array to parse.
+     * @return A list of QueryResult objects with the specified type.
+     * @throws SurrealException If a query failed or the JSON array cannot be parsed.
+     */
+    public static <T> List<QueryResult<T>> parseArray(Codec codec, Class<T> type, String json) {
+        return codec.parseResponse(type, json);
     }
 
     /**
@@ -86,17 +137,23 @@ public class QueryResult<T> {
      * @param type The type of the query result.
      * @param json The JSON array to parse.
      * @return A list of QueryResult objects with the specified type.
-     * @throws SurrealException If the status of the first query result is not "OK".
+     * @throws SurrealException If a query failed or the JSON array cannot be parsed.
      */
     public static <T> List<QueryResult<T>> parseArray(Type type, String json) {
-        JSONArray jsonObj = new JSONArray(json);
-        if(!jsonObj.getJSONObject(0).getString("status").equals("OK")){
-            throw new SurrealException(jsonObj.getJSONObject(0).getString("result"));
-        }
+        return parseArray(Codec.getDefault(), type, json);
+    }
 
-        Type queryResultType = TypeToken.getParameterized(QueryResult.class, type).getType();
-        Type resultType = TypeToken.getParameterized(List.class, queryResultType).getType();
-        return new Gson().fromJson(json, resultType);
+    /**
+     * Parses a JSON array into a list of QueryResult objects with the specified type.
+     * @param <T> The type of the query result.
+     * @param codec The codec used to decode the results.
+     * @param type The type of the query result.
+     * @param json The JSON array to parse.
+     * @return A list of QueryResult objects with the specified type.
+     * @throws SurrealException If a query failed or the JSON array cannot be parsed.
+     */
+    public static <T> List<QueryResult<T>> parseArray(Codec codec, Type type, String json) {
+        return codec.parseResponse(type, json);
     }
 
     /**
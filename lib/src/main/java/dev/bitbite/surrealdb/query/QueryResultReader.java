@@ -0,0 +1,201 @@
+package dev.bitbite.surrealdb.query;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+/**
+ * Reads the rows of the first query result in a response one at a time,
+ * without materializing the whole response or the list of rows.
+ * <p>
+ * The reader has to be closed once it is no longer needed, which closes the underlying response body.
+ * </p>
+ * @param <T> The type of the rows.
+ */
+public class QueryResultReader<T> implements Iterator<T>, AutoCloseable {
+
+    private final JsonReader reader;
+    private final TypeAdapter<T> adapter;
+    private boolean finished;
+
+    /**
+     * Constructs a QueryResultReader reading from the specified response body.
+     * @param type The type of the rows.
+     * @param body The response body, a JSON array of query results.
+     */
+    public QueryResultReader(Type type, Reader body) {
+        this(Codec.getDefault(), type, body);
+    }
+
+    /**
+     * Constructs a QueryResultReader reading from the specified response body.
+     * @param codec The codec used to decode the rows.
+     * @param type The type of the rows.
+     * @param body The response body, a JSON array of query results.
+     */
+    public QueryResultReader(Codec codec, Type type, Reader body) {
+        this(codec, codec.<T>adapter(type), body);
+    }
+
+    /**
+     * Constructs a QueryResultReader decoding the rows with the specified adapter.
+     */
+    QueryResultReader(Codec codec, TypeAdapter<T> adapter, Reader body) {
+        this.reader = codec.getGson().newJsonReader(body);
+        this.adapter = adapter;
+        try {
+            openResult();
+        } catch (IOException e) {
+            closeReader();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            closeReader();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a lazy stream over the rows of the specified response body.
+     * Closing the stream closes the response body.
+     * @param <T> The type of the rows.
+     * @param type The class object representing the type of the rows.
+     * @param body The response body, a JSON array of query results.
+     * @return A stream of the rows.
+     * @throws SurrealException If the status of the first query result is not "OK".
+     */
+    public static <T> Stream<T> stream(Class<T> type, Reader body) {
+        return stream(Codec.getDefault(), type, body);
+    }
+
+    /**
+     * Creates a lazy stream over the rows of the specified response body.
+     * Closing the stream closes the response body.
+     * @param <T> The type of the rows.
+     * @param codec The codec used to decode the rows.
+     * @param type The class object representing the type of the rows.
+     * @param body The response body, a JSON array of query results.
+     * @return A stream of the rows.
+     * @throws SurrealException If the status of the first query result is not "OK".
+     */
+    public static <T> Stream<T> stream(Codec codec, Class<T> type, Reader body) {
+        QueryResultReader<T> reader = new QueryResultReader<>(codec, type, body);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED), false)
+            .onClose(reader::close);
+    }
+
+    /**
+     * Checks if there is another row.
+     * @return true if there is another row, false otherwise.
+     */
+    @Override
+    public boolean hasNext() {
+        if(finished)
+            return false;
+        try {
+            if(reader.hasNext())
+                return true;
+            reader.endArray();
+            finishResult();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the next row.
+     * @return The next row.
+     */
+    @Override
+    public T next() {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        try {
+            return adapter.read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the underlying response body.
+     */
+    @Override
+    public void close() {
+        closeReader();
+    }
+
+    /**
+     * Positions the reader at the first row of the first query result.
+     * The status may be sent before or after the rows. A failed query has a string as result,
+     * so the status is known as soon as the result starts.
+     */
+    private void openResult() throws IOException {
+        reader.beginArray();
+        if(!reader.hasNext()) {
+            finished = true;
+            return;
+        }
+        reader.beginObject();
+        String status = null;
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "status":
+                    status = reader.nextString();
+                    break;
+                case "result":
+                    if(reader.peek() == JsonToken.STRING)
+                        throw new SurrealException(reader.nextString());
+                    if(status != null && !status.equals("OK"))
+                        throw new SurrealException("Query failed with status "+status);
+                    if(reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        continue;
+                    }
+                    reader.beginArray();
+                    return;
+                default:
+                    reader.skipValue();
+            }
+        }
+        finished = true;
+        reader.endObject();
+    }
+
+    private void finishResult() throws IOException {
+        while(reader.hasNext()) {
+            if(reader.nextName().equals("status")) {
+                String status = reader.nextString();
+                if(!status.equals("OK"))
+                    throw new SurrealException("Query failed with status "+status);
+            } else {
+                reader.skipValue();
+            }
+        }
+        closeReader();
+    }
+
+    private void closeReader() {
+        finished = true;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package dev.bitbite.surrealdb.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents a compiled query whose values are passed as query variables instead of being inlined into the query.
+ * <p>
+ * The text of a template is rendered once, when the template is compiled, and never changes.
+ * Templates are immutable and can be shared between threads; each execution supplies only the bindings
+ * of its parameters.
+ * </p>
+ * 
+ * @see SelectQuery#compile()
+ */
+public final class QueryTemplate {
+
+    private final String text;
+    private final Set<String> parameters;
+    private final Map<String, Object> defaults;
+
+    /**
+     * Constructs a QueryTemplate object.
+     * 
+     * @param text the query text, referencing its parameters as <code>$name</code>
+     * @param parameters the names of all parameters of the query
+     * @param defaults the values of the parameters that are bound by default
+     */
+    public QueryTemplate(String text, Set<String> parameters, Map<String, ?> defaults) {
+        this.text = text;
+        this.parameters = Collections.unmodifiableSet(new LinkedHashSet<>(parameters));
+        this.defaults = Collections.unmodifiableMap(new LinkedHashMap<>(defaults));
+        for(String name : this.defaults.keySet()){
+            if(!this.parameters.contains(name)){
+                throw new IllegalArgumentException("Unknown parameter: "+name);
+            }
+        }
+    }
+
+    /**
+     * Returns the query text.
+     * 
+     * @return the query text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the names of all parameters of the query.
+     * 
+     * @return the names of the parameters
+     */
+    public Set<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the values of the parameters that are bound by default,
+     * e.g. the values of the WHERE clauses the template was compiled from.
+     * 
+     * @return the default bindings
+     */
+    public Map<String, Object> getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * Merges the specified bindings with the default ones.
+     * 
+     * @param bindings the values of the parameters, overriding the default values
+     * @return the values of all parameters of the query
+     * @throws IllegalArgumentException if a binding does not belong to a parameter of the query,
+     *  or a parameter is left unbound
+     */
+    public Map<String, Object> bind(Map<String, ?> bindings) {
+        if(bindings.isEmpty() && defaults.size() == parameters.size()){
+            return defaults;
+        }
+        Map<String, Object> variables = new LinkedHashMap<>(defaults);
+        for(Map.Entry<String, ?> binding : bindings.entrySet()){
+            if(!parameters.contains(binding.getKey())){
+                throw new IllegalArgumentException("Unknown parameter: "+binding.getKey());
+            }
+            variables.put(binding.getKey(), binding.getValue());
+        }
+        for(String name : parameters){
+            if(!variables.containsKey(name)){
+                throw new IllegalArgumentException("Unbound parameter: "+name);
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Returns the query text.
+     * 
+     * @return the query text
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
@@ -1,19 +1,29 @@
 package dev.bitbite.surrealdb.query;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Represents a SELECT query in the SurrealDB query language.
  */
 public class SelectQuery extends Query {
 
+    private static final Pattern PARAMETER = Pattern.compile("\\$(\\w+)");
+
     private String[] fields;
     private String table;
     private List<WhereClause> whereClauses;
     private List<OrderBy> orderByClauses;
     private Integer limit;
     private Integer offset;
+    private QueryTemplate compiled;
     
     /**
      * Constructs a new SelectQuery object with the specified fields.
@@ -26,6 +36,18 @@ public class SelectQuery extends Query {
         this.orderByClauses = new ArrayList<>();
     }
 
+    /**
+     * Replaces the fields to select.
+     * 
+     * @param fields the fields to select
+     * @return the SelectQuery object
+     */
+    public SelectQuery fields(String... fields){
+        this.fields = fields;
+        this.compiled = null;
+        return this;
+    }
+
     /**
      * Specifies the table to select from.
      * 
@@ -34,9 +56,19 @@ public class SelectQuery extends Query {
      */
     public SelectQuery from(String table){
         this.table = table;
+        this.compiled = null;
         return this;
     }
 
+    /**
+     * Returns the table to select from.
+     * 
+     * @return the table, or null if none was specified
+     */
+    public String getTable(){
+        return table;
+    }
+
     /**
      * Adds a WHERE clause to the query.
      * 
@@ -47,6 +79,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery where(String field, String operator, Object value){
         this.whereClauses.add(new WhereClause(field, operator, value));
+        this.compiled = null;
         return this;
     }
 
@@ -58,6 +91,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery where(String combined){
         this.whereClauses.add(new WhereClause(combined));
+        this.compiled = null;
         return this;
     }
 
@@ -69,6 +103,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery where(WhereClause whereClause){
         this.whereClauses.add(whereClause);
+        this.compiled = null;
         return this;
     }
 
@@ -79,6 +114,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery orderByRand() {
         this.orderByClauses.add(new OrderBy("RAND()"));
+        this.compiled = null;
         return this;
     }
 
@@ -90,6 +126,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery orderBy(String field){
         this.orderByClauses.add(new OrderBy(field));
+        this.compiled = null;
         return this;
     }
 
@@ -102,6 +139,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery orderBy(String field, OrderBy.Order order){
         this.orderByClauses.add(new OrderBy(field, order));
+        this.compiled = null;
         return this;
     }
 
@@ -113,6 +151,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery orderBy(OrderBy orderBy){
         this.orderByClauses.add(orderBy);
+        this.compiled = null;
         return this;
     }
 
@@ -124,6 +163,7 @@ public class SelectQuery extends Query {
      */
     public SelectQuery limit(int limit){
         this.limit = limit;
+        this.compiled = null;
         return this;
     }
 
@@ -135,9 +175,63 @@ public class SelectQuery extends Query {
      */
     public SelectQuery offset(int offset){
         this.offset = offset;
+        this.compiled = null;
         return this;
     }
 
+    /**
+     * Compiles the query into a template.
+     * The values of the WHERE clauses are replaced by the parameters <code>$p0</code>, <code>$p1</code>, ...
+     * and become the default bindings of the template, {@link Param} values are kept as they are.
+     * Names already used by a {@link Param}, or by a parameter in a combined clause, are skipped.
+     * Combined WHERE clauses are copied verbatim.
+     * <p>
+     * The template is cached until the query is modified, so compiling the same query again is free.
+     * </p>
+     * 
+     * @return the compiled template
+     */
+    public QueryTemplate compile(){
+        QueryTemplate template = this.compiled;
+        if(template != null){
+            return template;
+        }
+        Set<String> taken = new HashSet<>();
+        for(WhereClause clause : whereClauses){
+            if(clause.getCombined() != null){
+                Matcher matcher = PARAMETER.matcher(clause.getCombined());
+                while(matcher.find()){
+                    taken.add(matcher.group(1));
+                }
+            } else if(clause.getValue() instanceof Param param){
+                taken.add(param.getName());
+            }
+        }
+        Set<String> parameters = new LinkedHashSet<>();
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        List<WhereClause> clauses = new ArrayList<>();
+        int next = 0;
+        for(WhereClause clause : whereClauses){
+            if(clause.getCombined() != null){
+                clauses.add(clause);
+            } else if(clause.getValue() instanceof Param param){
+                parameters.add(param.getName());
+                clauses.add(clause);
+            } else {
+                while(taken.contains("p"+next)){
+                    next++;
+                }
+                Param param = new Param("p"+next++);
+                parameters.add(param.getName());
+                defaults.put(param.getName(), clause.getValue());
+                clauses.add(new WhereClause(clause.getField(), clause.getOperator(), param));
+            }
+        }
+        template = new QueryTemplate(render(clauses), parameters, defaults);
+        this.compiled = template;
+        return template;
+    }
+
     /**
      * Returns the string representation of the SelectQuery object.
      * 
@@ -145,6 +239,10 @@ public class SelectQuery extends Query {
      */
     @Override
     public String toString(){
+        return render(whereClauses);
+    }
+
+    private String render(List<WhereClause> clauses){
         StringBuilder sb = new StringBuilder();
         sb.append("SELECT ");
         for(int i = 0; i < fields.length; i++){
@@ -155,11 +253,11 @@ public class SelectQuery extends Query {
         }
         sb.append(" FROM ");
         sb.append(table);
-        if(!whereClauses.isEmpty()){
+        if(!clauses.isEmpty()){
             sb.append(" WHERE ");
-            for(int i = 0; i < whereClauses.size(); i++){
-                sb.append(whereClauses.get(i));
-                if(i < whereClauses.size() - 1){
+            for(int i = 0; i < clauses.size(); i++){
+                sb.append(clauses.get(i));
+                if(i < clauses.size() - 1){
                     sb.append(" AND ");
                 }
             }
@@ -33,6 +33,22 @@ public class WhereClause {
         this.combined = combined;
     }
 
+    String getField() {
+        return field;
+    }
+
+    String getOperator() {
+        return operator;
+    }
+
+    Object getValue() {
+        return value;
+    }
+
+    String getCombined() {
+        return combined;
+    }
+
     /**
      * Returns the string representation of the WhereClause object.
      * 
@@ -0,0 +1,25 @@
+package dev.bitbite.surrealdb.rpc;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Receives the notifications of a live query.
+ * 
+ * @see RpcClient#addLiveListener(String, LiveListener)
+ */
+public interface LiveListener {
+
+    /**
+     * Called for every notification of the live query, on the thread reading the socket.
+     * If this throws, the notification is dropped and the live query continues.
+     * @param notification the notification, with the fields <code>id</code>, <code>action</code> and <code>result</code>
+     */
+    void onNotification(JsonObject notification);
+
+    /**
+     * Called once if the connection is closed, no notifications follow.
+     * @param error the reason the connection was closed
+     */
+    void onClose(Throwable error);
+
+}
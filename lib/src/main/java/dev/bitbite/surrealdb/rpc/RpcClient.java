@@ -0,0 +1,287 @@
+package dev.bitbite.surrealdb.rpc;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+/**
+ * A client for the SurrealDB RPC protocol spoken over the <code>/rpc</code> WebSocket endpoint.
+ * <p>
+ * All calls share a single socket. Every request is tagged with a unique id and the
+ * responses, which may arrive in any order, are matched back to their callers by that id.
+ * </p>
+ * <p>
+ * Notifications of live queries carry no request id; they are dispatched to the {@link LiveListener}
+ * registered for the id of their live query.
+ * </p>
+ */
+public class RpcClient implements AutoCloseable {
+
+    private final WebSocket socket;
+    private final Map<String, CompletableFuture<JsonElement>> pending = new ConcurrentHashMap<>();
+    private final Map<String, LiveListener> liveListeners = new ConcurrentHashMap<>();
+    private final Map<String, LiveListener> startingLiveListeners = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Object sendLock = new Object();
+    private CompletableFuture<WebSocket> lastSend;
+
+    private RpcClient(WebSocket socket) {
+        this.socket = socket;
+        this.lastSend = CompletableFuture.completedFuture(socket);
+    }
+
+    /**
+     * Opens a new RPC connection
+     * @param client HttpClient used to open the WebSocket
+     * @param uri URI of the RPC endpoint, e.g. <code>ws://localhost:8000/rpc</code>
+     * @return future completing with the connected client
+     */
+    public static CompletableFuture<RpcClient> connect(HttpClient client, URI uri) {
+        Listener listener = new Listener();
+        return client.newWebSocketBuilder()
+            .buildAsync(uri, listener)
+            .thenApply(socket -> {
+                RpcClient rpc = new RpcClient(socket);
+                listener.rpc = rpc;
+                return rpc;
+            });
+    }
+
+    /**
+     * Calls a method on the server
+     * @param method name of the RPC method, e.g. <code>select</code> or <code>query</code>
+     * @param params parameters of the call
+     * @return future completing with the <code>result</code> of the response
+     * @throws RpcException (through the future) if the server answered with an error
+     */
+    public CompletableFuture<JsonElement> call(String method, JsonElement... params) {
+        return call(method, null, params);
+    }
+
+    /**
+     * Starts a live query. The listener is registered as soon as the response arrives,
+     * before any notification following the response is dispatched.
+     * @param query the <code>LIVE SELECT</code> statement
+     * @param listener listener to notify
+     * @return future completing with the id of the live query
+     * @throws SurrealException (through the future) if the live query could not be started
+     */
+    public CompletableFuture<String> live(String query, LiveListener listener) {
+        return call("query", listener, new JsonPrimitive(query)).thenApply(result -> {
+            JsonObject statement = result.getAsJsonArray().get(0).getAsJsonObject();
+            if(!"OK".equals(statement.get("status").getAsString()))
+                throw new SurrealException(statement.get("result").getAsString());
+            return statement.get("result").getAsString();
+        });
+    }
+
+    private CompletableFuture<JsonElement> call(String method, LiveListener liveListener, JsonElement... params) {
+        String id = Long.toString(nextId.incrementAndGet());
+        CompletableFuture<JsonElement> result = new CompletableFuture<>();
+        pending.put(id, result);
+        if(liveListener != null)
+            startingLiveListeners.put(id, liveListener);
+
+        JsonObject request = new JsonObject();
+        request.addProperty("id", id);
+        request.addProperty("method", method);
+        JsonArray paramArray = new JsonArray();
+        for(JsonElement param : params)
+            paramArray.add(param);
+        request.add("params", paramArray);
+
+        send(request.toString()).whenComplete((socket, error) -> {
+            if(error != null && pending.remove(id) != null) {
+                startingLiveListeners.remove(id);
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Registers a listener for the notifications of a live query
+     * @param liveId id of the live query, as returned by <code>LIVE SELECT</code>
+     * @param listener listener to notify
+     */
+    public void addLiveListener(String liveId, LiveListener listener) {
+        liveListeners.put(liveId, listener);
+    }
+
+    /**
+     * Removes the listener of a live query. The live query itself is not killed.
+     * @param liveId id of the live query
+     */
+    public void removeLiveListener(String liveId) {
+        liveListeners.remove(liveId);
+    }
+
+    /**
+     * Returns the number of calls that have been sent but not yet answered
+     * @return number of pending calls
+     */
+    public int getPendingCalls() {
+        return pending.size();
+    }
+
+    /**
+     * Closes the socket. Calls that are still pending fail with a {@link SurrealException},
+     * the listeners of live queries are closed with it.
+     */
+    @Override
+    public void close() {
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(error -> null);
+        failPending(new SurrealException("The RPC connection was closed"));
+    }
+
+    /**
+     * The WebSocket API allows only one outstanding send at a time,
+     * so messages are chained onto the previous send.
+     */
+    private CompletableFuture<WebSocket> send(String message) {
+        synchronized(sendLock) {
+            lastSend = lastSend
+                .exceptionally(error -> socket)
+                .thenCompose(ws -> ws.sendText(message, true));
+            return lastSend;
+        }
+    }
+
+    /**
+     * Handles a message read from the socket. A message that cannot be handled only fails the call it answers,
+     * or is dropped if it cannot be matched to one, so the socket stays open for all other calls and live queries.
+     */
+    private void receive(String message) {
+        JsonObject response;
+        try {
+            response = JsonParser.parseString(message).getAsJsonObject();
+        } catch (RuntimeException e) {
+            return;
+        }
+        if(!response.has("id") || response.get("id").isJsonNull()) {
+            dispatchNotification(response.get("result"));
+            return;
+        }
+
+        String id;
+        try {
+            id = response.get("id").getAsString();
+        } catch (RuntimeException e) {
+            return;
+        }
+        CompletableFuture<JsonElement> result = pending.remove(id);
+        if(result == null)
+            return;
+        LiveListener liveListener = startingLiveListeners.remove(id);
+        try {
+            complete(result, response, liveListener);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(new SurrealException("Could not read the RPC response "+message, e));
+        }
+    }
+
+    private void complete(CompletableFuture<JsonElement> result, JsonObject response, LiveListener liveListener) {
+        if(response.has("error")) {
+            JsonObject error = response.getAsJsonObject("error");
+            result.completeExceptionally(new RpcException(
+                error.has("code") ? error.get("code").getAsInt() : 0,
+                error.has("message") ? error.get("message").getAsString() : error.toString()
+            ));
+        } else {
+            if(liveListener != null)
+                registerLiveListener(response.get("result"), liveListener);
+            result.complete(response.get("result"));
+        }
+    }
+
+    /**
+     * Registers the listener of a live query that has just been started,
+     * on the thread reading the socket, so no notification can slip past it.
+     */
+    private void registerLiveListener(JsonElement result, LiveListener listener) {
+        if(!result.isJsonArray() || result.getAsJsonArray().isEmpty())
+            return;
+        JsonObject statement = result.getAsJsonArray().get(0).getAsJsonObject();
+        if("OK".equals(statement.get("status").getAsString()))
+            liveListeners.put(statement.get("result").getAsString(), listener);
+    }
+
+    private void dispatchNotification(JsonElement notification) {
+        if(notification == null || !notification.isJsonObject())
+            return;
+        JsonObject live = notification.getAsJsonObject();
+        if(!live.has("id") || !live.has("action"))
+            return;
+        LiveListener listener = liveListeners.get(live.get("id").getAsString());
+        if(listener == null)
+            return;
+        try {
+            listener.onNotification(live);
+        } catch (RuntimeException e) {
+            // a failing listener must not take the socket, and with it all other calls and live queries, down
+        }
+    }
+
+    private void failPending(Throwable error) {
+        pending.keySet().forEach(id -> {
+            CompletableFuture<JsonElement> result = pending.remove(id);
+            if(result != null)
+                result.completeExceptionally(error);
+        });
+        startingLiveListeners.clear();
+        liveListeners.keySet().forEach(id -> {
+            LiveListener listener = liveListeners.remove(id);
+            if(listener != null)
+                listener.onClose(error);
+        });
+    }
+
+    private static class Listener implements WebSocket.Listener {
+
+        private volatile RpcClient rpc;
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            try {
+                buffer.append(data);
+                if(last) {
+                    String message = buffer.toString();
+                    buffer.setLength(0);
+                    if(rpc != null)
+                        rpc.receive(message);
+                }
+            } finally {
+                webSocket.request(1);
+            }
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            if(rpc != null)
+                rpc.failPending(new SurrealException("The RPC connection was closed: "+statusCode+" "+reason));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            if(rpc != null)
+                rpc.failPending(new SurrealException(error));
+        }
+    }
+
+}
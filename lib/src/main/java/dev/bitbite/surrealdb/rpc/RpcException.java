@@ -0,0 +1,32 @@
+package dev.bitbite.surrealdb.rpc;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+/**
+ * The RpcException class represents an error the server answered an RPC call with.
+ */
+public class RpcException extends SurrealException {
+
+    private final int code;
+
+    /**
+     * Constructs a new RpcException with the specified error code and detail message.
+     * 
+     * @param code the error code sent by the server
+     * @param message the detail message sent by the server
+     */
+    public RpcException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    /**
+     * Returns the error code sent by the server.
+     * 
+     * @return the error code
+     */
+    public int getCode() {
+        return code;
+    }
+
+}
@@ -0,0 +1,91 @@
+package dev.bitbite.surrealdb.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+/**
+ * Reads the rows of a CSV document as described by RFC 4180.
+ * Fields may be enclosed in double quotes, which allows them to contain separators, line breaks
+ * and double quotes written twice.
+ */
+class CsvParser {
+
+    private final Reader reader;
+    private final char separator;
+    private int peeked = -2;
+
+    /**
+     * @param reader buffered reader of the document
+     */
+    CsvParser(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Reads the next row, skipping empty lines
+     * @return fields of the row, or null at the end of the document
+     */
+    List<String> next() throws IOException {
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while(true) {
+            int c = read();
+            if(quoted) {
+                if(c == -1)
+                    throw new SurrealException("Unterminated quoted field in CSV row "+row);
+                if(c == '"') {
+                    if(peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if(c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if(c == separator) {
+                row.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if(c == '\n' || c == '\r' || c == -1) {
+                if(c == '\r' && peek() == '\n')
+                    read();
+                if(row.isEmpty() && field.isEmpty() && !wasQuoted) {
+                    if(c == -1)
+                        return null;
+                    continue;
+                }
+                row.add(field.toString());
+                return row;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if(peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if(peeked == -2)
+            peeked = reader.read();
+        return peeked;
+    }
+
+}
@@ -0,0 +1,491 @@
+package dev.bitbite.surrealdb.transfer;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.exception.TransferException;
+
+/**
+ * Imports whole tables from and exports them to files, without holding them in memory.
+ * <p>
+ * Imports read NDJSON, one JSON object per line, or CSV with a header row naming the fields.
+ * The records are read in chunks, each inserted with {@link SurrealDBConnection#insertAsync(String, List)}.
+ * Up to {@link #setConcurrency(int) concurrency} chunks are uploaded in parallel; reading pauses while that many
+ * are in flight, so no more than <code>concurrency + 1</code> chunks are held in memory at once.
+ * </p>
+ * <p>
+ * Exports page through a table ordered by ID, one chunk per page, and write each record as one line of NDJSON
+ * through a buffered file channel.
+ * </p>
+ * <p>
+ * Every transfer reports its {@link TransferProgress} to the {@link #setProgressListener(Consumer) progress listener}
+ * after each completed chunk, and returns the final progress. If a transfer fails, the {@link TransferException}
+ * carries the progress up to the failure. Passing a progress back to the same method resumes the transfer
+ * after its last completed chunk: imports skip the records that have already been inserted,
+ * including the chunks that completed out of order before the failure,
+ * exports truncate the file to the chunks that have already been written and continue after their last record.
+ * </p>
+ */
+public class TableTransfer {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final SurrealDBConnection connection;
+    private int chunkSize = 1000;
+    private int concurrency = 4;
+    private char csvSeparator = ',';
+    private Consumer<TransferProgress> progressListener = progress -> {};
+
+    /**
+     * Constructs a new TableTransfer.
+     * @param connection The connection to transfer the tables over.
+     */
+    public TableTransfer(SurrealDBConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sets the number of records per chunk.
+     * An imported chunk larger than the insert chunk size of the connection is split into several statements.
+     * @param chunkSize The number of records per chunk, 1000 by default.
+     */
+    public void setChunkSize(int chunkSize) {
+        if(chunkSize < 1)
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the maximum number of chunks uploaded in parallel by an import.
+     * @param concurrency The number of chunks in flight at the same time, 4 by default.
+     */
+    public void setConcurrency(int concurrency) {
+        if(concurrency < 1)
+            throw new IllegalArgumentException("The concurrency must be at least 1");
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Sets the character separating the fields of imported CSV.
+     * @param csvSeparator The separator, a comma by default.
+     */
+    public void setCsvSeparator(char csvSeparator) {
+        this.csvSeparator = csvSeparator;
+    }
+
+    /**
+     * Sets the listener notified of the progress after every completed chunk.
+     * The listener of an import is called from the threads completing the uploads, one call at a time.
+     * @param progressListener The listener.
+     */
+    public void setProgressListener(Consumer<TransferProgress> progressListener) {
+        this.progressListener = progressListener == null ? progress -> {} : progressListener;
+    }
+
+    /**
+     * Imports a file of NDJSON into a table.
+     * @param table The name of the table.
+     * @param file The file, with one JSON object per line.
+     * @return The progress of the completed import.
+     * @throws TransferException if the file could not be read or a chunk could not be inserted.
+     */
+    public TransferProgress importNdjson(String table, Path file) {
+        return importNdjson(table, file, null);
+    }
+
+    /**
+     * Resumes the import of a file of NDJSON into a table.
+     * @param table The name of the table.
+     * @param file The file, with one JSON object per line.
+     * @param resumeFrom The progress of the interrupted import, or null to start from the beginning.
+     * @return The progress of the completed import.
+     * @throws TransferException if the file could not be read or a chunk could not be inserted.
+     */
+    public TransferProgress importNdjson(String table, Path file, TransferProgress resumeFrom) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importNdjson(table, in, resumeFrom);
+        } catch (IOException e) {
+            throw new TransferException("Could not read "+file, resumeFrom, e);
+        }
+    }
+
+    /**
+     * Imports NDJSON into a table. The stream is not closed.
+     * @param table The name of the table.
+     * @param in The stream, with one JSON object per line.
+     * @param resumeFrom The progress of the interrupted import, or null to start from the beginning.
+     * @return The progress of the completed import.
+     * @throws TransferException if the stream could not be read or a chunk could not be inserted.
+     */
+    public TransferProgress importNdjson(String table, InputStream in, TransferProgress resumeFrom) {
+        CountingInputStream counter = new CountingInputStream(in);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8));
+        return upload(table, counter, resumeFrom, () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if(line == null)
+                    return null;
+            } while(line.isBlank());
+            JsonElement record = JsonParser.parseString(line);
+            if(!record.isJsonObject())
+                throw new SurrealException("Expected a JSON object but found "+line);
+            return record.getAsJsonObject();
+        });
+    }
+
+    /**
+     * Imports a CSV file into a table.
+     * The first row names the fields, every following row is one record. All values are imported as strings,
+     * empty values are left out.
+     * @param table The name of the table.
+     * @param file The CSV file.
+     * @return The progress of the completed import.
+     * @throws TransferException if the file could not be read or a chunk could not be inserted.
+     */
+    public TransferProgress importCsv(String table, Path file) {
+        return importCsv(table, file, null);
+    }
+
+    /**
+     * Resumes the import of a CSV file into a table.
+     * @param table The name of the table.
+     * @param file The CSV file.
+     * @param resumeFrom The progress of the interrupted import, or null to start from the beginning.
+     * @return The progress of the completed import.
+     * @throws TransferException if the file could not be read or a chunk could not be inserted.
+     * @see #importCsv(String, Path)
+     */
+    public TransferProgress importCsv(String table, Path file, TransferProgress resumeFrom) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importCsv(table, in, resumeFrom);
+        } catch (IOException e) {
+            throw new TransferException("Could not read "+file, resumeFrom, e);
+        }
+    }
+
+    /**
+     * Imports CSV into a table. The stream is not closed.
+     * @param table The name of the table.
+     * @param in The stream of CSV.
+     * @param resumeFrom The progress of the interrupted import, or null to start from the beginning.
+     * @return The progress of the completed import.
+     * @throws TransferException if the stream could not be read or a chunk could not be inserted.
+     * @see #importCsv(String, Path)
+     */
+    public TransferProgress importCsv(String table, InputStream in, TransferProgress resumeFrom) {
+        CountingInputStream counter = new CountingInputStream(in);
+        CsvParser parser = new CsvParser(new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8)), this.csvSeparator);
+        List<String> header;
+        try {
+            header = parser.next();
+        } catch (IOException e) {
+            throw new TransferException("Could not read the CSV header", resumeFrom, e);
+        }
+        if(header == null)
+            return new TransferProgress(0, 0, counter.count, null, Duration.ZERO, 0, 0);
+        return upload(table, counter, resumeFrom, () -> {
+            List<String> row = parser.next();
+            if(row == null)
+                return null;
+            if(row.size() != header.size())
+                throw new SurrealException("Expected "+header.size()+" fields but found "+row.size()+" in CSV row "+row);
+            JsonObject record = new JsonObject();
+            for(int i = 0; i < row.size(); i++) {
+                if(!row.get(i).isEmpty())
+                    record.addProperty(header.get(i), row.get(i));
+            }
+            return record;
+        });
+    }
+
+    /**
+     * Exports a table to a file of NDJSON, replacing the file if it exists.
+     * @param table The name of the table.
+     * @param file The file to write one JSON object per line to.
+     * @return The progress of the completed export.
+     * @throws TransferException if a page could not be selected or the file could not be written.
+     */
+    public TransferProgress exportNdjson(String table, Path file) {
+        return exportNdjson(table, file, null);
+    }
+
+    /**
+     * Resumes the export of a table to a file of NDJSON.
+     * The file is truncated to the chunks already written, the export continues after their last record.
+     * @param table The name of the table.
+     * @param file The file to write one JSON object per line to.
+     * @param resumeFrom The progress of the interrupted export, or null to start from the beginning.
+     * @return The progress of the completed export.
+     * @throws TransferException if a page could not be selected or the file could not be written.
+     */
+    public TransferProgress exportNdjson(String table, Path file, TransferProgress resumeFrom) {
+        long startNanos = System.nanoTime();
+        long chunks = resumeFrom == null ? 0 : resumeFrom.getChunks();
+        long records = resumeFrom == null ? 0 : resumeFrom.getRecords();
+        long bytes = resumeFrom == null ? 0 : resumeFrom.getBytes();
+        String lastId = resumeFrom == null ? null : resumeFrom.getLastId();
+        TransferProgress progress = resumeFrom;
+
+        try (FileChannel channel = resumeFrom == null
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             Stream<JsonObject> scan = connection.scan(table, chunkSize, lastId)) {
+            channel.truncate(bytes);
+            channel.position(bytes);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            Iterator<JsonObject> iterator = scan.iterator();
+            int inChunk = 0;
+            String id = lastId;
+            while(iterator.hasNext()) {
+                JsonObject record = iterator.next();
+                write(channel, buffer, (record+"\n").getBytes(StandardCharsets.UTF_8));
+                id = record.get("id").getAsString();
+                // chunks are aligned with the pages of the scan, so a resumed scan starts with the next chunk
+                if(++inChunk == chunkSize || !iterator.hasNext()) {
+                    flush(channel, buffer);
+                    chunks++;
+                    records += inChunk;
+                    inChunk = 0;
+                    lastId = id;
+                    long elapsed = System.nanoTime() - startNanos;
+                    long transferred = resumeFrom == null ? records : records - resumeFrom.getRecords();
+                    long written = channel.position() - (resumeFrom == null ? 0 : resumeFrom.getBytes());
+                    bytes = channel.position();
+                    progress = new TransferProgress(chunks, records, bytes, lastId, Duration.ofNanos(elapsed), transferred, written);
+                    progressListener.accept(progress);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new TransferException("Could not export "+table+" to "+file, progress, e);
+        } catch (RuntimeException e) {
+            throw new TransferException("Could not export "+table, progress, e);
+        }
+        if(progress == resumeFrom)
+            progress = new TransferProgress(chunks, records, bytes, lastId, Duration.ofNanos(System.nanoTime() - startNanos), 0, 0);
+        return progress;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, byte[] data) throws IOException {
+        if(data.length > buffer.remaining())
+            flush(channel, buffer);
+        if(data.length > buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(data);
+            while(large.hasRemaining())
+                channel.write(large);
+        } else {
+            buffer.put(data);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @FunctionalInterface
+    private interface RecordSource {
+        /**
+         * @return the next record, or null at the end of the input
+         */
+        JsonObject next() throws IOException;
+    }
+
+    /**
+     * Reads the records into chunks and inserts them, with at most concurrency chunks in flight.
+     */
+    private TransferProgress upload(String table, CountingInputStream counter, TransferProgress resumeFrom, RecordSource source) {
+        long skip = resumeFrom == null ? 0 : resumeFrom.getRecords();
+        Watermark watermark = new Watermark(resumeFrom);
+        int concurrency = this.concurrency;
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long chunk = resumeFrom == null ? 0 : resumeFrom.getChunks();
+
+        try {
+            for(long i = 0; i < skip; i++) {
+                if(source.next() == null)
+                    break;
+            }
+            watermark.start(counter.count);
+
+            List<JsonObject> records = new ArrayList<>(chunkSize);
+            JsonObject record;
+            while(failure.get() == null && (record = source.next()) != null) {
+                records.add(record);
+                if(records.size() == chunkSize) {
+                    submit(table, chunk++, records, inFlight, failure, watermark, counter);
+                    records = new ArrayList<>(chunkSize);
+                }
+            }
+            if(failure.get() == null && !records.isEmpty())
+                submit(table, chunk, records, inFlight, failure, watermark, counter);
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        inFlight.acquireUninterruptibly(concurrency);
+
+        Throwable error = failure.get();
+        if(error != null)
+            throw new TransferException("Could not import into "+table, watermark.progress(counter.count), error);
+        return watermark.progress(counter.count);
+    }
+
+    private void submit(String table, long chunk, List<JsonObject> records, Semaphore inFlight,
+            AtomicReference<Throwable> failure, Watermark watermark, CountingInputStream counter) throws InterruptedException {
+        if(watermark.wasCompleted(chunk)) {
+            synchronized(watermark) {
+                progressListener.accept(watermark.skip(chunk, records.size(), counter.count));
+            }
+            return;
+        }
+        inFlight.acquire();
+        if(failure.get() != null) {
+            inFlight.release();
+            return;
+        }
+        try {
+            connection.insertAsync(table, records).whenComplete((inserted, error) -> {
+                try {
+                    if(error != null) {
+                        failure.compareAndSet(null, error);
+                    } else {
+                        synchronized(watermark) {
+                            progressListener.accept(watermark.complete(chunk, records.size(), counter.count));
+                        }
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Tracks the chunks that completed along with all chunks before them,
+     * since the chunks of an import complete in any order.
+     */
+    private static class Watermark {
+
+        private final TreeMap<Long, Integer> completed = new TreeMap<>();
+        private final Set<Long> resumedCompleted;
+        private long resumedRecords;
+        private long chunks;
+        private long records;
+        private long startNanos;
+        private long startBytes;
+
+        Watermark(TransferProgress resumeFrom) {
+            this.chunks = resumeFrom == null ? 0 : resumeFrom.getChunks();
+            this.records = resumeFrom == null ? 0 : resumeFrom.getRecords();
+            this.resumedRecords = this.records;
+            this.resumedCompleted = resumeFrom == null ? Set.of() : resumeFrom.getCompletedChunks();
+        }
+
+        /**
+         * @return whether the chunk was inserted by the import that is resumed
+         */
+        boolean wasCompleted(long chunk) {
+            return resumedCompleted.contains(chunk);
+        }
+
+        synchronized void start(long bytes) {
+            this.startNanos = System.nanoTime();
+            this.startBytes = bytes;
+        }
+
+        synchronized TransferProgress complete(long chunk, int size, long bytes) {
+            completed.put(chunk, size);
+            Integer next;
+            while((next = completed.remove(chunks)) != null) {
+                chunks++;
+                records += next;
+            }
+            return progress(bytes);
+        }
+
+        /**
+         * Completes a chunk inserted by the import that is resumed, without counting it as transferred
+         */
+        synchronized TransferProgress skip(long chunk, int size, long bytes) {
+            resumedRecords += size;
+            return complete(chunk, size, bytes);
+        }
+
+        synchronized TransferProgress progress(long bytes) {
+            return new TransferProgress(chunks, records, bytes, null, Duration.ofNanos(System.nanoTime() - startNanos),
+                records - resumedRecords, bytes - startBytes, new TreeSet<>(completed.keySet()));
+        }
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b != -1)
+                count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if(read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+}
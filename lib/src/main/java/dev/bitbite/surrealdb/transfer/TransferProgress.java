@@ -0,0 +1,121 @@
+package dev.bitbite.surrealdb.transfer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The progress of an import or export by a {@link TableTransfer}.
+ * <p>
+ * The chunk, record and byte counts only cover chunks that have been completed, along with all chunks before them,
+ * and include the chunks of the transfer that was resumed. Chunks of an import that completed while a chunk before them
+ * was still in flight or failed are listed by {@link #getCompletedChunks()} instead, and are not inserted again on resume.
+ * A transfer can be resumed from any progress it reported.
+ * The rates only cover the records and bytes transferred since the transfer was started or resumed.
+ * </p>
+ */
+public class TransferProgress {
+
+    private final long chunks;
+    private final long records;
+    private final long bytes;
+    private final String lastId;
+    private final Duration elapsed;
+    private final long transferredRecords;
+    private final long transferredBytes;
+    private final SortedSet<Long> completedChunks;
+
+    TransferProgress(long chunks, long records, long bytes, String lastId, Duration elapsed, long transferredRecords, long transferredBytes) {
+        this(chunks, records, bytes, lastId, elapsed, transferredRecords, transferredBytes, Collections.emptySortedSet());
+    }
+
+    TransferProgress(long chunks, long records, long bytes, String lastId, Duration elapsed, long transferredRecords, long transferredBytes,
+            SortedSet<Long> completedChunks) {
+        this.chunks = chunks;
+        this.records = records;
+        this.bytes = bytes;
+        this.lastId = lastId;
+        this.elapsed = elapsed;
+        this.transferredRecords = transferredRecords;
+        this.transferredBytes = transferredBytes;
+        this.completedChunks = completedChunks.isEmpty() ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(new TreeSet<>(completedChunks));
+    }
+
+    /**
+     * Returns the number of completed chunks.
+     * @return The number of completed chunks.
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the number of records in the completed chunks.
+     * @return The number of records.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the number of bytes read by an import, or the number of bytes of the completed chunks written by an export.
+     * @return The number of bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the indices of the chunks of an import that completed after the chunks counted by {@link #getChunks()},
+     * while a chunk before them had not completed. Resuming the import skips them.
+     * @return The indices of the chunks completed out of order, starting at 0 for the first chunk of the input.
+     */
+    public SortedSet<Long> getCompletedChunks() {
+        return completedChunks;
+    }
+
+    /**
+     * Returns the ID of the last record of the completed chunks of an export.
+     * @return The ID of the last exported record, or null for imports and exports that have not completed a chunk yet.
+     */
+    public String getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Returns the time elapsed since the transfer was started or resumed.
+     * @return The elapsed time.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the number of records transferred per second since the transfer was started or resumed.
+     * @return The record throughput.
+     */
+    public double getRecordsPerSecond() {
+        return perSecond(transferredRecords);
+    }
+
+    /**
+     * Returns the number of bytes transferred per second since the transfer was started or resumed.
+     * @return The byte throughput.
+     */
+    public double getBytesPerSecond() {
+        return perSecond(transferredBytes);
+    }
+
+    private double perSecond(long count) {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferProgress(chunks=%d, records=%d, bytes=%d, %.0f records/s, %.0f bytes/s)",
+            chunks, records, bytes, getRecordsPerSecond(), getBytesPerSecond());
+    }
+
+}
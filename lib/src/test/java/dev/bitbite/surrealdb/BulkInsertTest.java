@@ -0,0 +1,73 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+public class BulkInsertTest {
+
+    @Test
+    void testInsertKeepsOrder() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                String sql = request.body();
+                assertTrue(sql.startsWith("INSERT INTO person ["));
+                JsonArray records = JsonParser.parseString(sql.substring("INSERT INTO person ".length())).getAsJsonArray();
+                // answer the first chunks last
+                Thread.sleep(records.get(0).getAsJsonObject().get("name").getAsString().equals("0") ? 200 : 20);
+                for(JsonElement record : records)
+                    record.getAsJsonObject().addProperty("id", "person:"+record.getAsJsonObject().get("name").getAsString());
+                return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":"+records+"}]");
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.setInsertChunkSize(2);
+            conn.setInsertConcurrency(2);
+
+            List<Person> people = new ArrayList<>();
+            for(int i = 0; i < 7; i++)
+                people.add(new Person(Integer.toString(i)));
+            List<Person> inserted = conn.insert("person", people);
+
+            assertEquals(7, inserted.size());
+            for(int i = 0; i < 7; i++)
+                assertEquals("person:"+i, inserted.get(i).getId());
+            assertEquals(4, requests.get());
+            assertTrue(maxInFlight.get() <= 2);
+        }
+    }
+
+    @Test
+    void testUpsertStatement() throws Exception {
+        List<String> statements = new ArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            statements.add(request.body());
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            Person person = new Person("netcode");
+            person.id = "person:1";
+            conn.upsert("person", List.of(person));
+            assertEquals("INSERT INTO person [{\"name\":\"netcode\",\"id\":\"person:1\"}] ON DUPLICATE KEY UPDATE name = $input.name", statements.get(0));
+        }
+    }
+
+}
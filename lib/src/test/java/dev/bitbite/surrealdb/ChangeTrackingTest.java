@@ -0,0 +1,154 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.orm.Identifiable;
+import dev.bitbite.surrealdb.orm.Repository;
+
+public class ChangeTrackingTest {
+
+    public static class Account implements Identifiable {
+        public String id;
+        public String name;
+        public String email;
+        public int logins;
+        public Map<String, String> address;
+
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    private static final String RECORD = "{\"id\":\"account:1\",\"name\":\"Tobie\",\"email\":\"tobie@example.com\",\"logins\":3}";
+
+    private static HttpStub stub(List<HttpStub.Request> requests) throws Exception {
+        return new HttpStub(request -> {
+            requests.add(request);
+            String record = RECORD;
+            if(request.method().equals("PATCH") || request.method().equals("PUT")) {
+                JsonObject merged = JsonParser.parseString(RECORD).getAsJsonObject();
+                JsonParser.parseString(request.body()).getAsJsonObject().entrySet().forEach(e -> merged.add(e.getKey(), e.getValue()));
+                record = merged.toString();
+            }
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["+record+"]}]");
+        });
+    }
+
+    @Test
+    void testMergesChangedFields() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = stub(requests)) {
+            Repository<Account> accounts = new Repository<>(Account.class, new SurrealDBConnection(stub.getURI()));
+            accounts.enableChangeTracking();
+            Account account = accounts.get("account:1");
+            account.logins++;
+            Account updated = accounts.update(account);
+
+            assertEquals(2, requests.size());
+            assertEquals("PATCH", requests.get(1).method());
+            assertEquals("/key/account/1", requests.get(1).path());
+            assertEquals("{\"logins\":4}", requests.get(1).body());
+            assertEquals(4, updated.logins);
+            assertEquals("Tobie", updated.name);
+
+            // the merged state is tracked as well
+            updated.name = "Jaime";
+            accounts.update(updated);
+            assertEquals("{\"name\":\"Jaime\"}", requests.get(2).body());
+        }
+    }
+
+    @Test
+    void testSkipsUnchanged() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = stub(requests)) {
+            Repository<Account> accounts = new Repository<>(Account.class, new SurrealDBConnection(stub.getURI()));
+            accounts.enableChangeTracking();
+            Account account = accounts.getAll().get(0);
+            assertSame(account, accounts.update(account));
+            assertSame(account, accounts.updateAsync(account).join());
+            assertEquals(1, requests.size());
+        }
+    }
+
+    @Test
+    void testFallsBackToFullUpdate() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = stub(requests)) {
+            Repository<Account> accounts = new Repository<>(Account.class, new SurrealDBConnection(stub.getURI()));
+            accounts.enableChangeTracking();
+            Account account = accounts.get("1");
+            // a removed field cannot be expressed as a merge
+            account.email = null;
+            accounts.updateAsync(account).join();
+            assertEquals("PUT", requests.get(1).method());
+
+            accounts.disableChangeTracking();
+            Account untracked = accounts.get("1");
+            untracked.logins++;
+            accounts.update(untracked);
+            assertEquals("PUT", requests.get(3).method());
+        }
+    }
+
+    @Test
+    void testFallsBackToFullUpdateForNestedFields() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        String record = RECORD.replace("}", ",\"address\":{\"city\":\"London\",\"zip\":\"N1\"}}");
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.add(request);
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["+record+"]}]");
+        })) {
+            Repository<Account> accounts = new Repository<>(Account.class, new SurrealDBConnection(stub.getURI()));
+            accounts.enableChangeTracking();
+            Account account = accounts.get("1");
+            account.address.put("city", "Paris");
+            accounts.update(account);
+            assertEquals("PATCH", requests.get(1).method());
+            assertEquals("{\"address\":{\"city\":\"Paris\",\"zip\":\"N1\"}}", requests.get(1).body());
+
+            // a merge would keep the zip of the record
+            account = accounts.get("1");
+            account.address.remove("zip");
+            accounts.update(account);
+            assertEquals("PUT", requests.get(3).method());
+        }
+    }
+
+    @Test
+    void testForgetsLeastRecentlyTracked() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.add(request);
+            String id = request.path().substring(request.path().lastIndexOf('/') + 1);
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+                + RECORD.replace("account:1", "account:"+id)+"]}]");
+        })) {
+            Repository<Account> accounts = new Repository<>(Account.class, new SurrealDBConnection(stub.getURI()));
+            accounts.enableChangeTracking(2);
+            Account first = accounts.get("1");
+            Account second = accounts.get("2");
+            accounts.get("3");
+
+            second.logins++;
+            accounts.update(second);
+            assertEquals("PATCH", requests.get(3).method());
+            // the first account was forgotten to make room for the third one
+            first.logins++;
+            accounts.update(first);
+            assertEquals("PUT", requests.get(4).method());
+        }
+    }
+
+}
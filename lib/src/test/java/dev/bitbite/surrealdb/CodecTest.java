@@ -0,0 +1,47 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+public class CodecTest {
+
+    @Test
+    void testCodec() {
+        Codec codec = new Codec();
+        codec.register(Person.class);
+        codec.warmUp();
+        assertSame(codec.resultAdapter(Person.class), codec.resultAdapter(Person.class));
+        assertSame(codec.adapter(Person.class), codec.adapter(Person.class));
+
+        // null fields are left out, just like Gson#toJson does
+        assertEquals("{\"name\":\"netcode\"}", codec.toJson(new Person("netcode")));
+
+        var results = codec.<Person>parseResults(Person.class, "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}]}]");
+        assertEquals("person:1", results.get(0).getResult().get(0).getId());
+    }
+
+    @Test
+    void testParseResponse() {
+        Codec codec = new Codec();
+        var results = codec.<Person>parseResponse(Person.class, "[{\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}],\"status\":\"OK\",\"time\":\"1ms\"}]");
+        assertEquals("netcode", results.get(0).getResult().get(0).getName());
+        assertEquals("OK", results.get(0).getStatus());
+
+        // a failed statement after a successful one fails the response
+        SurrealException failed = assertThrows(SurrealException.class, () -> QueryResult.parseArray(codec, Person.class,
+            "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]},{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"boom\"}]"));
+        assertEquals("boom", failed.getMessage());
+
+        // a malformed response is an error, not a null result
+        SurrealException malformed = assertThrows(SurrealException.class, () -> QueryResult.parseArray(codec, Person.class, "[{\"status\":"));
+        assertEquals("Could not parse the query results", malformed.getMessage());
+    }
+
+}
@@ -0,0 +1,113 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.ColumnarResult;
+import dev.bitbite.surrealdb.query.Columns;
+
+public class ColumnarResultTest {
+
+    private static final Columns COLUMNS = Columns.builder().doubles("price").longs("total").ints("quantity").build();
+
+    @Test
+    void testRead() {
+        String json = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+            + "{\"id\":\"order:1\",\"price\":9.5,\"total\":9000000000,\"quantity\":3,\"tags\":[\"a\",{\"b\":1}]},"
+            + "{\"id\":\"order:2\",\"price\":null,\"quantity\":1},"
+            + "null,"
+            + "{\"id\":\"order:4\",\"price\":2,\"total\":-1,\"quantity\":7}"
+            + "]}]";
+        ColumnarResult result = ColumnarResult.read(COLUMNS, new StringReader(json));
+        assertEquals(4, result.size());
+
+        ColumnarResult.DoubleColumn price = result.getDoubles("price");
+        assertArrayEquals(new double[] {9.5, 0, 0, 2}, price.values());
+        assertEquals(2, price.getNullCount());
+        assertFalse(price.isNull(0));
+        assertTrue(price.isNull(1));
+        assertTrue(price.isNull(2));
+
+        ColumnarResult.LongColumn total = result.getLongs("total");
+        assertArrayEquals(new long[] {9_000_000_000L, 0, 0, -1}, total.values());
+        assertTrue(total.isNull(1));
+        assertFalse(total.isNull(3));
+        assertEquals(0b0110L, total.getNulls()[0]);
+
+        assertArrayEquals(new int[] {3, 1, 0, 7}, result.getInts("quantity").values());
+        assertEquals(1, result.getInts("quantity").getNullCount());
+
+        assertThrows(IllegalArgumentException.class, () -> result.getDoubles("total"));
+        assertThrows(IllegalArgumentException.class, () -> result.getDoubles("name"));
+    }
+
+    @Test
+    void testErrors() {
+        String failed = "[{\"result\":\"There was a problem with the database\",\"status\":\"ERR\",\"time\":\"1ms\"}]";
+        assertThrows(SurrealException.class, () -> ColumnarResult.read(COLUMNS, new StringReader(failed)));
+
+        String fraction = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"total\":1.5}]}]";
+        SurrealException e = assertThrows(SurrealException.class, () -> ColumnarResult.read(COLUMNS, new StringReader(fraction)));
+        assertEquals("The field total of row 0 is not a long", e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> Columns.builder().doubles("price").ints("price"));
+        assertThrows(IllegalArgumentException.class, () -> Columns.builder().build());
+    }
+
+    @Test
+    void testSparseColumns() {
+        int rows = 3000;
+        String json = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+            + IntStream.range(0, rows).mapToObj(i -> i == 2000 || i == rows - 1 ? "{\"price\":1.5}" : "{\"price\":null}").collect(Collectors.joining(","))
+            + "]}]";
+        ColumnarResult result = ColumnarResult.read(COLUMNS, new StringReader(json));
+        assertEquals(rows, result.size());
+
+        ColumnarResult.DoubleColumn price = result.getDoubles("price");
+        assertEquals(rows, price.values().length);
+        assertEquals(rows - 2, price.getNullCount());
+        assertTrue(price.isNull(1999));
+        assertFalse(price.isNull(2000));
+        assertEquals(1.5, price.get(2000));
+        assertFalse(price.isNull(rows - 1));
+        assertEquals(rows, result.getLongs("total").getNullCount());
+        assertEquals(rows, result.getInts("quantity").values().length);
+    }
+
+    @Test
+    void testQueryColumns() throws Exception {
+        int rows = 5000;
+        String body = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+            + IntStream.range(0, rows).mapToObj(i -> "{\"price\":"+(i % 3 == 0 ? "null" : i+".25")+",\"total\":"+i+",\"quantity\":"+i+"}").collect(Collectors.joining(","))
+            + "]}]";
+        try (HttpStub stub = new HttpStub(request -> HttpStub.Response.ok(body))) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            ColumnarResult result = conn.queryColumns(COLUMNS, "SELECT price, total, quantity FROM order");
+            assertEquals(rows, result.size());
+
+            double sum = 0;
+            ColumnarResult.DoubleColumn price = result.getDoubles("price");
+            for(int row = 0; row < result.size(); row++) {
+                if(!price.isNull(row))
+                    sum += price.get(row);
+            }
+            double expected = IntStream.range(0, rows).filter(i -> i % 3 != 0).mapToDouble(i -> i + 0.25).sum();
+            assertEquals(expected, sum);
+            assertEquals((rows + 2) / 3, price.getNullCount());
+            assertEquals(rows, price.values().length);
+            assertEquals((long) rows * (rows - 1) / 2, Arrays.stream(result.getLongs("total").values()).sum());
+        }
+    }
+
+}
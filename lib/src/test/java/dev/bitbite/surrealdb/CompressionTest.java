@@ -0,0 +1,120 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+
+public class CompressionTest {
+
+    private static final String PEOPLE = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+        + IntStream.range(0, 500).mapToObj(i -> "{\"id\":\"person:"+i+"\",\"name\":\"Person "+i+"\"}").collect(Collectors.joining(","))
+        + "]}]";
+
+    private static byte[] compress(String body, String encoding) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Answers like a server compressing its responses with the first encoding the client accepts
+     */
+    private static HttpStub.Response respond(HttpStub.Request request, String body, String encoding) {
+        String accepted = request.headers().getFirst("Accept-Encoding");
+        if(accepted == null || !accepted.contains(encoding))
+            return HttpStub.Response.ok(body);
+        Headers headers = new Headers();
+        headers.add("Content-Encoding", encoding);
+        return new HttpStub.Response(200, headers, compress(body, encoding));
+    }
+
+    private static String body(HttpStub.Request request) {
+        if(!"gzip".equals(request.headers().getFirst("Content-Encoding")))
+            return request.body();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(request.rawBody()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testResponsesAreDecompressed() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> respond(request, PEOPLE, request.path().equals("/sql") ? "deflate" : "gzip"))) {
+            SurrealDBConnection conn = SurrealDBConnection.builder().host(stub.getURI()).compression(1024).build();
+            assertTrue(conn.isCompressing());
+
+            List<Person> people = conn.select(Person.class, "person").getResult();
+            assertEquals(500, people.size());
+            assertEquals("Person 499", people.get(499).getName());
+
+            try (Stream<Person> stream = conn.queryStream(Person.class, "SELECT * FROM person")) {
+                assertEquals(500, stream.count());
+            }
+        }
+    }
+
+    @Test
+    void testRequestsAreCompressedAboveThreshold() throws Exception {
+        Queue<HttpStub.Request> requests = new ConcurrentLinkedQueue<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.add(request);
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"x\"}]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.enableCompression(1024);
+
+            conn.create("person", "1", new Person("Tobie"));
+            HttpStub.Request small = requests.poll();
+            assertNull(small.headers().getFirst("Content-Encoding"));
+            assertEquals("gzip, deflate", small.headers().getFirst("Accept-Encoding"));
+
+            String name = "Tobie".repeat(1000);
+            conn.create("person", "2", new Person(name));
+            HttpStub.Request large = requests.poll();
+            assertEquals("gzip", large.headers().getFirst("Content-Encoding"));
+            assertTrue(large.rawBody().length < name.length() / 10);
+            assertTrue(body(large).contains(name));
+
+            String query = "SELECT * FROM person WHERE name = '"+name+"'";
+            conn.query(Person.class, query);
+            HttpStub.Request sql = requests.poll();
+            assertEquals("gzip", sql.headers().getFirst("Content-Encoding"));
+            assertEquals(query, body(sql));
+
+            conn.disableCompression();
+            assertFalse(conn.isCompressing());
+            conn.create("person", "3", new Person(name));
+            HttpStub.Request uncompressed = requests.poll();
+            assertNull(uncompressed.headers().getFirst("Content-Encoding"));
+            assertNull(uncompressed.headers().getFirst("Accept-Encoding"));
+            assertTrue(uncompressed.body().contains(name));
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.LimitExceededException;
+import dev.bitbite.surrealdb.metrics.InMemoryMetrics;
+import dev.bitbite.surrealdb.metrics.Operation;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    void testQueueAndShed() throws Exception {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+            .initialLimit(2).minLimit(2).maxLimit(2)
+            .queueSize(1).queueTimeout(Duration.ofSeconds(5))
+            .build();
+        ConcurrencyLimiter.Permit first = limiter.acquire().join();
+        limiter.acquire().join();
+        CompletableFuture<ConcurrencyLimiter.Permit> queued = limiter.acquire();
+        assertEquals(1, limiter.getQueueDepth());
+
+        CompletionException shed = assertThrows(CompletionException.class, () -> limiter.acquire().join());
+        assertTrue(shed.getCause() instanceof LimitExceededException);
+        assertEquals(1, limiter.getShedRequests());
+
+        first.release(1_000_000, false);
+        assertTrue(queued.isDone());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+
+        // a cancelled waiter leaves the queue without being counted as shed
+        limiter.acquire().cancel(true);
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(1, limiter.getShedRequests());
+    }
+
+    @Test
+    void testQueueTimeout() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+            .initialLimit(1).minLimit(1).maxLimit(1)
+            .queueTimeout(Duration.ofMillis(50))
+            .build();
+        limiter.acquire().join();
+        CompletionException e = assertThrows(CompletionException.class, () -> limiter.acquire().join());
+        assertTrue(e.getCause() instanceof LimitExceededException);
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testLimitAdaptsToLatency() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().initialLimit(10).maxLimit(100).build();
+
+        // a saturated limit grows while the latency stays at the baseline
+        for(int round = 0; round < 40; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for(int i = 0; i < limiter.getLimit(); i++)
+                permits.add(limiter.acquire().join());
+            permits.forEach(permit -> permit.release(1_000_000, false));
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown >= 20, "limit "+grown);
+
+        // the latency rising above the tolerance backs off once per round trip
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for(int i = 0; i < grown; i++)
+            permits.add(limiter.acquire().join());
+        permits.forEach(permit -> permit.release(10_000_000, false));
+        assertTrue(Math.abs(limiter.getLimit() - grown * 0.9) <= 1, "limit "+limiter.getLimit());
+
+        for(int round = 0; round < 50; round++)
+            limiter.acquire().join().release(0, true);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void testConnectionShedsExcessRequests() throws Exception {
+        CountDownLatch answer = new CountDownLatch(1);
+        String record = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"Tobie\"}]}]";
+        try (HttpStub stub = new HttpStub(request -> {
+            try {
+                answer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return HttpStub.Response.ok(record);
+        })) {
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .host(stub.getURI())
+                .concurrencyLimiter(ConcurrencyLimiter.builder().initialLimit(1).minLimit(1).maxLimit(1)
+                    .queueSize(1).queueTimeout(Duration.ofMillis(50)).build())
+                .metricsListener(metrics)
+                .build();
+
+            CompletableFuture<QueryResult<Person>> sent = conn.selectAsync(Person.class, "person", "1");
+            CompletableFuture<QueryResult<Person>> queued = conn.selectAsync(Person.class, "person", "1");
+            assertEquals(1, metrics.getQueued());
+            assertThrows(LimitExceededException.class, () -> conn.select(Person.class, "person", "1"));
+            assertTrue(metrics.get(Operation.SELECT, "person").getErrors() >= 1);
+
+            Thread.sleep(200);
+            answer.countDown();
+            assertEquals("Tobie", sent.join().getResult().get(0).getName());
+            // the queued request could not wait for the first one longer than the queue timeout
+            assertThrows(CompletionException.class, queued::join);
+            assertEquals(0, conn.getConcurrencyLimiter().getInFlight());
+
+            String scrape = metrics.scrape();
+            assertTrue(scrape.contains("surrealdb_client_concurrency_limit 1"), scrape);
+            assertTrue(scrape.contains("surrealdb_client_queued_requests 0"), scrape);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.DeadlineExceededException;
+
+public class DeadlineTest {
+
+    private static final String RECORD = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"Tobie\"}]}]";
+
+    private static HttpStub.Response slow(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return HttpStub.Response.ok(RECORD);
+    }
+
+    private static void awaitReleased(SurrealDBConnection conn) throws InterruptedException {
+        long start = System.nanoTime();
+        while(conn.getNodes().getNodes().get(0).getOutstandingRequests() > 0 && System.nanoTime() - start < 1_000_000_000L)
+            Thread.sleep(5);
+        assertEquals(0, conn.getNodes().getNodes().get(0).getOutstandingRequests());
+    }
+
+    @Test
+    void testDeadlineExceeded() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> request.path().endsWith("/slow") ? slow(5000) : HttpStub.Response.ok(RECORD))) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            SurrealDBConnection view = conn.withDeadline(Duration.ofMillis(1000));
+            assertEquals(Duration.ofMillis(1000), view.getDeadline());
+
+            long start = System.nanoTime();
+            assertThrows(DeadlineExceededException.class, () -> view.select(Person.class, "person", "slow"));
+            assertTrue(System.nanoTime() - start < 3_000_000_000L);
+            // the exchange is aborted rather than left running until the server answers
+            awaitReleased(conn);
+
+            assertEquals("Tobie", view.select(Person.class, "person", "1").getResult().get(0).getName());
+            assertThrows(IllegalArgumentException.class, () -> conn.withDeadline(Duration.ZERO));
+        }
+    }
+
+    @Test
+    void testHedgedRead() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (HttpStub stub = new HttpStub(request -> requests.incrementAndGet() == 41 ? slow(5000) : HttpStub.Response.ok(RECORD))) {
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .host(stub.getURI())
+                .hedging(95, Duration.ofMillis(500))
+                .build();
+            assertTrue(conn.isHedging());
+            for(int i = 0; i < 40; i++)
+                conn.select(Person.class, "person", "1");
+            assertEquals(40, requests.get());
+
+            long start = System.nanoTime();
+            assertEquals("Tobie", conn.select(Person.class, "person", "1").getResult().get(0).getName());
+            assertTrue(System.nanoTime() - start < 1_500_000_000L);
+            assertEquals(42, requests.get());
+            awaitReleased(conn);
+
+            conn.disableHedging();
+            conn.create("person", new Person("Jaime"));
+            assertEquals(43, requests.get());
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import dev.bitbite.surrealdb.orm.EntityCache;
+import dev.bitbite.surrealdb.orm.Repository;
+
+public class EntityCacheTest {
+
+    @Test
+    void testHitsAndMisses() {
+        EntityCache<String> cache = new EntityCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        for(int i = 0; i < 3; i++)
+            assertEquals("value", cache.get("a", id -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture("value");
+            }).join());
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testSingleLoad() {
+        EntityCache<String> cache = new EntityCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        var first = cache.get("a", id -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        var second = cache.get("a", id -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        pending.complete("value");
+        assertEquals("value", first.join());
+        assertEquals("value", second.join());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidateDuringLoad() {
+        EntityCache<String> cache = new EntityCache<>(10, Duration.ofMinutes(1));
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        var stale = cache.get("a", id -> pending);
+        cache.invalidate("a");
+        pending.complete("stale");
+        assertEquals("stale", stale.join());
+        assertEquals("fresh", cache.get("a", id -> CompletableFuture.completedFuture("fresh")).join());
+    }
+
+    @Test
+    void testFrequencyAwareEviction() {
+        EntityCache<String> cache = new EntityCache<>(2, Duration.ofMinutes(1));
+        for(int i = 0; i < 5; i++) {
+            cache.get("hot1", CompletableFuture::completedFuture).join();
+            cache.get("hot2", CompletableFuture::completedFuture).join();
+        }
+        // entities requested once do not push out the frequently used ones
+        for(int i = 0; i < 20; i++)
+            cache.get("cold"+i, CompletableFuture::completedFuture).join();
+        long misses = cache.getMisses();
+        cache.get("hot1", CompletableFuture::completedFuture).join();
+        cache.get("hot2", CompletableFuture::completedFuture).join();
+        assertEquals(misses, cache.getMisses());
+        assertEquals(2, cache.getSize());
+
+        cache.put("written", "written");
+        assertEquals(2, cache.getSize());
+        assertTrue(cache.getEvictions() >= 1);
+    }
+
+    @Test
+    void testCopies() {
+        Gson gson = new Gson();
+        EntityCache<Person> cache = new EntityCache<>(10, Duration.ofMinutes(1), gson::toJson, json -> gson.fromJson(json, Person.class));
+        CompletableFuture<Person> pending = new CompletableFuture<>();
+        Person loaded = new Person("Tobie");
+        var first = cache.get("a", id -> pending);
+        var second = cache.get("a", id -> pending);
+        pending.complete(loaded);
+        Person hit = cache.get("a", id -> pending).join();
+
+        assertEquals(loaded, first.join());
+        assertNotSame(first.join(), second.join());
+        assertNotSame(loaded, hit);
+        hit.name = "Jaime";
+        assertEquals("Tobie", cache.get("a", id -> pending).join().getName());
+
+        Person written = new Person("Jaime");
+        cache.put("a", written);
+        written.name = "changed after the write";
+        assertEquals("Jaime", cache.get("a", id -> pending).join().getName());
+    }
+
+    @Test
+    void testRepositoryCacheReturnsCopies() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.incrementAndGet();
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"Tobie\"}]}]");
+        })) {
+            Repository<Person> people = new Repository<>(Person.class, new SurrealDBConnection(stub.getURI()));
+            people.enableCache(10, Duration.ofMinutes(1));
+            Person first = people.get("person:1");
+            // unsaved changes of one caller are not seen by others
+            first.name = "Jaime";
+            Person second = people.get("1");
+            assertNotSame(first, second);
+            assertEquals("Tobie", second.getName());
+            assertEquals(1, requests.get());
+        }
+    }
+
+    @Test
+    void testExpiry() throws Exception {
+        EntityCache<String> cache = new EntityCache<>(10, Duration.ofMillis(20));
+        cache.get("a", CompletableFuture::completedFuture).join();
+        Thread.sleep(50);
+        cache.get("a", CompletableFuture::completedFuture).join();
+        assertEquals(2, cache.getMisses());
+    }
+
+}
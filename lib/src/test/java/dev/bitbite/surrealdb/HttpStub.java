@@ -0,0 +1,77 @@
+package dev.bitbite.surrealdb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal in-process HTTP server standing in for SurrealDB in tests.
+ * Every request is answered by the handler, which may be called from several threads at once.
+ */
+public class HttpStub implements AutoCloseable {
+
+    public record Request(String method, String path, String query, Headers headers, byte[] rawBody) {
+        public String body() {
+            return new String(rawBody, StandardCharsets.UTF_8);
+        }
+    }
+
+    public record Response(int status, Headers headers, byte[] body) {
+        public Response(int status, String body) {
+            this(status, new Headers(), body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Response ok(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    private final HttpServer server;
+
+    public HttpStub(Function<Request, Response> handler) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            Response response;
+            try {
+                response = handler.apply(new Request(
+                    exchange.getRequestMethod(),
+                    exchange.getRequestURI().getPath(),
+                    exchange.getRequestURI().getRawQuery(),
+                    exchange.getRequestHeaders(),
+                    body
+                ));
+            } catch (RuntimeException e) {
+                response = new Response(500, String.valueOf(e));
+            }
+            exchange.getResponseHeaders().putAll(response.headers());
+            exchange.sendResponseHeaders(response.status(), response.body().length == 0 ? -1 : response.body().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body());
+            }
+        });
+        this.server.start();
+    }
+
+    public URI getURI() {
+        return URI.create("http://localhost:"+server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+}
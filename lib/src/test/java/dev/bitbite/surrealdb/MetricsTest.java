@@ -0,0 +1,83 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.metrics.Histogram;
+import dev.bitbite.surrealdb.metrics.InMemoryMetrics;
+import dev.bitbite.surrealdb.metrics.Operation;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+public class MetricsTest {
+
+    @Test
+    void testParseDuration() {
+        assertEquals(Duration.ofNanos(10_500), QueryResult.parseDuration("10.5µs"));
+        assertEquals(Duration.ofNanos(1_277_083), QueryResult.parseDuration("1.277083ms"));
+        assertEquals(Duration.ofNanos(350), QueryResult.parseDuration("350ns"));
+        assertEquals(Duration.ofSeconds(90), QueryResult.parseDuration("1m30s"));
+        assertNull(QueryResult.parseDuration("soon"));
+        assertNull(QueryResult.parseDuration(null));
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for(long i = 1; i <= 10_000; i++)
+            histogram.record(i * 1000);
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        long median = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(Math.abs(median - 5_000_000) <= 5_000_000 / 16, "median "+median);
+        assertTrue(Math.abs(p99 - 9_900_000) <= 9_900_000 / 16, "p99 "+p99);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testConnectionReportsRequests() throws Exception {
+        String record = "[{\"time\":\"1.5ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"Tobie\"}]}]";
+        try (HttpStub stub = new HttpStub(request -> request.path().equals("/sql")
+            ? HttpStub.Response.ok("[{\"time\":\"2ms\",\"status\":\"ERR\",\"result\":\"boom\"}]")
+            : HttpStub.Response.ok(record))) {
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            SurrealDBConnection conn = SurrealDBConnection.builder().host(stub.getURI()).metricsListener(metrics).build();
+
+            conn.select(Person.class, "person", "1");
+            conn.select(Person.class, "person", "1");
+            conn.create("person", new Person("Tobie"));
+            assertThrows(SurrealException.class, () -> conn.query(Person.class, "SELECT * FROM person"));
+
+            InMemoryMetrics.OperationMetrics select = metrics.get(Operation.SELECT, "person");
+            assertEquals(2, select.getResponses());
+            assertEquals(2 * record.length(), select.getResponseBytes());
+            assertEquals(2, select.getDecodeTime().getCount());
+            assertEquals(3_000_000, select.getServerTime().getSum());
+            assertEquals(0, select.getErrors());
+
+            InMemoryMetrics.OperationMetrics create = metrics.get(Operation.CREATE, "person");
+            assertEquals("{\"name\":\"Tobie\"}".length(), create.getRequestBytes());
+
+            InMemoryMetrics.OperationMetrics query = metrics.get(Operation.QUERY, null);
+            assertEquals(1, query.getErrors());
+            assertEquals("SELECT * FROM person".length(), query.getRequestBytes());
+
+            String scrape = metrics.scrape();
+            assertTrue(scrape.contains("surrealdb_client_responses_total{operation=\"select\",table=\"person\"} 2"), scrape);
+            assertTrue(scrape.contains("surrealdb_client_errors_total{operation=\"query\",table=\"\"} 1"), scrape);
+            assertTrue(scrape.contains("surrealdb_client_server_time_seconds_sum{operation=\"select\",table=\"person\"} 0.003"), scrape);
+
+            conn.setMetricsListener(null);
+            conn.select(Person.class, "person", "1");
+            assertEquals(2, select.getResponses());
+        }
+    }
+
+}
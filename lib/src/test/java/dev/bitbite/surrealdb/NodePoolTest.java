@@ -0,0 +1,115 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+public class NodePoolTest {
+
+    private static Function<HttpStub.Request, HttpStub.Response> node(AtomicBoolean healthy, AtomicInteger selects) {
+        return request -> {
+            if(request.path().equals("/health"))
+                return new HttpStub.Response(healthy.get() ? 200 : 503, "");
+            selects.incrementAndGet();
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]");
+        };
+    }
+
+    @Test
+    void testRouting() throws Exception {
+        AtomicBoolean firstHealthy = new AtomicBoolean(true);
+        AtomicInteger firstSelects = new AtomicInteger(), secondSelects = new AtomicInteger();
+        try (HttpStub first = new HttpStub(node(firstHealthy, firstSelects));
+             HttpStub second = new HttpStub(node(new AtomicBoolean(true), secondSelects))) {
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .hosts(List.of(first.getURI(), second.getURI()))
+                .healthCheckInterval(Duration.ofMinutes(1))
+                .build();
+
+            for(int i = 0; i < 10; i++)
+                conn.select(Person.class, "person");
+            assertEquals(5, firstSelects.get());
+            assertEquals(5, secondSelects.get());
+
+            firstHealthy.set(false);
+            conn.getNodes().checkHealth().join();
+            assertFalse(conn.getNodes().getNodes().get(0).isHealthy());
+            for(int i = 0; i < 10; i++)
+                conn.select(Person.class, "person");
+            assertEquals(5, firstSelects.get());
+            assertEquals(15, secondSelects.get());
+
+            firstHealthy.set(true);
+            conn.getNodes().checkHealth().join();
+            assertTrue(conn.getNodes().getNodes().get(0).isHealthy());
+            conn.select(Person.class, "person");
+            conn.select(Person.class, "person");
+            assertEquals(6, firstSelects.get());
+            conn.close();
+        }
+    }
+
+    @Test
+    void testEjectUnreachableNode() throws Exception {
+        AtomicInteger selects = new AtomicInteger();
+        try (HttpStub alive = new HttpStub(node(new AtomicBoolean(true), selects))) {
+            HttpStub dead = new HttpStub(node(new AtomicBoolean(true), new AtomicInteger()));
+            dead.close();
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .hosts(List.of(dead.getURI(), alive.getURI()))
+                .build();
+
+            int failures = 0;
+            for(int i = 0; i < 10; i++) {
+                try {
+                    conn.select(Person.class, "person");
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+            }
+            assertTrue(failures <= 1);
+            assertFalse(conn.getNodes().getNodes().get(0).isHealthy());
+            assertEquals(10 - failures, selects.get());
+            conn.close();
+        }
+    }
+
+    @Test
+    void testReadmitNodeThatAnswers() throws Exception {
+        AtomicInteger firstSelects = new AtomicInteger(), secondSelects = new AtomicInteger();
+        try (HttpStub first = new HttpStub(node(new AtomicBoolean(true), firstSelects));
+             HttpStub second = new HttpStub(node(new AtomicBoolean(true), secondSelects))) {
+            // a single node is never probed, so only its own requests can re-admit it
+            SurrealDBConnection single = SurrealDBConnection.builder().hosts(List.of(first.getURI())).build();
+            NodePool.Node node = single.getNodes().getNodes().get(0);
+            single.getNodes().release(single.getNodes().acquire(), null, new ConnectException());
+            assertFalse(node.isHealthy());
+            single.select(Person.class, "person");
+            assertTrue(node.isHealthy());
+            single.close();
+
+            // with all nodes ejected, requests fall back to them and re-admit the ones answering
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .hosts(List.of(first.getURI(), second.getURI()))
+                .healthCheckInterval(Duration.ofMinutes(1))
+                .build();
+            NodePool.Node ejected = conn.getNodes().acquire(), otherEjected = conn.getNodes().acquire();
+            conn.getNodes().release(ejected, null, new ConnectException());
+            conn.getNodes().release(otherEjected, null, new ConnectException());
+            assertTrue(conn.getNodes().getNodes().stream().noneMatch(NodePool.Node::isHealthy));
+            conn.select(Person.class, "person");
+            assertEquals(1, conn.getNodes().getNodes().stream().filter(NodePool.Node::isHealthy).count());
+            conn.close();
+        }
+    }
+
+}
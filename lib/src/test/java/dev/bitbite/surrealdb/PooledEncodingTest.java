@@ -0,0 +1,107 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.codec.BufferPool;
+import dev.bitbite.surrealdb.codec.Codec;
+import dev.bitbite.surrealdb.codec.PooledOutputStream;
+
+public class PooledEncodingTest {
+
+    private static String drain(HttpRequest.BodyPublisher publisher) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                bytes.writeBytes(chunk);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.join();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testEncodeAcrossBuffers() {
+        BufferPool pool = new BufferPool(16, 8);
+        Codec codec = new Codec();
+        Person person = new Person("netcöde with a name longer than one buffer");
+
+        PooledOutputStream body = codec.encode(person, pool);
+        HttpRequest.BodyPublisher publisher = body.toBodyPublisher();
+
+        String json = codec.toJson(person);
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, publisher.contentLength());
+        assertEquals(json, drain(publisher));
+        // a retried request subscribes again
+        assertEquals(json, drain(publisher));
+
+        assertEquals(0, pool.getPooledBuffers());
+        body.release();
+        body.release();
+        assertEquals(4, pool.getPooledBuffers());
+    }
+
+    @Test
+    void testPoolIsBounded() {
+        BufferPool pool = new BufferPool(4, 2);
+        ByteBuffer a = pool.acquire(), b = pool.acquire(), c = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.getPooledBuffers());
+        assertSame(b, pool.acquire());
+    }
+
+    @Test
+    void testCreateSendsPooledBody() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for(int i = 0; i < 100_000; i++)
+            name.append((char) ('a' + i % 26));
+        try (HttpStub stub = new HttpStub(request -> {
+            String body = request.body();
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["+body.replaceFirst("\\{", "{\"id\":\"person:1\",")+"]}]");
+        })) {
+            BufferPool pool = new BufferPool(1024, 256);
+            SurrealDBConnection conn = SurrealDBConnection.builder().host(stub.getURI()).bufferPool(pool).build();
+
+            Person created = conn.create("person", new Person(name.toString())).get(0).getResult().get(0);
+
+            assertEquals(name.toString(), created.getName());
+            assertEquals("person:1", created.getId());
+            assertEquals(98, pool.getPooledBuffers());
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.annotations.SerializedName;
+
+import dev.bitbite.surrealdb.orm.Repository;
+import dev.bitbite.surrealdb.query.Query;
+
+public class ProjectionTest {
+
+    public record PersonName(String id, @SerializedName("name") String displayName) {
+    }
+
+    public interface PersonSummary {
+        String getName();
+        int getAge();
+        boolean isActive();
+        String nickname();
+
+        default String label() {
+            return getName() + " (" + getAge() + ")";
+        }
+    }
+
+    public static class NoProjection {
+        public String name;
+    }
+
+    private static HttpStub stub(List<HttpStub.Request> requests) throws Exception {
+        return new HttpStub(request -> {
+            requests.add(request);
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["
+                + "{\"id\":\"person:1\",\"name\":\"Tobie\",\"age\":35,\"active\":true,\"nickname\":\"tobie\"},"
+                + "{\"id\":\"person:2\",\"name\":\"Jaime\",\"active\":false}]}]");
+        });
+    }
+
+    @Test
+    void testRecordProjection() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = stub(requests)) {
+            Repository<Person> people = new Repository<>(Person.class, new SurrealDBConnection(stub.getURI()));
+            List<PersonName> names = people.getAll(PersonName.class);
+
+            assertEquals("SELECT id, name FROM person", requests.get(0).body());
+            assertEquals(List.of(new PersonName("person:1", "Tobie"), new PersonName("person:2", "Jaime")), names);
+
+            people.getSpecificAsync(PersonName.class, Query.selectAll().where("age", ">", 30).limit(10)).join();
+            assertEquals("SELECT id, name FROM person WHERE age > 30 LIMIT 10", requests.get(1).body());
+        }
+    }
+
+    @Test
+    void testInterfaceProjection() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = stub(requests)) {
+            Repository<Person> people = new Repository<>(Person.class, new SurrealDBConnection(stub.getURI()));
+            List<PersonSummary> summaries = people.getAllAsync(PersonSummary.class).join();
+
+            assertEquals("SELECT active, age, name, nickname FROM person", requests.get(0).body());
+            assertEquals("Tobie (35)", summaries.get(0).label());
+            assertEquals(true, summaries.get(0).isActive());
+            assertEquals("tobie", summaries.get(0).nickname());
+            assertEquals(0, summaries.get(1).getAge());
+            assertNull(summaries.get(1).nickname());
+            assertEquals(summaries.get(0), people.getAll(PersonSummary.class).get(0));
+        }
+    }
+
+    @Test
+    void testInvalidProjection() throws Exception {
+        try (HttpStub stub = stub(new CopyOnWriteArrayList<>())) {
+            Repository<Person> people = new Repository<>(Person.class, new SurrealDBConnection(stub.getURI()));
+            assertThrows(IllegalArgumentException.class, () -> people.getAll(NoProjection.class));
+        }
+    }
+
+}
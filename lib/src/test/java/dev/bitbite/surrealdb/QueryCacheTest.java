@@ -0,0 +1,186 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.metrics.InMemoryMetrics;
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.SelectQuery;
+
+public class QueryCacheTest {
+
+    private static final String RESULT = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"Tobie\"}]}]";
+
+    /**
+     * Counts the select queries per table, answering writes and selects alike
+     */
+    private static HttpStub stub(Map<String, AtomicInteger> selects) throws Exception {
+        return new HttpStub(request -> {
+            if(request.path().equals("/sql") && request.body().startsWith("SELECT")) {
+                String table = request.body().replaceAll(".* FROM (\\w+).*", "$1");
+                selects.computeIfAbsent(table, t -> new AtomicInteger()).incrementAndGet();
+                if(table.equals("broken"))
+                    return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"The table does not exist\"}]");
+            }
+            return HttpStub.Response.ok(RESULT);
+        });
+    }
+
+    private static SelectQuery people() {
+        return Query.selectAll().from("person").where("name", "=", "Tobie");
+    }
+
+    @Test
+    void testRepeatedQueriesAreAnsweredFromCache() throws Exception {
+        Map<String, AtomicInteger> selects = new ConcurrentHashMap<>();
+        try (HttpStub stub = stub(selects)) {
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            SurrealDBConnection conn = SurrealDBConnection.builder().host(stub.getURI())
+                .metricsListener(metrics)
+                .queryCache(1_000_000, Duration.ofMinutes(1))
+                .build();
+            QueryCache cache = conn.getQueryCache();
+
+            List<Person> first = conn.query(Person.class, people()).get(0).getResult();
+            List<Person> second = conn.query(Person.class, people()).get(0).getResult();
+            conn.queryAsync(Person.class, people()).join();
+            assertEquals("Tobie", second.get(0).getName());
+            assertNotSame(first.get(0), second.get(0));
+            assertEquals(1, selects.get("person").get());
+            assertEquals(2, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+            assertEquals(2.0 / 3, metrics.getQueryCacheHitRate(), 1e-9);
+            assertTrue(metrics.scrape().contains("surrealdb_client_query_cache_hits_total 2"));
+
+            // queries as text are not cached
+            conn.query(Person.class, people().toString());
+            assertEquals(2, selects.get("person").get());
+
+            // another database has entries of its own
+            conn.use("other", "other");
+            conn.query(Person.class, people());
+            assertEquals(3, selects.get("person").get());
+
+            // failed queries are not cached
+            assertThrows(SurrealException.class, () -> conn.query(Person.class, Query.selectAll().from("broken")));
+            assertThrows(SurrealException.class, () -> conn.query(Person.class, Query.selectAll().from("broken")));
+            assertEquals(2, selects.get("broken").get());
+        }
+    }
+
+    @Test
+    void testWritesInvalidateTheirTables() throws Exception {
+        Map<String, AtomicInteger> selects = new ConcurrentHashMap<>();
+        try (HttpStub stub = stub(selects)) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            QueryCache cache = conn.enableQueryCache(1_000_000, Duration.ofMinutes(1));
+            SelectQuery orders = Query.selectAll().from("order");
+
+            conn.query(Person.class, people());
+            conn.query(Person.class, orders);
+            conn.create("person", new Person("Jaime"));
+            conn.query(Person.class, people());
+            conn.query(Person.class, orders);
+            assertEquals(2, selects.get("person").get());
+            assertEquals(1, selects.get("order").get());
+
+            conn.merge("order", "1", new Person("Jaime"));
+            conn.query(Person.class, "UPDATE person SET name = 'Tobie' WHERE name = 'DELETE order'");
+            conn.query(Person.class, people());
+            conn.query(Person.class, orders);
+            assertEquals(3, selects.get("person").get());
+            assertEquals(2, selects.get("order").get());
+
+            // the target of the statement is unknown, so everything is invalidated
+            conn.query(Person.class, "UPDATE $record SET name = 'Tobie'");
+            assertEquals(0, cache.getSize());
+        }
+    }
+
+    @Test
+    void testViewsAndSessionsShareTheCache() throws Exception {
+        Map<String, AtomicInteger> selects = new ConcurrentHashMap<>();
+        try (HttpStub stub = stub(selects)) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            SurrealDBConnection view = conn.withDeadline(Duration.ofSeconds(5));
+            SurrealDBConnection session = conn.session("test", "test", null);
+
+            // the cache is enabled after the view was created
+            QueryCache cache = conn.enableQueryCache(1_000_000, Duration.ofMinutes(1));
+            assertSame(cache, view.getQueryCache());
+            conn.query(Person.class, people());
+            view.query(Person.class, people());
+            assertEquals(1, selects.get("person").get());
+
+            // writes through the view and sessions invalidate the cache of the connection
+            view.create("person", new Person("Jaime"));
+            conn.query(Person.class, people());
+            assertEquals(2, selects.get("person").get());
+            session.create("person", new Person("Jaime"));
+            conn.query(Person.class, people());
+            assertEquals(3, selects.get("person").get());
+
+            // sessions do not read from the cache
+            session.query(Person.class, people());
+            assertEquals(4, selects.get("person").get());
+
+            // a new cache replaces the old one for the view as well
+            long misses = cache.getMisses();
+            QueryCache replaced = conn.enableQueryCache(1_000_000, Duration.ofMinutes(1));
+            view.query(Person.class, people());
+            assertEquals(1, replaced.getMisses());
+            assertEquals(misses, cache.getMisses());
+            view.disableQueryCache();
+            assertNull(conn.getQueryCache());
+        }
+    }
+
+    @Test
+    void testExpiryAndEviction() throws Exception {
+        Map<String, AtomicInteger> selects = new ConcurrentHashMap<>();
+        try (HttpStub stub = stub(selects)) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            QueryCache cache = conn.enableQueryCache(1_000_000, Duration.ofMillis(100));
+            conn.query(Person.class, people());
+            Thread.sleep(150);
+            conn.query(Person.class, people());
+            assertEquals(2, selects.get("person").get());
+
+            // room for a single response
+            cache = conn.enableQueryCache(700, Duration.ofMinutes(1));
+            conn.query(Person.class, people());
+            conn.query(Person.class, people().limit(1));
+            assertEquals(1, cache.getSize());
+            assertEquals(1, cache.getEvictions());
+            assertTrue(cache.getWeight() <= 700);
+        }
+    }
+
+    @Test
+    void testWrittenTables() {
+        assertEquals(Set.of(), QueryCache.writtenTables("SELECT * FROM person WHERE name = 'CREATE order'"));
+        assertEquals(Set.of("person"), QueryCache.writtenTables("create person:tobie SET name = 'Tobie'"));
+        assertEquals(Set.of("person", "order"), QueryCache.writtenTables("UPDATE person, order:1 SET seen = true; -- DELETE comment"));
+        assertEquals(Set.of("order"), QueryCache.writtenTables("DELETE FROM ONLY `order` WHERE total = 0"));
+        assertEquals(Set.of("person"), QueryCache.writtenTables("INSERT IGNORE INTO person [{\"name\":\"Tobie\"}]"));
+        assertNull(QueryCache.writtenTables("UPDATE type::table($table) SET seen = true"));
+        assertNull(QueryCache.writtenTables("RELATE person:1->likes->person:2"));
+        assertEquals("SELECT * FROM person WHERE name = 'a  b'", QueryCache.normalize("  SELECT *\n\tFROM person   WHERE name = 'a  b';"));
+    }
+
+}
@@ -0,0 +1,36 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.QueryResultReader;
+
+public class QueryResultReaderTest {
+
+    @Test
+    void testStream() {
+        String json = "[{\"result\":[{\"id\":\"person:1\",\"name\":\"a\"},{\"id\":\"person:2\",\"name\":\"b\"}],\"status\":\"OK\",\"time\":\"1ms\"}]";
+        try (Stream<Person> stream = QueryResultReader.stream(Person.class, new StringReader(json))) {
+            assertEquals(List.of("a", "b"), stream.map(Person::getName).toList());
+        }
+
+        json = "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]";
+        try (Stream<Person> stream = QueryResultReader.stream(Person.class, new StringReader(json))) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    void testError() {
+        String json = "[{\"result\":\"Database index `name` already contains 'netcode'\",\"status\":\"ERR\",\"time\":\"1ms\"}]";
+        assertThrows(SurrealException.class, () -> QueryResultReader.stream(Person.class, new StringReader(json)));
+    }
+
+}
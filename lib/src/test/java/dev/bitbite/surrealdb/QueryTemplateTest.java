@@ -0,0 +1,93 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.QueryTemplate;
+import dev.bitbite.surrealdb.query.SelectQuery;
+
+public class QueryTemplateTest {
+
+    @Test
+    void testCompile() {
+        SelectQuery query = Query.selectAll().from("person")
+            .where("name", "=", "netcode")
+            .where("age", ">", Query.param("minAge"))
+            .where("active = true")
+            .limit(10);
+        QueryTemplate template = query.compile();
+
+        assertEquals("SELECT * FROM person WHERE name = $p0 AND age > $minAge AND active = true LIMIT 10", template.getText());
+        assertEquals(List.of("p0", "minAge"), List.copyOf(template.getParameters()));
+        assertEquals(Map.of("p0", "netcode"), template.getDefaults());
+        assertEquals("SELECT * FROM person WHERE name = 'netcode' AND age > $minAge AND active = true LIMIT 10", query.toString());
+
+        assertSame(template, query.compile());
+        query.orderBy("age");
+        assertNotSame(template, query.compile());
+    }
+
+    @Test
+    void testGeneratedNamesSkipParameters() {
+        QueryTemplate template = Query.selectAll().from("person")
+            .where("a", "=", Query.param("p0"))
+            .where("b", "=", 5)
+            .where("c = $p1")
+            .where("d", "=", 6)
+            .compile();
+
+        assertEquals("SELECT * FROM person WHERE a = $p0 AND b = $p2 AND c = $p1 AND d = $p3", template.getText());
+        assertEquals(Map.of("p2", 5, "p3", 6), template.getDefaults());
+        assertThrows(IllegalArgumentException.class, () -> template.bind(Map.of()));
+    }
+
+    @Test
+    void testBind() {
+        QueryTemplate template = Query.selectAll().from("person")
+            .where("name", "=", "netcode")
+            .where("age", ">", Query.param("minAge"))
+            .compile();
+
+        assertEquals(Map.of("p0", "netcode", "minAge", 30), template.bind(Map.of("minAge", 30)));
+        assertEquals(Map.of("p0", "other", "minAge", 30), template.bind(Map.of("p0", "other", "minAge", 30)));
+        assertThrows(IllegalArgumentException.class, () -> template.bind(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> template.bind(Map.of("minAge", 30, "unknown", 1)));
+        assertThrows(IllegalArgumentException.class, () -> Query.param("no-name"));
+    }
+
+    @Test
+    void testVariablesAreSentAsParameters() throws Exception {
+        List<HttpStub.Request> requests = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.add(request);
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            QueryTemplate template = Query.selectAll().from("person").where("name", "=", Query.param("name")).compile();
+
+            Person person = conn.query(Person.class, template, Map.of("name", "net&code")).get(0).getResult().get(0);
+
+            assertEquals("netcode", person.getName());
+            HttpStub.Request request = requests.get(0);
+            assertEquals("/sql", request.path());
+            String[] parameter = request.query().split("=");
+            assertEquals("name", parameter[0]);
+            assertEquals("net&code", JsonParser.parseString(URLDecoder.decode(parameter[1], StandardCharsets.UTF_8)).getAsString());
+            assertEquals("SELECT * FROM person WHERE name = $name", request.body());
+        }
+    }
+
+}
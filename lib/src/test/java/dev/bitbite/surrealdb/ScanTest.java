@@ -0,0 +1,59 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+public class ScanTest {
+
+    private static HttpStub.Response page(int from, int to) {
+        StringBuilder records = new StringBuilder();
+        for(int i = from; i < to; i++)
+            records.append(i == from ? "" : ",").append("{\"id\":\"person:").append(i).append("\",\"name\":\"").append(i).append("\"}");
+        return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":["+records+"]}]");
+    }
+
+    @Test
+    void testScanPagesById() throws Exception {
+        List<String> statements = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            statements.add(request.body());
+            return switch(statements.size()) {
+                case 1 -> page(0, 3);
+                case 2 -> page(3, 6);
+                default -> page(6, 7);
+            };
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            try (Stream<Person> people = conn.scan("person", Person.class, 3)) {
+                assertEquals("0123456", people.map(p -> p.name).collect(Collectors.joining()));
+            }
+            assertEquals(3, statements.size());
+            assertTrue(statements.get(0).matches("SELECT \\* FROM person ORDER BY id.* LIMIT 3"), statements.get(0));
+            assertTrue(statements.get(1).contains("WHERE id > person:2"), statements.get(1));
+            assertTrue(statements.get(2).contains("WHERE id > person:5"), statements.get(2));
+        }
+    }
+
+    @Test
+    void testScanStopsOnError() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> request.body().contains("WHERE")
+            ? HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"boom\"}]")
+            : page(0, 2))) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            try (Stream<Person> people = conn.scan("person", Person.class, 2)) {
+                assertThrows(SurrealException.class, () -> people.forEach(p -> {}));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.query.QueryResult;
+
+public class SessionTest {
+
+    private static String jwt(String subject, long expiresAtMillis) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String claims = "{\"sub\":\""+subject+"\",\"exp\":"+expiresAtMillis / 1000+"}";
+        return encoder.encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.UTF_8))
+            +"."+encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8))+".signature";
+    }
+
+    private static String subject(String authorization) {
+        if(authorization == null)
+            return null;
+        String claims = authorization.substring("Bearer ".length()).split("\\.")[1];
+        return JsonParser.parseString(new String(Base64.getUrlDecoder().decode(claims), StandardCharsets.UTF_8)).getAsJsonObject().get("sub").getAsString();
+    }
+
+    private static HttpStub.Response record(String name) {
+        return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\""+name+"\"}]}]");
+    }
+
+    private static HttpStub.Response token(String jwt) {
+        return HttpStub.Response.ok("{\"code\":200,\"details\":\"Authentication succeeded\",\"token\":\""+jwt+"\"}");
+    }
+
+    @Test
+    void testSessionsShareTransport() throws Exception {
+        Map<String, AtomicInteger> signins = new ConcurrentHashMap<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            if(request.path().equals("/signin")) {
+                JsonObject body = JsonParser.parseString(request.body()).getAsJsonObject();
+                signins.computeIfAbsent(body.get("ns").getAsString(), ns -> new AtomicInteger()).incrementAndGet();
+                return token(jwt(body.get("ns").getAsString()+"/"+body.get("db").getAsString()+"/"+body.get("user").getAsString(), System.currentTimeMillis() + 3_600_000));
+            }
+            String ns = request.headers().getFirst("ns");
+            if(!(ns+"/"+request.headers().getFirst("db")+"/"+ns+"-admin").equals(subject(request.headers().getFirst("Authorization"))))
+                return HttpStub.Response.ok("There was a problem with authentication");
+            return record(request.headers().getFirst("ns"));
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            SurrealDBConnection acme = conn.session("acme", "shop", Credentials.database("acme-admin", "secret"));
+            SurrealDBConnection globex = conn.session("globex", "shop", Credentials.database("globex-admin", "secret"));
+            assertSame(conn.getNodes(), acme.getNodes());
+
+            List<CompletableFuture<QueryResult<Person>>> acmeSelects = new ArrayList<>();
+            List<CompletableFuture<QueryResult<Person>>> globexSelects = new ArrayList<>();
+            for(int i = 0; i < 20; i++) {
+                acmeSelects.add(acme.selectAsync(Person.class, "person", "1"));
+                globexSelects.add(globex.selectAsync(Person.class, "person", "1"));
+            }
+            acmeSelects.forEach(select -> assertEquals("acme", select.join().getResult().get(0).getName()));
+            globexSelects.forEach(select -> assertEquals("globex", select.join().getResult().get(0).getName()));
+
+            // concurrent requests share a single sign in per session
+            assertEquals(1, signins.get("acme").get());
+            assertEquals(1, signins.get("globex").get());
+        }
+    }
+
+    @Test
+    void testTokenIsRefreshedBeforeExpiry() throws Exception {
+        AtomicInteger signins = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try (HttpStub stub = new HttpStub(request -> {
+            if(request.path().equals("/signin")) {
+                signins.incrementAndGet();
+                return token(jwt("user", System.currentTimeMillis() + 2000));
+            }
+            String authorization = request.headers().getFirst("Authorization");
+            if(authorization == null || SessionAuthentication.expiry(authorization.substring("Bearer ".length())) <= System.currentTimeMillis()) {
+                rejected.incrementAndGet();
+                return HttpStub.Response.ok("There was a problem with authentication");
+            }
+            return record("Tobie");
+        })) {
+            SurrealDBConnection session = new SurrealDBConnection(stub.getURI()).session("test", "test", Credentials.root("root", "root"));
+            long end = System.currentTimeMillis() + 3000;
+            int selects = 0;
+            while(System.currentTimeMillis() < end) {
+                assertEquals("Tobie", session.select(Person.class, "person", "1").getResult().get(0).getName());
+                selects++;
+                Thread.sleep(20);
+            }
+            assertTrue(selects > 50);
+            assertEquals(0, rejected.get());
+            assertTrue(signins.get() >= 2, "signins "+signins.get());
+        }
+    }
+
+    @Test
+    void testSessionIsImmutable() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> record("Tobie"))) {
+            SurrealDBConnection session = new SurrealDBConnection(stub.getURI()).session("test", "test", null);
+            assertThrows(UnsupportedOperationException.class, () -> session.use("other"));
+            assertThrows(UnsupportedOperationException.class, () -> session.signin("root", "root"));
+            assertThrows(UnsupportedOperationException.class, () -> session.signup("scope", Map.of()));
+            assertEquals("Tobie", session.select(Person.class, "person", "1").getResult().get(0).getName());
+        }
+    }
+
+}
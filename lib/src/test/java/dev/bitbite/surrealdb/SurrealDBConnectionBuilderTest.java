@@ -0,0 +1,50 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+
+public class SurrealDBConnectionBuilderTest {
+
+    @Test
+    void testBuilder() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}]}]"))) {
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .host(stub.getURI())
+                .version(HttpClient.Version.HTTP_1_1)
+                .virtualThreads()
+                .connectTimeout(Duration.ofSeconds(1))
+                .requestTimeout(Duration.ofSeconds(5))
+                .build();
+            assertEquals("netcode", conn.selectAsync(Person.class, "person", "1").join().getResult().get(0).getName());
+        }
+    }
+
+    @Test
+    void testRequestTimeout() throws Exception {
+        try (HttpStub stub = new HttpStub(request -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return HttpStub.Response.ok("[]");
+        })) {
+            SurrealDBConnection conn = SurrealDBConnection.builder()
+                .host(stub.getURI())
+                .requestTimeout(Duration.ofMillis(100))
+                .build();
+            SurrealException e = assertThrows(SurrealException.class, () -> conn.select(Person.class, "person"));
+            assertTrue(e.getCause() instanceof HttpTimeoutException);
+        }
+    }
+
+}
@@ -71,6 +71,26 @@ public class SurrealDBConnectionTest {
         assertEquals(person, deleteResult.getResult().get(0));
     }
 
+    @Test
+    void testAsyncCRUD() {
+        conn.use("test", "test");
+        testScopeSignin();
+        conn.deleteAsync(Person.class, "person").join();
+
+        Person person = new Person("netcode");
+        var createResult = conn.createAsync("person", person).join().get(0);
+        assertEquals("OK", createResult.getStatus());
+        person = createResult.getResult().get(0);
+
+        var first = conn.selectAsync(Person.class, "person", person.getId().split(":")[1]);
+        var second = conn.selectAsync(Person.class, "person");
+        assertEquals(person, first.join().getResult().get(0));
+        assertEquals(person, second.join().getResult().get(0));
+
+        var deleteResult = conn.deleteAsync(Person.class, "person", person.getId().split(":")[1]).join().get(0);
+        assertEquals("OK", deleteResult.getStatus());
+    }
+
     public static void main(String[] args) {
         var conn = new SurrealDBConnection(URI.create("http://localhost:8000"));
         // conn.signin("root", "pass");
@@ -0,0 +1,208 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import dev.bitbite.surrealdb.exception.TransferException;
+import dev.bitbite.surrealdb.transfer.TableTransfer;
+import dev.bitbite.surrealdb.transfer.TransferProgress;
+
+public class TableTransferTest {
+
+    private static HttpStub.Response ok(JsonArray records) {
+        return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":"+records+"}]");
+    }
+
+    private static JsonArray inserted(String statement) {
+        return JsonParser.parseString(statement.substring(statement.indexOf('['), statement.lastIndexOf(']') + 1)).getAsJsonArray();
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testImportNdjsonInChunks() throws Exception {
+        List<JsonArray> chunks = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            chunks.add(inserted(request.body()));
+            return ok(chunks.get(chunks.size() - 1));
+        })) {
+            TableTransfer transfer = new TableTransfer(new SurrealDBConnection(stub.getURI()));
+            transfer.setChunkSize(2);
+            List<TransferProgress> reported = new CopyOnWriteArrayList<>();
+            transfer.setProgressListener(reported::add);
+
+            String ndjson = "{\"n\":1}\n{\"n\":2}\n\n{\"n\":3}\r\n{\"n\":4}\n{\"n\":5}";
+            TransferProgress progress = transfer.importNdjson("numbers", input(ndjson), null);
+
+            assertEquals(3, chunks.size());
+            assertEquals(5, chunks.stream().mapToInt(JsonArray::size).sum());
+            assertEquals(3, progress.getChunks());
+            assertEquals(5, progress.getRecords());
+            assertEquals(ndjson.length(), progress.getBytes());
+            assertEquals(3, reported.size());
+        }
+    }
+
+    @Test
+    void testResumeImport() throws Exception {
+        List<JsonArray> chunks = new CopyOnWriteArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        try (HttpStub stub = new HttpStub(request -> {
+            JsonArray records = inserted(request.body());
+            if(records.get(0).getAsJsonObject().get("n").getAsInt() == 3 && fail.get())
+                return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"boom\"}]");
+            chunks.add(records);
+            return ok(records);
+        })) {
+            TableTransfer transfer = new TableTransfer(new SurrealDBConnection(stub.getURI()));
+            transfer.setChunkSize(2);
+            transfer.setConcurrency(1);
+            String ndjson = "{\"n\":1}\n{\"n\":2}\n{\"n\":3}\n{\"n\":4}\n{\"n\":5}\n";
+
+            TransferException e = assertThrows(TransferException.class, () -> transfer.importNdjson("numbers", input(ndjson), null));
+            assertEquals(1, e.getProgress().getChunks());
+            assertEquals(2, e.getProgress().getRecords());
+
+            fail.set(false);
+            chunks.clear();
+            TransferProgress progress = transfer.importNdjson("numbers", input(ndjson), e.getProgress());
+            assertEquals(3, chunks.get(0).get(0).getAsJsonObject().get("n").getAsInt());
+            assertEquals(3, chunks.stream().mapToInt(JsonArray::size).sum());
+            assertEquals(3, progress.getChunks());
+            assertEquals(5, progress.getRecords());
+        }
+    }
+
+    @Test
+    void testResumeSkipsChunksCompletedOutOfOrder() throws Exception {
+        List<JsonArray> chunks = new CopyOnWriteArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        CountDownLatch laterInserted = new CountDownLatch(1);
+        try (HttpStub stub = new HttpStub(request -> {
+            JsonArray records = inserted(request.body());
+            int first = records.get(0).getAsJsonObject().get("n").getAsInt();
+            if(first == 3 && fail.get()) {
+                // the second chunk fails only after the third one was inserted
+                try {
+                    laterInserted.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"boom\"}]");
+            }
+            chunks.add(records);
+            if(first == 5)
+                laterInserted.countDown();
+            return ok(records);
+        })) {
+            TableTransfer transfer = new TableTransfer(new SurrealDBConnection(stub.getURI()));
+            transfer.setChunkSize(2);
+            transfer.setConcurrency(2);
+            String ndjson = "{\"n\":1}\n{\"n\":2}\n{\"n\":3}\n{\"n\":4}\n{\"n\":5}\n{\"n\":6}\n";
+
+            TransferException e = assertThrows(TransferException.class, () -> transfer.importNdjson("numbers", input(ndjson), null));
+            assertEquals(1, e.getProgress().getChunks());
+            assertEquals(2, e.getProgress().getRecords());
+            assertEquals(Set.of(2L), e.getProgress().getCompletedChunks());
+
+            fail.set(false);
+            chunks.clear();
+            TransferProgress progress = transfer.importNdjson("numbers", input(ndjson), e.getProgress());
+            // the third chunk is not inserted again
+            assertEquals(1, chunks.size());
+            assertEquals(3, chunks.get(0).get(0).getAsJsonObject().get("n").getAsInt());
+            assertEquals(3, progress.getChunks());
+            assertEquals(6, progress.getRecords());
+            assertTrue(progress.getCompletedChunks().isEmpty());
+        }
+    }
+
+    @Test
+    void testImportCsv() throws Exception {
+        List<JsonArray> chunks = new CopyOnWriteArrayList<>();
+        try (HttpStub stub = new HttpStub(request -> {
+            chunks.add(inserted(request.body()));
+            return ok(chunks.get(chunks.size() - 1));
+        })) {
+            TableTransfer transfer = new TableTransfer(new SurrealDBConnection(stub.getURI()));
+            String csv = "id,name,bio\r\n"
+                + "person:1,Tobie,\"likes \"\"quotes\"\", commas\r\nand lines\"\r\n"
+                + "person:2,Jaime,\n";
+            TransferProgress progress = transfer.importCsv("person", input(csv), null);
+
+            assertEquals(2, progress.getRecords());
+            JsonObject first = chunks.get(0).get(0).getAsJsonObject();
+            assertEquals("person:1", first.get("id").getAsString());
+            assertEquals("likes \"quotes\", commas\r\nand lines", first.get("bio").getAsString());
+            assertNull(chunks.get(0).get(1).getAsJsonObject().get("bio"));
+        }
+    }
+
+    @Test
+    void testExportAndResume(@TempDir Path dir) throws Exception {
+        List<String> statements = new CopyOnWriteArrayList<>();
+        AtomicBoolean fail = new AtomicBoolean(true);
+        try (HttpStub stub = new HttpStub(request -> {
+            statements.add(request.body());
+            int from = request.body().contains("WHERE id > person:1") ? 2 : request.body().contains("WHERE id > person:3") ? 4 : 0;
+            if(from == 2 && fail.get())
+                return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"boom\"}]");
+            JsonArray records = new JsonArray();
+            for(int i = from; i < Math.min(from + 2, 5); i++) {
+                JsonObject record = new JsonObject();
+                record.addProperty("id", "person:"+i);
+                record.addProperty("n", i);
+                records.add(record);
+            }
+            return ok(records);
+        })) {
+            TableTransfer transfer = new TableTransfer(new SurrealDBConnection(stub.getURI()));
+            transfer.setChunkSize(2);
+            Path file = dir.resolve("person.ndjson");
+
+            TransferException e = assertThrows(TransferException.class, () -> transfer.exportNdjson("person", file));
+            assertEquals(1, e.getProgress().getChunks());
+            assertEquals("person:1", e.getProgress().getLastId());
+            assertEquals(Files.size(file), e.getProgress().getBytes());
+
+            // a partially written chunk is discarded on resume
+            Files.writeString(file, "{\"id\":\"person:2\"", StandardOpenOption.APPEND);
+            fail.set(false);
+            TransferProgress progress = transfer.exportNdjson("person", file, e.getProgress());
+
+            List<String> lines = Files.readAllLines(file);
+            List<Integer> numbers = new ArrayList<>();
+            lines.forEach(line -> numbers.add(JsonParser.parseString(line).getAsJsonObject().get("n").getAsInt()));
+            assertEquals(List.of(0, 1, 2, 3, 4), numbers);
+            assertEquals(3, progress.getChunks());
+            assertEquals(5, progress.getRecords());
+            assertEquals("person:4", progress.getLastId());
+            assertTrue(statements.stream().anyMatch(s -> s.contains("WHERE id > person:3")));
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package dev.bitbite.surrealdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.exception.WriteRejectedException;
+import dev.bitbite.surrealdb.query.QueryResult;
+
+public class WriteBatcherTest {
+
+    @Test
+    void testBatching() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.incrementAndGet();
+            List<String> results = new ArrayList<>();
+            for(String statement : request.body().split(";\n")) {
+                String name = statement.substring(statement.indexOf("\"name\":\"") + 8, statement.lastIndexOf('"'));
+                results.add(name.equals("duplicate")
+                    ? "{\"time\":\"1ms\",\"status\":\"ERR\",\"result\":\"Database index already contains 'duplicate'\"}"
+                    : "{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:"+name+"\",\"name\":\""+name+"\"}]}");
+            }
+            return HttpStub.Response.ok(results.toString());
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.enableBatching(5, Duration.ofSeconds(5), 100, WriteBatcher.OverflowPolicy.BLOCK);
+
+            List<CompletableFuture<List<QueryResult<Person>>>> writes = new ArrayList<>();
+            for(int i = 0; i < 9; i++)
+                writes.add(conn.createAsync("person", new Person(Integer.toString(i))));
+            writes.add(conn.createAsync("person", new Person("duplicate")));
+
+            for(int i = 0; i < 9; i++)
+                assertEquals("person:"+i, writes.get(i).join().get(0).getResult().get(0).getId());
+            CompletionException e = assertThrows(CompletionException.class, () -> writes.get(9).join());
+            assertTrue(e.getCause() instanceof SurrealException);
+            assertEquals(2, requests.get());
+            conn.disableBatching();
+        }
+    }
+
+    @Test
+    void testReject() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (HttpStub stub = new HttpStub(request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.enableBatching(1, Duration.ZERO, 1, WriteBatcher.OverflowPolicy.REJECT);
+
+            // four batches in flight, one held by the flusher and one in the queue
+            List<CompletableFuture<?>> writes = new ArrayList<>();
+            for(int i = 0; i < 6; i++) {
+                writes.add(conn.createAsync("person", new Person(Integer.toString(i))));
+                if(i < 5) {
+                    long deadline = System.currentTimeMillis() + 5000;
+                    while(conn.getWriteBatcher().getQueuedWrites() > 0 && System.currentTimeMillis() < deadline)
+                        Thread.sleep(5);
+                }
+            }
+            assertThrows(WriteRejectedException.class, () -> conn.create("person", new Person("rejected")));
+            release.countDown();
+            writes.forEach(CompletableFuture::join);
+            conn.disableBatching();
+        }
+    }
+
+    @Test
+    void testShutdownCompletesBlockedWrites() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (HttpStub stub = new HttpStub(request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.enableBatching(1, Duration.ZERO, 1, WriteBatcher.OverflowPolicy.BLOCK);
+            WriteBatcher batcher = conn.getWriteBatcher();
+
+            // four batches in flight, one held by the flusher, one in the queue and one blocked on the full queue
+            List<CompletableFuture<?>> writes = new ArrayList<>();
+            for(int i = 0; i < 6; i++)
+                writes.add(conn.createAsync("person", new Person(Integer.toString(i))));
+            CompletableFuture<?> blocked = CompletableFuture.supplyAsync(() -> conn.createAsync("person", new Person("blocked"))).thenCompose(write -> write);
+            Thread.sleep(100);
+            assertEquals(1, batcher.getQueuedWrites());
+
+            conn.disableBatching();
+            release.countDown();
+            writes.forEach(CompletableFuture::join);
+            // the blocked write is either sent with the last batch or rejected, but never left in the queue
+            try {
+                blocked.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof WriteRejectedException);
+            }
+            assertEquals(0, batcher.getQueuedWrites());
+            CompletionException e = assertThrows(CompletionException.class, () -> batcher.submit("CREATE person", Person.class).join());
+            assertTrue(e.getCause() instanceof WriteRejectedException);
+        }
+    }
+
+    @Test
+    void testMaxBatchesInFlight() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (HttpStub stub = new HttpStub(request -> {
+            requests.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return HttpStub.Response.ok("[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]");
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.enableBatching(1, Duration.ZERO, 10, WriteBatcher.OverflowPolicy.REJECT, 2);
+
+            List<CompletableFuture<?>> writes = new ArrayList<>();
+            for(int i = 0; i < 5; i++)
+                writes.add(conn.createAsync("person", new Person(Integer.toString(i))));
+            Thread.sleep(100);
+            // two batches in flight, one held by the flusher and two still in the queue
+            assertEquals(2, requests.get());
+            assertEquals(2, conn.getWriteBatcher().getQueuedWrites());
+
+            release.countDown();
+            writes.forEach(CompletableFuture::join);
+            assertEquals(5, requests.get());
+            conn.disableBatching();
+        }
+    }
+
+}
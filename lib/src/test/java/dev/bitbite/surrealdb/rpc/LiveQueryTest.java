@@ -0,0 +1,128 @@
+package dev.bitbite.surrealdb.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+
+import dev.bitbite.surrealdb.Person;
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.LiveNotification;
+import dev.bitbite.surrealdb.query.Query;
+
+public class LiveQueryTest {
+
+    private static class RecordingSubscriber implements Flow.Subscriber<LiveNotification<Person>> {
+        final BlockingQueue<LiveNotification<Person>> notifications = new LinkedBlockingQueue<>();
+        final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LiveNotification<Person> item) {
+            notifications.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static String notification(String action, String result) {
+        return "{\"result\":{\"id\":\"live-1\",\"action\":\""+action+"\",\"result\":"+result+"}}";
+    }
+
+    private static WebSocketStub server(CompletableFuture<String> killed) throws Exception {
+        return new WebSocketStub((request, socket) -> {
+            switch(request.get("method").getAsString()) {
+                case "query" -> {
+                    assertEquals("LIVE SELECT * FROM person", request.getAsJsonArray("params").get(0).getAsString());
+                    socket.send(WebSocketStub.result(request, "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":\"live-1\"}]"));
+                    socket.send(notification("CREATE", "{\"id\":\"person:1\",\"name\":\"a\"}"));
+                    socket.send(notification("UPDATE", "{\"id\":\"person:1\",\"name\":\"b\"}"));
+                    socket.send(notification("DELETE", "\"person:1\""));
+                }
+                case "kill" -> {
+                    killed.complete(request.getAsJsonArray("params").get(0).getAsString());
+                    socket.send(WebSocketStub.result(request, "null"));
+                }
+                default -> socket.send(WebSocketStub.result(request, "null"));
+            }
+        });
+    }
+
+    @Test
+    void testNotificationsFollowDemand() throws Exception {
+        CompletableFuture<String> killed = new CompletableFuture<>();
+        try (WebSocketStub stub = server(killed)) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            conn.live(Query.selectAll().from("person"), Person.class).subscribe(subscriber);
+            subscriber.subscription.request(1);
+
+            LiveNotification<Person> created = subscriber.notifications.poll(5, TimeUnit.SECONDS);
+            assertEquals(LiveNotification.Action.CREATE, created.getAction());
+            assertEquals("person:1", created.getRecordId());
+            assertEquals("a", created.getResult().getName());
+            assertNull(subscriber.notifications.poll(200, TimeUnit.MILLISECONDS));
+
+            subscriber.subscription.request(2);
+            assertEquals("b", subscriber.notifications.poll(5, TimeUnit.SECONDS).getResult().getName());
+            LiveNotification<Person> deleted = subscriber.notifications.poll(5, TimeUnit.SECONDS);
+            assertEquals(LiveNotification.Action.DELETE, deleted.getAction());
+            assertEquals("person:1", deleted.getRecordId());
+            assertNull(deleted.getResult());
+
+            subscriber.subscription.cancel();
+            assertEquals("live-1", killed.get(5, TimeUnit.SECONDS));
+            conn.close();
+        }
+    }
+
+    @Test
+    void testOverflowFailsSubscriber() throws Exception {
+        CompletableFuture<String> killed = new CompletableFuture<>();
+        try (WebSocketStub stub = server(killed)) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            conn.live(Query.selectAll().from("person"), Person.class, 2).subscribe(subscriber);
+
+            assertTrue(subscriber.error.get(5, TimeUnit.SECONDS) instanceof SurrealException);
+            assertEquals("live-1", killed.get(5, TimeUnit.SECONDS));
+            assertTrue(subscriber.notifications.isEmpty());
+            conn.close();
+        }
+    }
+
+    @Test
+    void testNotificationsWithoutListenerAreIgnored() throws Exception {
+        try (WebSocketStub stub = new WebSocketStub((request, socket) -> {
+            socket.send(notification("CREATE", "{}"));
+            socket.send(WebSocketStub.result(request, "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[]}]"));
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            assertTrue(conn.query(JsonObject.class, "SELECT * FROM person").get(0).getResult().isEmpty());
+            conn.close();
+        }
+    }
+
+}
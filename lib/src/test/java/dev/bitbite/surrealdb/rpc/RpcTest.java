@@ -0,0 +1,142 @@
+package dev.bitbite.surrealdb.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import dev.bitbite.surrealdb.Person;
+import dev.bitbite.surrealdb.SurrealDBConnection;
+import dev.bitbite.surrealdb.exception.SurrealException;
+import dev.bitbite.surrealdb.query.Query;
+import dev.bitbite.surrealdb.query.QueryTemplate;
+
+public class RpcTest {
+
+    @Test
+    void testMultiplexing() throws Exception {
+        List<JsonObject> received = Collections.synchronizedList(new ArrayList<>());
+        try (WebSocketStub stub = new WebSocketStub((request, socket) -> {
+            received.add(request);
+            if(received.size() == 3) {
+                // answer in reverse order to make sure responses are matched by id
+                for(int i = 2; i >= 0; i--) {
+                    JsonObject r = received.get(i);
+                    socket.send(WebSocketStub.result(r, r.getAsJsonArray("params").get(0).toString()));
+                }
+            }
+        })) {
+            RpcClient rpc = RpcClient.connect(HttpClient.newHttpClient(), stub.getURI()).join();
+            CompletableFuture<?> a = rpc.call("select", new JsonPrimitive("a"));
+            CompletableFuture<?> b = rpc.call("select", new JsonPrimitive("b"));
+            CompletableFuture<?> c = rpc.call("select", new JsonPrimitive("c"));
+            assertEquals(new JsonPrimitive("a"), a.join());
+            assertEquals(new JsonPrimitive("b"), b.join());
+            assertEquals(new JsonPrimitive("c"), c.join());
+            assertEquals(0, rpc.getPendingCalls());
+            rpc.close();
+        }
+    }
+
+    @Test
+    void testMalformedMessagesKeepTheSocketOpen() throws Exception {
+        List<JsonObject> notified = Collections.synchronizedList(new ArrayList<>());
+        try (WebSocketStub stub = new WebSocketStub((request, socket) -> {
+            String param = request.getAsJsonArray("params").get(0).getAsString();
+            String id = request.get("id").getAsString();
+            switch(param) {
+                case "broken" -> {
+                    socket.send("not json");
+                    socket.send("{\"id\":\""+id+"\",\"error\":\"not an object\"}");
+                }
+                case "notify" -> {
+                    socket.send("{\"result\":{\"id\":\"failing\",\"action\":\"CREATE\",\"result\":{}}}");
+                    socket.send("{\"result\":{\"id\":\"working\",\"action\":\"CREATE\",\"result\":{}}}");
+                    socket.send(WebSocketStub.result(request, "null"));
+                }
+                default -> socket.send(WebSocketStub.result(request, "\""+param+"\""));
+            }
+        })) {
+            RpcClient rpc = RpcClient.connect(HttpClient.newHttpClient(), stub.getURI()).join();
+            CompletableFuture<?> broken = rpc.call("select", new JsonPrimitive("broken"));
+            CompletionException e = assertThrows(CompletionException.class, broken::join);
+            assertTrue(e.getCause() instanceof SurrealException);
+            assertEquals(new JsonPrimitive("a"), rpc.call("select", new JsonPrimitive("a")).join());
+
+            rpc.addLiveListener("failing", new LiveListener() {
+                @Override
+                public void onNotification(JsonObject notification) {
+                    throw new IllegalStateException("listener failed");
+                }
+
+                @Override
+                public void onClose(Throwable error) {
+                }
+            });
+            rpc.addLiveListener("working", new LiveListener() {
+                @Override
+                public void onNotification(JsonObject notification) {
+                    notified.add(notification);
+                }
+
+                @Override
+                public void onClose(Throwable error) {
+                }
+            });
+            rpc.call("select", new JsonPrimitive("notify")).join();
+            assertEquals(1, notified.size());
+            assertEquals(new JsonPrimitive("b"), rpc.call("select", new JsonPrimitive("b")).join());
+            rpc.close();
+        }
+    }
+
+    @Test
+    void testConnectionOverRpc() throws Exception {
+        try (WebSocketStub stub = new WebSocketStub((request, socket) -> {
+            String result = switch(request.get("method").getAsString()) {
+                case "use" -> "null";
+                case "signin" -> "\"token\"";
+                case "select" -> "[{\"id\":\"person:1\",\"name\":\"netcode\"}]";
+                case "create", "update" -> {
+                    JsonObject record = request.getAsJsonArray("params").get(1).getAsJsonObject();
+                    record.addProperty("id", "person:1");
+                    yield "["+record+"]";
+                }
+                case "query" -> request.getAsJsonArray("params").size() > 1
+                    ? "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"name\":"+request.getAsJsonArray("params").get(1).getAsJsonObject().get("p0")+"}]}]"
+                    : "[{\"time\":\"1ms\",\"status\":\"OK\",\"result\":[{\"id\":\"person:1\",\"name\":\"netcode\"}]}]";
+                default -> null;
+            };
+            if(result == null)
+                socket.send("{\"id\":\""+request.get("id").getAsString()+"\",\"error\":{\"code\":-32000,\"message\":\"Database record already exists\"}}");
+            else
+                socket.send(WebSocketStub.result(request, result));
+        })) {
+            SurrealDBConnection conn = new SurrealDBConnection(stub.getURI());
+            conn.use("test", "test");
+            assertTrue(conn.signin("root", "pass"));
+
+            Person created = conn.create("person", new Person("netcode")).get(0).getResult().get(0);
+            assertEquals("person:1", created.getId());
+            assertEquals("OK", conn.select(Person.class, "person", "1").getStatus());
+            assertEquals("netcode", conn.select(Person.class, "person").getResult().get(0).getName());
+            assertEquals("netcode", conn.query(Person.class, "SELECT * FROM person").get(0).getResult().get(0).getName());
+            QueryTemplate template = Query.selectAll().from("person").where("name", "=", "netcode").compile();
+            assertEquals("other", conn.query(Person.class, template, Map.of("p0", "other")).get(0).getResult().get(0).getName());
+            assertThrows(SurrealException.class, () -> conn.merge("person", "1", new Person("other")));
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package dev.bitbite.surrealdb.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.function.BiConsumer;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * A minimal in-process WebSocket server speaking just enough of RFC 6455 to test the RPC client.
+ * Every received text message is parsed as JSON and passed to the handler together with the stub,
+ * which the handler uses to {@link #send(String) send} its answers.
+ */
+public class WebSocketStub implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final BiConsumer<JsonObject, WebSocketStub> handler;
+    private OutputStream out;
+
+    public WebSocketStub(BiConsumer<JsonObject, WebSocketStub> handler) throws IOException {
+        this.server = new ServerSocket(0);
+        this.handler = handler;
+        Thread thread = new Thread(this::serve, "websocket-stub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public URI getURI() {
+        return URI.create("ws://localhost:"+server.getLocalPort()+"/rpc");
+    }
+
+    public synchronized void send(String message) {
+        try {
+            byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+            out.write(0x81);
+            if(payload.length < 126) {
+                out.write(payload.length);
+            } else if(payload.length < 65536) {
+                out.write(126);
+                out.write(payload.length >> 8);
+                out.write(payload.length);
+            } else {
+                out.write(127);
+                for(int i = 7; i >= 0; i--)
+                    out.write((int) ((long) payload.length >> (8 * i)));
+            }
+            out.write(payload);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String result(JsonObject request, String result) {
+        return "{\"id\":\""+request.get("id").getAsString()+"\",\"result\":"+result+"}";
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serve() {
+        try (Socket socket = server.accept()) {
+            InputStream in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+            handshake(in);
+            DataInputStream data = new DataInputStream(in);
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while(true) {
+                int first = data.readUnsignedByte();
+                int second = data.readUnsignedByte();
+                long length = second & 0x7F;
+                if(length == 126)
+                    length = data.readUnsignedShort();
+                else if(length == 127)
+                    length = data.readLong();
+                byte[] mask = new byte[4];
+                if((second & 0x80) != 0)
+                    data.readFully(mask);
+                byte[] payload = new byte[(int) length];
+                data.readFully(payload);
+                for(int i = 0; i < payload.length; i++)
+                    payload[i] ^= mask[i % 4];
+
+                int opcode = first & 0x0F;
+                if(opcode == 0x8)
+                    return;
+                if(opcode == 0x9 || opcode == 0xA)
+                    continue;
+                message.write(payload);
+                if((first & 0x80) != 0) {
+                    String text = message.toString(StandardCharsets.UTF_8);
+                    message.reset();
+                    handler.accept(JsonParser.parseString(text).getAsJsonObject(), this);
+                }
+            }
+        } catch (IOException e) {
+            // connection closed
+        }
+    }
+
+    private void handshake(InputStream in) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        while(!headers.toString().endsWith("\r\n\r\n"))
+            headers.append((char) in.read());
+
+        String key = headers.toString().lines()
+            .filter(line -> line.toLowerCase().startsWith("sec-websocket-key:"))
+            .map(line -> line.substring(line.indexOf(':') + 1).trim())
+            .findFirst().orElseThrow();
+        String accept;
+        try {
+            accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                .digest((key+"258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Upgrade: websocket\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Sec-WebSocket-Accept: "+accept+"\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+}
@@ -0,0 +1,440 @@
+package dev.bitbite.surrealdb.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates reflection free Gson adapters for all classes implementing <code>Identifiable</code>.
+ * <p>
+ * For an entity <code>com.example.Person</code> the adapter <code>com.example.Person_SurrealAdapter</code> is generated,
+ * which the codec of the connection picks up at runtime. The adapter maps the same fields Gson would map by reflection:
+ * all non-static, non-transient fields of the class and its superclasses, named after their <code>@SerializedName</code>.
+ * Fields are accessed directly, or through their getter and setter if they are not accessible from the package of the entity.
+ * </p>
+ * <p>
+ * No adapter is generated for abstract or generic classes, classes without a non-private no-arg constructor,
+ * classes with a field that can neither be accessed nor set through a setter, and classes using other Gson annotations.
+ * Those entities keep being mapped by reflection; the processor reports why with a note.
+ * </p>
+ */
+@SupportedAnnotationTypes("*")
+public class AdapterProcessor extends AbstractProcessor {
+
+    static final String IDENTIFIABLE = "dev.bitbite.surrealdb.orm.Identifiable";
+    static final String GSON_ANNOTATIONS = "com.google.gson.annotations.";
+    static final String SERIALIZED_NAME = GSON_ANNOTATIONS+"SerializedName";
+    // must match the suffix the codec looks for
+    static final String SUFFIX = "_SurrealAdapter";
+
+    private final Set<String> generated = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement identifiable = processingEnv.getElementUtils().getTypeElement(IDENTIFIABLE);
+        if(identifiable == null)
+            return false;
+        for(TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements()))
+            visit(type, identifiable);
+        // other processors may handle the same annotations
+        return false;
+    }
+
+    private void visit(TypeElement type, TypeElement identifiable) {
+        if(type.getKind() == ElementKind.CLASS
+                && processingEnv.getTypeUtils().isAssignable(type.asType(), identifiable.asType())
+                && generated.add(type.getQualifiedName().toString())) {
+            try {
+                generate(type);
+            } catch (Unsupported e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "No adapter generated for "+type.getQualifiedName()+", it is mapped by reflection: "+e.getMessage(), type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write the adapter for "+type.getQualifiedName()+": "+e.getMessage(), type);
+            }
+        }
+        for(TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements()))
+            visit(nested, identifiable);
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        checkType(type);
+        List<Property> properties = properties(type);
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String adapterName = adapterName(type);
+        String entity = type.getQualifiedName().toString();
+
+        Map<String, Integer> delegates = new LinkedHashMap<>();
+        for(Property property : properties)
+            if(property.kind() == Kind.DELEGATE)
+                delegates.putIfAbsent(property.typeName(), delegates.size());
+
+        StringBuilder src = new StringBuilder();
+        if(!packageName.isEmpty())
+            src.append("package ").append(packageName).append(";\n\n");
+        src.append("import java.io.IOException;\n\n");
+        src.append("import com.google.gson.Gson;\n");
+        src.append("import com.google.gson.TypeAdapter;\n");
+        src.append("import com.google.gson.reflect.TypeToken;\n");
+        src.append("import com.google.gson.stream.JsonReader;\n");
+        src.append("import com.google.gson.stream.JsonToken;\n");
+        src.append("import com.google.gson.stream.JsonWriter;\n\n");
+        src.append("/**\n * Maps {@link ").append(entity).append("} without reflection.\n");
+        src.append(" * Generated by ").append(AdapterProcessor.class.getName()).append(", do not edit.\n */\n");
+        src.append("public final class ").append(adapterName).append(" extends TypeAdapter<").append(entity).append("> {\n\n");
+        src.append("    private final Gson gson;\n");
+        for(Map.Entry<String, Integer> delegate : delegates.entrySet())
+            src.append("    private TypeAdapter<").append(delegate.getKey()).append("> adapter").append(delegate.getValue()).append(";\n");
+        src.append("\n    public ").append(adapterName).append("(Gson gson) {\n");
+        src.append("        this.gson = gson;\n");
+        src.append("    }\n\n");
+
+        src.append("    @Override\n");
+        src.append("    public void write(JsonWriter out, ").append(entity).append(" value) throws IOException {\n");
+        src.append("        if(value == null) {\n");
+        src.append("            out.nullValue();\n");
+        src.append("            return;\n");
+        src.append("        }\n");
+        src.append("        out.beginObject();\n");
+        for(Property property : properties) {
+            String name = literal(property.name());
+            if(property.kind() == Kind.DELEGATE) {
+                src.append("        out.name(").append(name).append(");\n");
+                src.append("        adapter").append(delegates.get(property.typeName())).append("().write(out, ").append(property.getter()).append(");\n");
+            } else {
+                src.append("        out.name(").append(name).append(").value(").append(property.getter()).append(");\n");
+            }
+        }
+        src.append("        out.endObject();\n");
+        src.append("    }\n\n");
+
+        src.append("    @Override\n");
+        src.append("    public ").append(entity).append(" read(JsonReader in) throws IOException {\n");
+        src.append("        if(in.peek() == JsonToken.NULL) {\n");
+        src.append("            in.nextNull();\n");
+        src.append("            return null;\n");
+        src.append("        }\n");
+        src.append("        ").append(entity).append(" value = new ").append(entity).append("();\n");
+        src.append("        in.beginObject();\n");
+        src.append("        while(in.hasNext()) {\n");
+        src.append("            switch(in.nextName()) {\n");
+        for(Property property : properties) {
+            src.append("                case ");
+            for(int i = 0; i < property.names().size(); i++)
+                src.append(i == 0 ? "" : ", ").append(literal(property.names().get(i)));
+            src.append(" -> {\n");
+            appendRead(src, property, delegates);
+            src.append("                }\n");
+        }
+        src.append("                default -> in.skipValue();\n");
+        src.append("            }\n");
+        src.append("        }\n");
+        src.append("        in.endObject();\n");
+        src.append("        return value;\n");
+        src.append("    }\n");
+
+        for(Map.Entry<String, Integer> delegate : delegates.entrySet()) {
+            String adapterType = "TypeAdapter<"+delegate.getKey()+">";
+            String field = "adapter"+delegate.getValue();
+            src.append("\n    private ").append(adapterType).append(" ").append(field).append("() {\n");
+            src.append("        ").append(adapterType).append(" adapter = this.").append(field).append(";\n");
+            src.append("        if(adapter == null) {\n");
+            src.append("            adapter = gson.getAdapter(new TypeToken<").append(delegate.getKey()).append(">() {});\n");
+            src.append("            this.").append(field).append(" = adapter;\n");
+            src.append("        }\n");
+            src.append("        return adapter;\n");
+            src.append("    }\n");
+        }
+        src.append("\n}\n");
+
+        String qualifiedName = packageName.isEmpty() ? adapterName : packageName+"."+adapterName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    private void appendRead(StringBuilder src, Property property, Map<String, Integer> delegates) {
+        String indent = "                    ";
+        String read = switch(property.kind()) {
+            case STRING -> "in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString()";
+            case INT -> "in.nextInt()";
+            case LONG -> "in.nextLong()";
+            case DOUBLE -> "in.nextDouble()";
+            case BOOLEAN -> "in.peek() == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean()";
+            case DELEGATE -> "adapter"+delegates.get(property.typeName())+"().read(in)";
+        };
+        if(property.kind() == Kind.DELEGATE) {
+            if(property.primitive()) {
+                // like Gson, a null value leaves a primitive field untouched
+                src.append(indent).append(property.typeName()).append(" read = ").append(read).append(";\n");
+                src.append(indent).append("if(read != null)\n");
+                src.append(indent).append("    ").append(property.assign("read")).append(";\n");
+            } else {
+                src.append(indent).append(property.assign(read)).append(";\n");
+            }
+            return;
+        }
+        src.append(indent).append("if(in.peek() == JsonToken.NULL) {\n");
+        src.append(indent).append("    in.nextNull();\n");
+        if(!property.primitive())
+            src.append(indent).append("    ").append(property.assign("null")).append(";\n");
+        src.append(indent).append("} else {\n");
+        src.append(indent).append("    ").append(property.assign(read)).append(";\n");
+        src.append(indent).append("}\n");
+    }
+
+    private void checkType(TypeElement type) {
+        if(type.getModifiers().contains(Modifier.ABSTRACT))
+            throw new Unsupported("the class is abstract");
+        if(!type.getTypeParameters().isEmpty())
+            throw new Unsupported("the class is generic");
+        for(Element element = type; element instanceof TypeElement enclosing; element = element.getEnclosingElement()) {
+            if(enclosing.getModifiers().contains(Modifier.PRIVATE))
+                throw new Unsupported("the class is not accessible from its package");
+            if(enclosing.getNestingKind() != NestingKind.TOP_LEVEL && !enclosing.getModifiers().contains(Modifier.STATIC))
+                throw new Unsupported("the class is an inner class");
+            if(enclosing.getNestingKind() == NestingKind.LOCAL || enclosing.getNestingKind() == NestingKind.ANONYMOUS)
+                throw new Unsupported("the class is local");
+        }
+        for(AnnotationMirror annotation : type.getAnnotationMirrors())
+            if(annotationName(annotation).startsWith(GSON_ANNOTATIONS))
+                throw new Unsupported("the class is annotated with "+annotationName(annotation));
+        boolean constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+            .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if(!constructor)
+            throw new Unsupported("the class has no non-private no-arg constructor");
+    }
+
+    /**
+     * Collects the fields Gson would map, those of the class first, then those of its superclasses.
+     */
+    private List<Property> properties(TypeElement type) {
+        List<Property> properties = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        PackageElement entityPackage = processingEnv.getElementUtils().getPackageOf(type);
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+
+        TypeElement current = type;
+        while(current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            for(VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+                    continue;
+                Property property = property(field, current, entityPackage, methods);
+                for(String name : property.names())
+                    if(!names.add(name))
+                        throw new Unsupported("the name "+name+" is used by more than one field");
+                properties.add(property);
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return properties;
+    }
+
+    private Property property(VariableElement field, TypeElement owner, PackageElement entityPackage, List<ExecutableElement> methods) {
+        String fieldName = field.getSimpleName().toString();
+        List<String> names = new ArrayList<>();
+        names.add(fieldName);
+        for(AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            String annotationName = annotationName(annotation);
+            if(annotationName.equals(SERIALIZED_NAME)) {
+                names.clear();
+                for(var entry : annotation.getElementValues().entrySet()) {
+                    String key = entry.getKey().getSimpleName().toString();
+                    if(key.equals("value")) {
+                        names.add(0, (String) entry.getValue().getValue());
+                    } else if(key.equals("alternate")) {
+                        for(Object alternate : (List<?>) entry.getValue().getValue())
+                            names.add((String) ((AnnotationValue) alternate).getValue());
+                    }
+                }
+            } else if(annotationName.startsWith(GSON_ANNOTATIONS)) {
+                throw new Unsupported("the field "+fieldName+" is annotated with "+annotationName);
+            }
+        }
+
+        TypeMirror type = field.asType();
+        if(type.getKind() == TypeKind.TYPEVAR || type.getKind() == TypeKind.ERROR)
+            throw new Unsupported("the type of the field "+fieldName+" can not be resolved");
+
+        boolean accessible = !field.getModifiers().contains(Modifier.PRIVATE)
+            && (field.getModifiers().contains(Modifier.PUBLIC)
+                || processingEnv.getElementUtils().getPackageOf(owner).equals(entityPackage));
+        String capitalized = Character.toUpperCase(fieldName.charAt(0))+fieldName.substring(1);
+
+        String getter;
+        if(accessible) {
+            getter = "value."+fieldName;
+        } else {
+            ExecutableElement method = accessor(methods, entityPackage, type, "get"+capitalized, "is"+capitalized);
+            if(method == null)
+                throw new Unsupported("the field "+fieldName+" is neither accessible nor has a getter");
+            getter = "value."+method.getSimpleName()+"()";
+        }
+
+        String assignPrefix, assignSuffix;
+        if(accessible && !field.getModifiers().contains(Modifier.FINAL)) {
+            assignPrefix = "value."+fieldName+" = ";
+            assignSuffix = "";
+        } else {
+            ExecutableElement method = mutator(methods, entityPackage, type, "set"+capitalized);
+            if(method == null)
+                throw new Unsupported("the field "+fieldName+" can neither be assigned nor has a setter");
+            assignPrefix = "value."+method.getSimpleName()+"(";
+            assignSuffix = ")";
+        }
+
+        Kind kind = kind(type);
+        boolean primitive = type.getKind().isPrimitive();
+        String typeName = primitive
+            ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString()
+            : type.toString();
+        return new Property(names, kind, primitive, typeName, getter, assignPrefix, assignSuffix);
+    }
+
+    private Kind kind(TypeMirror type) {
+        return switch(type.getKind()) {
+            case INT -> Kind.INT;
+            case LONG -> Kind.LONG;
+            case DOUBLE -> Kind.DOUBLE;
+            case BOOLEAN -> Kind.BOOLEAN;
+            case DECLARED -> switch(type.toString()) {
+                case "java.lang.String" -> Kind.STRING;
+                case "java.lang.Integer" -> Kind.INT;
+                case "java.lang.Long" -> Kind.LONG;
+                case "java.lang.Double" -> Kind.DOUBLE;
+                case "java.lang.Boolean" -> Kind.BOOLEAN;
+                default -> Kind.DELEGATE;
+            };
+            default -> Kind.DELEGATE;
+        };
+    }
+
+    private ExecutableElement accessor(List<ExecutableElement> methods, PackageElement entityPackage, TypeMirror type, String... names) {
+        for(ExecutableElement method : methods) {
+            if(!List.of(names).contains(method.getSimpleName().toString()) || !method.getParameters().isEmpty())
+                continue;
+            if(processingEnv.getTypeUtils().isSameType(method.getReturnType(), type) && accessible(method, entityPackage))
+                return method;
+        }
+        return null;
+    }
+
+    private ExecutableElement mutator(List<ExecutableElement> methods, PackageElement entityPackage, TypeMirror type, String name) {
+        for(ExecutableElement method : methods) {
+            if(!method.getSimpleName().contentEquals(name) || method.getParameters().size() != 1)
+                continue;
+            if(processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), type) && accessible(method, entityPackage))
+                return method;
+        }
+        return null;
+    }
+
+    private boolean accessible(ExecutableElement method, PackageElement entityPackage) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE))
+            return false;
+        return modifiers.contains(Modifier.PUBLIC)
+            || processingEnv.getElementUtils().getPackageOf(method).equals(entityPackage);
+    }
+
+    private static String annotationName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the simple name of the adapter generated for a type, nested classes joined with underscores.
+     */
+    static String adapterName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for(Element outer = type.getEnclosingElement(); outer instanceof TypeElement; outer = outer.getEnclosingElement())
+            name.insert(0, outer.getSimpleName()+"_");
+        return name+SUFFIX;
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for(char c : value.toCharArray()) {
+            switch(c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if(c < 0x20)
+                        literal.append(String.format("\\u%04x", (int) c));
+                    else
+                        literal.append(c);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private enum Kind {
+        STRING, INT, LONG, DOUBLE, BOOLEAN, DELEGATE
+    }
+
+    /**
+     * A mapped field.
+     * @param names the name the field is written with, followed by the alternate names it is read from
+     * @param typeName the type of the field, boxed if it is primitive
+     * @param getter expression reading the field from <code>value</code>
+     * @param assignPrefix code preceding the value in a statement assigning the field of <code>value</code>
+     * @param assignSuffix code following the value in that statement
+     */
+    private record Property(List<String> names, Kind kind, boolean primitive, String typeName, String getter, String assignPrefix, String assignSuffix) {
+        String name() {
+            return names.get(0);
+        }
+
+        String assign(String expression) {
+            return assignPrefix+expression+assignSuffix;
+        }
+    }
+
+    /**
+     * Thrown if no adapter can be generated for a class.
+     */
+    private static class Unsupported extends RuntimeException {
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+}
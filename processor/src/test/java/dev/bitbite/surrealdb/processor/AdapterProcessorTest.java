@@ -0,0 +1,108 @@
+package dev.bitbite.surrealdb.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+
+import dev.bitbite.surrealdb.codec.Codec;
+
+public class AdapterProcessorTest {
+
+    private static final String ENTITY = """
+        package com.example;
+
+        import java.util.List;
+        import com.google.gson.annotations.SerializedName;
+        import dev.bitbite.surrealdb.orm.Identifiable;
+
+        public class Account implements Identifiable {
+            public String id;
+            @SerializedName(value = "full_name", alternate = "fullName")
+            String name;
+            private int age;
+            public Double ratio;
+            public boolean active;
+            public float score;
+            public List<String> tags;
+            public Account friend;
+            public transient String ignored;
+
+            public int getAge() { return age; }
+            public void setAge(int age) { this.age = age; }
+            @Override public String getId() { return id; }
+
+            public static class Hidden implements Identifiable {
+                private String secret;
+                @Override public String getId() { return null; }
+            }
+        }
+        """;
+
+    /**
+     * Compiles the entity with the processor and loads the result.
+     */
+    private static ClassLoader compile(Path dir, StringWriter diagnostics) throws Exception {
+        Path source = dir.resolve("src/com/example/Account.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, ENTITY);
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null)) {
+            List<String> options = List.of("-d", classes.toString(), "-s", Files.createDirectories(dir.resolve("generated")).toString(),
+                "-classpath", System.getProperty("java.class.path"));
+            var task = compiler.getTask(diagnostics, files, null, options, null, files.getJavaFileObjects(source.toFile()));
+            task.setProcessors(List.of(new AdapterProcessor()));
+            assertTrue(task.call(), diagnostics.toString());
+        }
+        return new URLClassLoader(new URL[] { classes.toUri().toURL() }, AdapterProcessorTest.class.getClassLoader());
+    }
+
+    @Test
+    void testGeneratedAdapterMatchesReflection() throws Exception {
+        Path dir = Files.createTempDirectory("adapter-processor");
+        StringWriter diagnostics = new StringWriter();
+        ClassLoader loader = compile(dir, diagnostics);
+
+        assertTrue(Files.exists(dir.resolve("generated/com/example/Account_SurrealAdapter.java")));
+        assertFalse(Files.exists(dir.resolve("generated/com/example/Account_Hidden_SurrealAdapter.java")));
+        assertTrue(diagnostics.toString().contains("No adapter generated for com.example.Account.Hidden"), diagnostics.toString());
+
+        Class<?> account = loader.loadClass("com.example.Account");
+        String json = "{\"id\":\"account:1\",\"full_name\":\"Jo \\\"Q\\\"\",\"age\":42,\"ratio\":0.5,\"active\":true,\"score\":1.1,"
+            + "\"tags\":[\"a\",\"b\"],\"friend\":{\"id\":\"account:2\",\"age\":0,\"active\":false,\"score\":0.0}}";
+
+        Codec generated = new Codec();
+        Codec reflective = new Codec(new Gson(), false);
+        assertEquals("Account_SurrealAdapter", generated.adapter(account).getClass().getSimpleName());
+        assertFalse(reflective.adapter(account).getClass().getSimpleName().endsWith("_SurrealAdapter"));
+        // a Gson instance of the caller is used as configured unless generated adapters are enabled
+        assertFalse(new Codec(new Gson()).adapter(account).getClass().getSimpleName().endsWith("_SurrealAdapter"));
+        assertEquals("Account_SurrealAdapter", new Codec(new Gson(), true).adapter(account).getClass().getSimpleName());
+
+        Object decoded = generated.adapter(account).fromJson(json);
+        assertEquals(json, reflective.toJson(decoded));
+        assertEquals(json, generated.toJson(decoded));
+        assertEquals(generated.toJson(generated.adapter(account).fromJson(json.replace("full_name", "fullName"))), json);
+
+        for(File file : Files.walk(dir).sorted((a, b) -> b.compareTo(a)).map(Path::toFile).toList())
+            file.delete();
+    }
+
+}